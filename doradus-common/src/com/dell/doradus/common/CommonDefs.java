@@ -75,6 +75,11 @@ final public class CommonDefs {
      */
     public static final String OPT_STORAGE_SERVICE = "StorageService";
     
+    /**
+     * The application-level option that selects the codec of OLAP data chunks.
+     */
+    public static final String OPT_COMPRESSION = "compression";
+    
     /**
      * Maximum link field number we currently support:
      */
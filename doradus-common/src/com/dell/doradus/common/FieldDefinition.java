@@ -31,6 +31,7 @@ final public class FieldDefinition {
     private String            m_analyzerName;
     private boolean           m_bIsSharded;         // true => sharded link field
     private String            m_junctionField;      // for xlink fields only
+    private boolean           m_bIsTermIndexed;     // true => OLAP text field with term index
     
     // If the field is a Link, the following members also apply:
     private String m_linkInverse;
@@ -182,6 +183,11 @@ final public class FieldDefinition {
                 Utils.require(childNode.isValue(), "Value of 'junction' must be a string: " + childNode);
                 m_junctionField = childNode.getValue();
                 
+            // "term_index"
+            } else if (childName.equals("term_index")) {
+                Utils.require(childNode.isValue(), "Value of 'term_index' must be a string: " + childNode);
+                m_bIsTermIndexed = Utils.getBooleanValue(childNode.getValue());
+                
             // Unrecognized.
             } else {
                 Utils.require(false, "Unrecognized field attribute: " + childName);
@@ -239,6 +245,10 @@ final public class FieldDefinition {
             m_encoding = EncodingType.getDefaultEncoding();
         }
         
+        // Only text fields can have a term index.
+        Utils.require(!m_bIsTermIndexed || m_type == FieldType.TEXT,
+                      "'term_index' is only valid for text fields");
+        
         // Binary fields cannot be collections.
         Utils.require(m_type != FieldType.BINARY || !m_bIsCollection,
                       "Binary fields cannot be collections (multi-valued)");
@@ -337,6 +347,16 @@ final public class FieldDefinition {
         return m_bIsCollection;
     }   // isCollection
     
+    /**
+     * Indicate if this text field has a term index, which is used by OLAP to speed-up
+     * wildcard, contains and regular expression searches.
+     * 
+     * @return  True if this is a text field with a term index.
+     */
+    public boolean isTermIndexed() {
+        return m_bIsTermIndexed;
+    }   // isTermIndexed
+    
     /**
      * Indicate if this field definition is a group field.
      * 
@@ -719,6 +739,11 @@ final public class FieldDefinition {
             if (m_type == FieldType.XLINK) {
                 fieldNode.addValueNode("junction", m_junctionField, true);
             }
+            
+            // Add 'term_index' for text fields if true.
+            if (m_bIsTermIndexed) {
+                fieldNode.addValueNode("term_index", Boolean.toString(m_bIsTermIndexed), true);
+            }
         } else {
             // Create a MAP node called "fields".
             assert m_nestedFieldMap.size() > 0;
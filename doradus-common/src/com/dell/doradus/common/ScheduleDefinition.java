@@ -98,6 +98,15 @@ public class ScheduleDefinition {
                         Utils.require(schedDef.m_taskDeclaration == null, "'statistic' attribute not valid for " + getName());
                 	}
                 },
+        OLAP_MERGE("olap-merge", "com.dell.doradus.tasks.OlapMerger",
+        		new String[] {"OLAPService"}) {
+        			@Override
+                	public void validate(ScheduleDefinition schedDef, String serviceName) {
+                		super.validate(schedDef, serviceName);
+                        Utils.require(schedDef.m_tableName == null, "'table' attribute not valid for " + getName());
+                        Utils.require(schedDef.m_taskDeclaration == null, "'statistic' attribute not valid for " + getName());
+                	}
+                },
         DATA_CHECKS("data-checks", "com.dell.doradus.tasks.DataChecker",
         		new String[] {"SpiderService"}) {
         			@Override
@@ -154,6 +163,7 @@ public class ScheduleDefinition {
         	list.add(DATA_AGING.getName());
         	list.add(SHARDING_CHECK.getName());
         	list.add(DATA_CHECKS.getName());
+        	list.add(OLAP_MERGE.getName());
         	return list;
         }
         
@@ -47,17 +47,17 @@ public class AddObjectsCmd extends ReaderCallback {
         }
         Utils.require(reader != null, "This command requires an input entity");
         
-        DBObjectBatch dbObjBatch = new DBObjectBatch();
+        Map<String, String> paramMap = Utils.parseURIQuery(m_request.getVariable("params"));
+        StorageService storageService = SchemaService.instance().getStorageService(appDef);
+        BatchResult batchResult;
         if (m_request.getInputContentType().isJSON()) {
-            dbObjBatch.parseJSON(reader);
+            batchResult = storageService.addBatchJSON(appDef, store, reader, paramMap);
         } else {
+            DBObjectBatch dbObjBatch = new DBObjectBatch();
             UNode rootNode = UNode.parse(reader, m_request.getInputContentType());
             dbObjBatch.parse(rootNode);
+            batchResult = storageService.addBatch(appDef, store, dbObjBatch, paramMap);
         }
-
-        Map<String, String> paramMap = Utils.parseURIQuery(m_request.getVariable("params"));
-        StorageService storageService = SchemaService.instance().getStorageService(appDef);
-        BatchResult batchResult = storageService.addBatch(appDef, store, dbObjBatch, paramMap);
         String body = batchResult.toDoc().toString(m_request.getOutputContentType());
         return new RESTResponse(HttpCode.CREATED, body, m_request.getOutputContentType());
     }   // invokeStreamIn
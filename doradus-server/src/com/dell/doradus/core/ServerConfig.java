@@ -228,13 +228,28 @@ public class ServerConfig {
     public int search_column_count = 1024;
     //number of columns to retrieve from a indexed link row (default: 16384)
     public int search_link_column_count = 16384;
-    //number of threads to use for indexed row retrieving for links (default: 0)
-    public int search_link_thread_count = 0;
+    //number of threads shared by Spider queries to fetch the first term and link pages of all shards concurrently;
+    //0 means shards are read sequentially (default: 16)
+    public int search_link_thread_count = 16;
+    //maximum number of term and link pages that the iterators of one Spider query read ahead at once (default: 16)
+    public int search_max_prefetches_per_query = 16;
     //if count of linked objects (sub-query results) exceeds this limit in Link query creation, scanning is applied
     public int search_max_linked_objects = 100000;
-    //number of threads that search uses simultaneously to execute OR queries and SearchPlan checks.
+    //number of threads that search uses simultaneously to execute OR queries and SearchPlan checks,
+    //also the total number of threads that OLAP queries use to process shards in parallel.
     //0 means no thread pool (default: 32)
     public int search_worker_pool_size = 32;
+    //order the clauses of AND queries by their estimated number of objects (default: true)
+    public boolean search_planner_enable = true;
+    //an indexed AND clause estimated at this many times the smallest one or more is checked as a filter
+    //instead of being intersected; 0 means clauses are always intersected (default: 100)
+    public int search_planner_filter_ratio = 100;
+    //size of the scalar values cached for every entity category of a Spider query or aggregate (default: 50)
+    public int search_scalar_cache_size_mb = 50;
+    //maximum number of objects counted per term row to estimate the size of a term (default: 1000)
+    public int search_term_statistics_limit = 1000;
+    //size of the cache of the term size estimates (default: 10)
+    public int search_term_statistics_cache_size_mb = 10;
 
     // Thrift timeout and retry values (see documentation in YAML file):
     public int db_timeout_millis = DEFAULT_DB_TIMEOUT_MILLIS;
@@ -256,12 +271,44 @@ public class ServerConfig {
     public Map<String, Object> olap_cf_defaults = new HashMap<>();
     public int olap_loaded_segments = 30;
     public boolean olap_internal_compression = true;
+    //codec of new OLAP data chunks: none, gzip or lz4; if not set, gzip is used if olap_internal_compression is set
+    //(other codecs than none require olap_internal_compression)
+    public String olap_compression_codec = null;
     public int olap_cache_size_mb = 100;
     public int olap_file_cache_size_mb = 100;
+    public int olap_uncompressed_cache_size_mb = 100;
+    //where OLAP data is stored: cassandra, or mmap for memory-mapped files in olap_storage_dir
+    public String olap_storage = "cassandra";
+    public String olap_storage_dir = "olap-data";
+    //write .doc and .pos files as fixed-width ints rather than VInts, so they load by bulk copies
+    public boolean olap_fixed_width_layout = true;
     public int olap_query_cache_size_mb = 100;
+    //size of the cache of the ids and junction values found in the xshards by xlink queries
+    public int olap_xlink_cache_size_mb = 100;
+    //memory estimate of the documents of a JSON batch indexed in one segment; larger batches are split (0: no limit)
+    public int olap_builder_memory_mb = 256;
+    //number of threads merging the fields of one shard in parallel (1: sequential)
+    public int olap_merge_threads = 4;
+    //memory estimate of the field merges running at once in all the merges of this node (0: no limit)
+    public int olap_merge_memory_mb = 512;
+    //text fields of a merged cube with at most this number of distinct values get a Bloom filter used to skip shards (0: none)
+    public int olap_bloom_filter_max_values = 10000;
+    //number of most requested fields of a shard loaded in a merged cube before it is published, and at start (0: none)
+    public int olap_warmup_fields = 20;
+    //maximum number of threads (including the request thread) used by one OLAP query to process shards in parallel.
+    //Threads are taken from the search_worker_pool_size pool (default: 8)
+    public int olap_search_threads_per_query = 8;
+    //number of documents in a segment starting from which aggregation scans the segment in parallel chunks (default: 1000000)
+    public int olap_parallel_aggregation_threshold = 1000000;
+    //number of fork/join threads scanning segment chunks; 0 means number of processors (default: 0)
+    public int olap_aggregation_threads = 0;
     
     // Temporary until CQL is fully adopted
     public boolean use_cql = false;
+    //CQL: maximum number of asynchronous requests in flight to the Cassandra cluster (default: 256)
+    public int cql_max_requests = 256;
+    //CQL: maximum number of row keys of one IN query; larger row sets are read by concurrent queries (default: 100)
+    public int cql_row_set_batch_size = 100;
     
     //
     // search configuration properties
@@ -16,26 +16,85 @@
 
 package com.dell.doradus.olap;
 
-import com.dell.doradus.search.util.LRUSizeCache;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.dell.doradus.search.util.ConcurrentSizeCache;
 
 public class FieldsCache {
-	private LRUSizeCache<String, Object> m_FieldsCache;
-	
+	private ConcurrentSizeCache<String, Object> m_FieldsCache;
+	// requests of the fields of every shard since they were last ranked, by shard and field
+	private ConcurrentHashMap<String, ConcurrentHashMap<String, AtomicInteger>> m_requests =
+			new ConcurrentHashMap<String, ConcurrentHashMap<String, AtomicInteger>>();
+
 	public FieldsCache(long totalSizeInBytes) {
-		m_FieldsCache = new LRUSizeCache<String, Object>(1024 * 1024, totalSizeInBytes);
+		m_FieldsCache = new ConcurrentSizeCache<String, Object>(totalSizeInBytes);
 	}
-	
+
 	public Object get(String key) {
-		synchronized (m_FieldsCache) {
-			return m_FieldsCache.get(key);
-		}
+		return m_FieldsCache.get(key);
+	}
+
+	// loads the field if it is not cached; concurrent requests of the same field wait for one load
+	public Object get(String key, ConcurrentSizeCache.Loader<Object> loader) {
+		return m_FieldsCache.get(key, loader);
+	}
+
+	// loads the field if it is not cached, as a field expected to be requested the given number of times
+	public Object get(String key, ConcurrentSizeCache.Loader<Object> loader, int expectedRequests) {
+		return m_FieldsCache.get(key, loader, expectedRequests);
 	}
 
 	public void put(String key, Object value, long size) {
-		synchronized (m_FieldsCache) {
-			m_FieldsCache.put(key, value, size);
+		m_FieldsCache.put(key, value, size);
+	}
+
+	public long storageSize() { return m_FieldsCache.storageSize(); }
+
+	public long totalSize() { return m_FieldsCache.totalSize(); }
+
+	// counts a request of the field of the shard; fields are named as in CubeSearcher.warmUp
+	public void addRequest(String shard, String field) {
+		ConcurrentHashMap<String, AtomicInteger> requests = m_requests.get(shard);
+		if(requests == null) {
+			requests = new ConcurrentHashMap<String, AtomicInteger>();
+			ConcurrentHashMap<String, AtomicInteger> other = m_requests.putIfAbsent(shard, requests);
+			if(other != null) requests = other;
+		}
+		AtomicInteger count = requests.get(field);
+		if(count == null) {
+			count = new AtomicInteger();
+			AtomicInteger other = requests.putIfAbsent(field, count);
+			if(other != null) count = other;
+		}
+		count.incrementAndGet();
+	}
+
+	/**
+	 * Returns up to maxCount fields of the shard, with their numbers of requests, most requested first.
+	 * Counts are then halved, so that fields no longer requested are forgotten after a few rankings.
+	 */
+	public List<Map.Entry<String, Integer>> rankRequests(String shard, int maxCount) {
+		List<Map.Entry<String, Integer>> ranking = new ArrayList<Map.Entry<String, Integer>>();
+		ConcurrentHashMap<String, AtomicInteger> requests = m_requests.get(shard);
+		if(requests == null) return ranking;
+		for(Map.Entry<String, AtomicInteger> e : requests.entrySet()) {
+			int count = e.getValue().get();
+			if(count > 0) ranking.add(new AbstractMap.SimpleEntry<String, Integer>(e.getKey(), count));
+			if(e.getValue().addAndGet(-(count + 1) / 2) <= 0) requests.remove(e.getKey(), e.getValue());
 		}
+		Collections.sort(ranking, new Comparator<Map.Entry<String, Integer>>() {
+			@Override public int compare(Map.Entry<String, Integer> x, Map.Entry<String, Integer> y) {
+				return Integer.compare(y.getValue(), x.getValue());
+			}
+		});
+		return ranking.size() > maxCount ? new ArrayList<Map.Entry<String, Integer>>(ranking.subList(0, maxCount)) : ranking;
 	}
 
-	
 }
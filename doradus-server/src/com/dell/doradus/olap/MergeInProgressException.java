@@ -0,0 +1,31 @@
+/*
+ * Copyright (C) 2014 Dell, Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dell.doradus.olap;
+
+/**
+ * Thrown when a shard is asked to be merged while another request is merging it.
+ * It is an IllegalArgumentException, as before, so that REST callers still get a bad request.
+ */
+public class MergeInProgressException extends IllegalArgumentException {
+	// to supress a warning
+	private static final long serialVersionUID = 1L;
+
+	public MergeInProgressException(String key) {
+		super(key + " is being merged");
+	}
+	
+}
@@ -16,10 +16,13 @@
 
 package com.dell.doradus.olap;
 
+import java.io.Reader;
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 
@@ -38,11 +41,14 @@ import com.dell.doradus.olap.aggregate.AggregationResult;
 import com.dell.doradus.olap.aggregate.DuplicationDetection;
 import com.dell.doradus.olap.aggregate.mr.MFAggregationBuilder;
 import com.dell.doradus.olap.builder.SegmentBuilder;
+import com.dell.doradus.olap.builder.SpillingSegmentBuilder;
+import com.dell.doradus.olap.io.Compressor;
 import com.dell.doradus.olap.io.FileDeletedException;
 import com.dell.doradus.olap.io.VDirectory;
 import com.dell.doradus.olap.merge.MergeResult;
 import com.dell.doradus.olap.merge.Merger;
 import com.dell.doradus.olap.search.Searcher;
+import com.dell.doradus.olap.search.ShardPruner;
 import com.dell.doradus.olap.store.CubeSearcher;
 import com.dell.doradus.olap.store.SegmentStats;
 import com.dell.doradus.olap.xlink.XLinkContext;
@@ -139,6 +145,7 @@ public class Olap {
 		String prefix = overwrite ? "" : ".before.";
 		String guid = prefix + Long.toString(System.currentTimeMillis(), 32) + "-" + UUID.randomUUID().toString();
 		VDirectory segmentDir = shardDir.getDirectory(guid);
+		segmentDir.setCodec(Compressor.getCodec(appDef));
 		batch.flushSegment(appDef, segmentDir);
 		segmentDir.create();
 		LOG.debug("add {} objects to {}/{} in {}", new Object[] { batch.documents.size(), application, shard, t} );
@@ -156,6 +163,7 @@ public class Olap {
 		String prefix = overwrite ? "" : ".before.";
 	    String guid = prefix + Long.toString(System.currentTimeMillis(), 32) + "-" + UUID.randomUUID().toString();
 	    VDirectory segmentDir = shardDir.getDirectory(guid);
+	    segmentDir.setCodec(Compressor.getCodec(appDef));
         SegmentBuilder builder = new SegmentBuilder(appDef);
         builder.add(batch);
         builder.flush(segmentDir);
@@ -164,6 +172,29 @@ public class Olap {
 	    return guid;
 	}
 	
+	// Indexes the batch described in JSON as it is parsed. If the batch does not fit in
+	// olap_builder_memory_mb, it is stored in several segments named by the returned guid.
+	public String addSegment(ApplicationDefinition appDef, String shard, Reader reader, boolean overwrite) {
+	    Timer t = new Timer();
+	    String application = appDef.getAppName();
+	    VDirectory shardDir = m_root.getDirectoryCreate(application).getDirectoryCreate(shard);
+		String prefix = overwrite ? "" : ".before.";
+	    String guid = prefix + Long.toString(System.currentTimeMillis(), 32) + "-" + UUID.randomUUID().toString();
+	    long memoryLimit = ServerConfig.getInstance().olap_builder_memory_mb * 1024L * 1024;
+	    SpillingSegmentBuilder builder = new SpillingSegmentBuilder(appDef, shardDir, guid, memoryLimit);
+	    boolean committed = false;
+	    try {
+	    	OlapBatch.parseJSON(reader, builder);
+	    	builder.commit();
+	    	committed = true;
+	    } finally {
+	    	if(!committed) builder.abort();
+	    }
+	    LOG.debug("add {} objects in {} segments to {}/{} in {}",
+	    		new Object[] { builder.getDocumentsCount(), builder.getRunsCount(), application, shard, t} );
+	    return guid;
+	}
+	
 	public AggregationResult aggregate(String application, String table, OlapAggregate olapAggregate) {
 		AggregationRequestData requestData = olapAggregate.createRequestData(this, application, table);
 		AggregationRequest aggregationRequest = new AggregationRequest(this, requestData);
@@ -171,23 +202,24 @@ public class Olap {
 		return result;
 	}
 
-	public SearchResultList search(String application, String table, OlapQuery olapQuery) {
+	public SearchResultList search(final String application, String table, final OlapQuery olapQuery) {
 		olapQuery.fixPairParameter();
 		ApplicationDefinition appDef = getApplicationDefinition(application);
-		TableDefinition tableDef = appDef.getTableDef(table);
+		final TableDefinition tableDef = appDef.getTableDef(table);
 		if(tableDef == null) throw new IllegalArgumentException("Table " + table + " does not exist");
-    	Query query = DoradusQueryBuilder.Build(olapQuery.getQuery(), tableDef);
-    	FieldSet fieldSet = new FieldSet(tableDef, olapQuery.getFieldSet());
+    	final Query query = DoradusQueryBuilder.Build(olapQuery.getQuery(), tableDef);
+    	final FieldSet fieldSet = new FieldSet(tableDef, olapQuery.getFieldSet());
     	fieldSet.expand();
-    	SortOrder sortOrder = AggregationQueryBuilder.BuildSortOrder(olapQuery.getSortOrder(), tableDef);
-		List<SearchResultList> results = new ArrayList<SearchResultList>();
+    	final SortOrder sortOrder = AggregationQueryBuilder.BuildSortOrder(olapQuery.getSortOrder(), tableDef);
 		List<String> shardsList = olapQuery.getShards(application, this); 
 		List<String> xshardsList = olapQuery.getXShards(application, this); 
     	XLinkContext xcontext = new XLinkContext(application, this, xshardsList, tableDef);
     	xcontext.setupXLinkQuery(tableDef, query);
-		for(String shard : shardsList) {
-			results.add(search(application, shard, tableDef, query, fieldSet, olapQuery, sortOrder));
-		}
+		List<SearchResultList> results = ShardExecutor.execute(shardsList, new ShardExecutor.ShardTask<SearchResultList>() {
+			@Override public SearchResultList execute(String shard) {
+				return search(application, shard, tableDef, query, fieldSet, olapQuery, sortOrder);
+			}
+		});
 		SearchResultList result = MergeResult.merge(results, fieldSet);
 		if(olapQuery.getSkip() > 0) {
 			int sz = result.results.size();
@@ -201,6 +233,12 @@ public class Olap {
 		for(int i = 0; i < 2; i++) {
 			try {
 				CubeSearcher s = getSearcher(application, shard, getCubeSegment(application, shard));
+				// shards whose statistics exclude the query are skipped without loading their fields
+				if(!ShardPruner.mayMatch(s, tableDef, query)) {
+					SearchResultList empty = new SearchResultList();
+					empty.documentsCount = 0;
+					return empty;
+				}
 				SearchResultList result = Searcher.search(s, tableDef, query, fieldSet, olapQuery.getPageSizeWithSkip(), sortOrder);
 				for(SearchResult sr: result.results) {
 					sr.scalars.put("_shard", shard);
@@ -219,7 +257,7 @@ public class Olap {
 	public void merge(String application, String shard) {
 		String key = application + "/" + shard;
 		synchronized(m_mergedCubes) {
-			if(m_mergedCubes.contains(key)) throw new IllegalArgumentException(key + " is being merged");
+			if(m_mergedCubes.contains(key)) throw new MergeInProgressException(key);
 			m_mergedCubes.add(key);
 		}
 		try {
@@ -229,23 +267,7 @@ public class Olap {
 			List<String> segments = shardDir.listDirectories();
 			if(segments.size() == 0) return;
 			
-			List<VDirectory> sources = new ArrayList<VDirectory>();
-			for(String segment : segments) {
-				sources.add(shardDir.getDirectory(segment));
-			}
-			
-			String guid = ".cube." + UUID.randomUUID().toString();
-			VDirectory destination = shardDir.getDirectory(guid);
-			
-			Merger.mergeApplication(appDef, sources, destination);
-			
-			shardDir.writeAllText(".cube.txt", guid);
-			
-			destination.create();
-			
-			for(String segment : segments) {
-				shardDir.getDirectory(segment).delete();
-			}
+			mergeCube(appDef, shardDir, segments);
 			
 			LOG.debug("merge {} segments to {}/{} in {}", new Object[]{ segments.size(), application, shard, t} );
 		} finally {
@@ -258,7 +280,7 @@ public class Olap {
 	public void merge(String application, String shard, Date expirationDate) {
 		String key = application + "/" + shard;
 		synchronized(m_mergedCubes) {
-			if(m_mergedCubes.contains(key)) throw new IllegalArgumentException(key + " is being merged");
+			if(m_mergedCubes.contains(key)) throw new MergeInProgressException(key);
 			m_mergedCubes.add(key);
 		}
 		try {
@@ -277,25 +299,38 @@ public class Olap {
 				return;
 			}
 			
-			List<VDirectory> sources = new ArrayList<VDirectory>();
-			for(String segment : segments) {
-				sources.add(shardDir.getDirectory(segment));
-			}
-			
-			String guid = ".cube." + UUID.randomUUID().toString();
-			VDirectory destination = shardDir.getDirectory(guid);
-			
-			Merger.mergeApplication(appDef, sources, destination);
-			
-			shardDir.writeAllText(".cube.txt", guid);
+			mergeCube(appDef, shardDir, segments);
 			
-			destination.create();
-			
-			for(String segment : segments) {
-				shardDir.getDirectory(segment).delete();
+			LOG.debug("merge {} segments to {}/{} in {}", new Object[]{ segments.size(), application, shard, t} );
+		} finally {
+			synchronized(m_mergedCubes) {
+				m_mergedCubes.remove(key);
 			}
-			
+		}
+	}
+	
+	// Merge run by the olap-merge task: the cube is rebuilt whenever the shard has batches
+	// that are not merged into it yet, so that they are visible from the next merge on.
+	// Returns true if the cube was rebuilt.
+	public boolean mergePending(String application, String shard) {
+		String key = application + "/" + shard;
+		synchronized(m_mergedCubes) {
+			if(m_mergedCubes.contains(key)) throw new MergeInProgressException(key);
+			m_mergedCubes.add(key);
+		}
+		try {
+			Timer t = new Timer();
+			ApplicationDefinition appDef = getApplicationDefinition(application);
+			VDirectory shardDir = m_root.getDirectory(application).getDirectory(shard);
+			List<String> segments = shardDir.listDirectories();
+			String cube = getCubeSegment(application, shard);
+			if(segments.size() == 0 || (segments.size() == 1 && segments.get(0).equals(cube))) {
+				LOG.debug("Shard {}/{} has no pending segments", application, shard);
+				return false;
+			}
+			mergeCube(appDef, shardDir, segments);
 			LOG.debug("merge {} segments to {}/{} in {}", new Object[]{ segments.size(), application, shard, t} );
+			return true;
 		} finally {
 			synchronized(m_mergedCubes) {
 				m_mergedCubes.remove(key);
@@ -303,6 +338,103 @@ public class Olap {
 		}
 	}
 	
+	// merges the segments into a new cube, and deletes them
+	private void mergeCube(ApplicationDefinition appDef, VDirectory shardDir, List<String> segments) {
+		List<VDirectory> sources = new ArrayList<VDirectory>();
+		for(String segment : segments) {
+			sources.add(shardDir.getDirectory(segment));
+		}
+		
+		String guid = ".cube." + UUID.randomUUID().toString();
+		VDirectory destination = shardDir.getDirectory(guid);
+		// segments are re-encoded with the current codec of the application
+		destination.setCodec(Compressor.getCodec(appDef));
+		
+		Merger.mergeApplication(appDef, sources, destination);
+		
+		// the first queries of the new cube should not pay for loading the fields used all the time
+		long budget = m_fieldsCache.totalSize() / 2;
+		warmUp(appDef.getAppName(), shardDir, guid, getWarmUpFields(shardDir), budget);
+		
+		shardDir.writeAllText(".cube.txt", guid);
+		
+		destination.create();
+		
+		for(String segment : segments) {
+			shardDir.getDirectory(segment).delete();
+		}
+	}
+	
+	// Fields to load in a new cube of the shard: the ones most requested since the previous merge,
+	// with their numbers of requests. They are saved in warmup.txt so that they are also loaded
+	// at server start; if the shard was not queried since, the saved fields are used again.
+	private List<Map.Entry<String, Integer>> getWarmUpFields(VDirectory shardDir) {
+		int maxFields = ServerConfig.getInstance().olap_warmup_fields;
+		if(maxFields <= 0) return new ArrayList<Map.Entry<String, Integer>>();
+		List<Map.Entry<String, Integer>> fields = m_fieldsCache.rankRequests(shardDir.getRow(), maxFields);
+		if(fields.size() == 0) return readWarmUpFields(shardDir);
+		StringBuilder text = new StringBuilder();
+		for(Map.Entry<String, Integer> field : fields) {
+			text.append(field.getKey()).append('=').append(field.getValue()).append('\n');
+		}
+		shardDir.writeAllText("warmup.txt", text.toString());
+		return fields;
+	}
+	
+	private static List<Map.Entry<String, Integer>> readWarmUpFields(VDirectory shardDir) {
+		List<Map.Entry<String, Integer>> fields = new ArrayList<Map.Entry<String, Integer>>();
+		if(!shardDir.fileExists("warmup.txt")) return fields;
+		for(String line : Utils.split(shardDir.readAllText("warmup.txt"), '\n')) {
+			int index = line.lastIndexOf('=');
+			if(index <= 0) continue;
+			try {
+				fields.add(new AbstractMap.SimpleEntry<String, Integer>(line.substring(0, index), Integer.parseInt(line.substring(index + 1))));
+			} catch(NumberFormatException e) {
+				continue;
+			}
+		}
+		return fields;
+	}
+	
+	// Loads the fields in the fields cache for the given cube, until they take 'budget' bytes,
+	// and caches the searcher of the cube. Returns the size of the loaded fields. Errors are
+	// only logged: a cube that is not warmed up is just slower to query.
+	private long warmUp(String application, VDirectory shardDir, String cube, List<Map.Entry<String, Integer>> fields, long budget) {
+		if(fields.size() == 0 || budget <= 0) return 0;
+		Timer t = new Timer();
+		long size = 0;
+		int count = 0;
+		try {
+			CubeSearcher searcher = getSearcher(application, shardDir.getName(), cube);
+			for(Map.Entry<String, Integer> field : fields) {
+				if(size >= budget) break;
+				size += searcher.warmUp(field.getKey(), field.getValue());
+				count++;
+			}
+			LOG.debug("warm up {} fields of {}/{} ({} bytes) in {}", new Object[] { count, application, shardDir.getName(), size, t });
+		} catch(RuntimeException e) {
+			LOG.warn("Warm-up of " + application + "/" + shardDir.getName() + " failed", e);
+		}
+		return size;
+	}
+	
+	// Loads the fields saved by the last merge of every shard, until half of the fields cache is used
+	public void warmUp() {
+		if(ServerConfig.getInstance().olap_warmup_fields <= 0) return;
+		Timer t = new Timer();
+		long budget = m_fieldsCache.totalSize() / 2;
+		for(String application : m_root.listDirectories()) {
+			for(String shard : listShards(application)) {
+				if(budget <= 0) break;
+				VDirectory shardDir = m_root.getDirectory(application).getDirectory(shard);
+				String cube = getCubeSegment(application, shard);
+				if(cube == null) continue;
+				budget -= warmUp(application, shardDir, cube, readWarmUpFields(shardDir), budget);
+			}
+		}
+		LOG.info("Warm-up of OLAP shards took {}; fields cache holds {} bytes", t, m_fieldsCache.storageSize());
+	}
+	
 	public Date getExpirationDate(String application, String shard) {
 		VDirectory shardDir = m_root.getDirectory(application).getDirectory(shard);
 		if(!shardDir.fileExists("expiration.txt")) return null;
@@ -312,17 +444,21 @@ public class Olap {
 	}
 	
 	private CubeSearcher getSearcher(String app, String shard, String segment) {
+		String key = app + "/" + shard + "/" + segment;
 		synchronized(m_cachedSearchers) {
-			String key = app + "/" + shard + "/" + segment;
 			CubeSearcher s = m_cachedSearchers.get(key);
-			if(s == null) {
-				VDirectory dir = m_root.getDirectory(app);
-				dir = dir.getDirectory(shard);
-				dir = dir.getDirectory(segment);
-				s = new CubeSearcher(dir, m_fieldsCache);
-				//m_cachedSearchers.put(key, s, s.getStats().memory() + 2 * key.length() + 16);
-				m_cachedSearchers.put(key, s);
-			}
+			if(s != null) return s;
+		}
+		// load segment stats outside of the lock so that shards of a parallel query can be opened concurrently
+		VDirectory dir = m_root.getDirectory(app);
+		dir = dir.getDirectory(shard);
+		dir = dir.getDirectory(segment);
+		CubeSearcher s = new CubeSearcher(dir, m_fieldsCache);
+		synchronized(m_cachedSearchers) {
+			CubeSearcher cached = m_cachedSearchers.get(key);
+			if(cached != null) return cached;
+			//m_cachedSearchers.put(key, s, s.getStats().memory() + 2 * key.length() + 16);
+			m_cachedSearchers.put(key, s);
 			return s;
 		}
 	}
@@ -27,6 +27,7 @@ import com.dell.doradus.common.JSONAnnie;
 import com.dell.doradus.common.UNode;
 import com.dell.doradus.common.Utils;
 import com.dell.doradus.olap.builder.SegmentBuilder;
+import com.dell.doradus.olap.builder.SpillingSegmentBuilder;
 import com.dell.doradus.olap.io.VDirectory;
 
 public class OlapBatch {
@@ -69,6 +70,9 @@ public class OlapBatch {
     //        ]
     //     }}
 	//
+	// Values of "remove" arrays are ignored, since segments only add values.
+	//
+	// Each document is passed to onDocument() once its "doc" object is parsed.
 	static class Listener implements JSONAnnie.SajListener {
 	    OlapBatch result = new OlapBatch();
 	    OlapDocument document;
@@ -76,6 +80,7 @@ public class OlapBatch {
 	    Set<String> values = new HashSet<String>();
 	    int level = 0;   // 0=batch object, 1=docs array, 2=doc object, 3+=field object
 	    boolean bInArray = false;
+	    boolean bRemove = false;
 
         @Override
         public void onStartObject(String name) {
@@ -90,7 +95,6 @@ public class OlapBatch {
             case 2:     // doc object
                 Utils.require(name.equals("doc"), "'doc' object expected: " + name);
                 document = new OlapDocument(); 
-                result.documents.add(document);
                 level++;
                 break;
             default:     // outer or nested field
@@ -102,8 +106,16 @@ public class OlapBatch {
 
         @Override
         public void onEndObject() {
-            level--;
+            if (--level == 2) {
+                onDocument(document);   // just finished a "doc" object
+                document = null;
+            }
         }   // onEndObject
+        
+        // Called for each parsed document; adds it to the result batch.
+        void onDocument(OlapDocument document) {
+            result.documents.add(document);
+        }   // onDocument
 
         @Override
         public void onStartArray(String name) {
@@ -112,11 +124,12 @@ public class OlapBatch {
                 Utils.require(name.equals("docs"), "'docs' array expected: " + name);
                 level++;
             } else if (level >= 3) {
-                // Must be "add" node for MV field.
-                Utils.require(name.equals("add"), "Unrecognized array start: " + name);
+                // Must be "add" or "remove" node for MV field.
+                Utils.require(name.equals("add") || name.equals("remove"), "Unrecognized array start: " + name);
                 values.clear();
                 level++;
                 bInArray = true;
+                bRemove = name.equals("remove");
             } else {
                 // Level is 0 (batch) or 2 (doc), where an array is unexpected
                 Utils.require(false, "Unexpected array start: " + name);
@@ -127,7 +140,7 @@ public class OlapBatch {
         public void onEndArray() {
             level--;
             bInArray = false;
-            if (level >= 3) {
+            if (level >= 3 && !bRemove) {
                 // Just finished "add" array for an MV field.
                 for (String value : values) {
                     addValue(field, value);
@@ -180,6 +193,17 @@ public class OlapBatch {
 	    return listener.result;
 	}
 	
+	// Uses SajListener to parse data from a Reader, passing each document to the builder
+	// as soon as it is parsed rather than collecting the documents into an OlapBatch
+	public static void parseJSON(Reader reader, final SpillingSegmentBuilder builder) {
+	    Listener listener = new Listener() {
+	        @Override void onDocument(OlapDocument document) {
+	            builder.add(document);
+	        }
+	    };
+	    new JSONAnnie(reader).parse(listener);
+	}
+	
 	public OlapDocument addDoc(String table, String id) {
 		OlapDocument doc = new OlapDocument(table, id);
 		documents.add(doc);
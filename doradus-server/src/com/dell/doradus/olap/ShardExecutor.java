@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2014 Dell, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dell.doradus.olap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.dell.doradus.core.ServerConfig;
+
+/**
+ * Executes per-shard parts of OLAP search and aggregate requests in parallel.
+ * <p>
+ * All requests share one worker pool of <code>search_worker_pool_size</code> threads
+ * (the global cap; 0 means shards are processed sequentially on the calling thread).
+ * A single request never occupies more than <code>olap_search_threads_per_query</code>
+ * threads, including the calling thread, which takes part in the processing too:
+ * this way a request always makes progress even if all pool threads are busy.
+ * Results are returned in the order of the shards list.
+ * <p>
+ * The same fan-out, over a pool given by the caller, is used by the Spider ShardFetcher.
+ */
+public class ShardExecutor {
+
+	/**
+	 * Part of a request executed for one key, such as a shard.
+	 */
+	public interface Task<K, V> {
+		public V execute(K key);
+	}
+
+	public interface ShardTask<T> extends Task<String, T> {
+		public T execute(String shard);
+	}
+
+	private static ExecutorService m_pool;
+
+	private static synchronized ExecutorService getPool() {
+		if(m_pool == null) {
+			m_pool = newPool(ServerConfig.getInstance().search_worker_pool_size, "OlapShardWorker");
+		}
+		return m_pool;
+	}
+
+	/**
+	 * Creates a pool of daemon threads named prefix-N, which stop when they are idle;
+	 * returns null if threads is not positive.
+	 */
+	public static ExecutorService newPool(int threads, final String prefix) {
+		if(threads <= 0) return null;
+		final AtomicInteger counter = new AtomicInteger();
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+					@Override public Thread newThread(Runnable r) {
+						Thread t = new Thread(r, prefix + "-" + counter.incrementAndGet());
+						t.setDaemon(true);
+						return t;
+					}
+				});
+		pool.allowCoreThreadTimeOut(true);
+		return pool;
+	}
+
+	public static <T> List<T> execute(List<String> shards, ShardTask<T> task) {
+		int parallelism = Math.min(shards.size(), ServerConfig.getInstance().olap_search_threads_per_query);
+		return execute(parallelism > 1 ? getPool() : null, parallelism, shards, task);
+	}
+
+	/**
+	 * Executes the task for every key, on at most 'parallelism' threads of the pool, the
+	 * calling thread included; sequentially on the calling thread if the pool is null.
+	 * Results are returned in the order of the keys. The first failure is thrown once all
+	 * keys being processed are done; the keys that remain are skipped.
+	 */
+	public static <K, V> List<V> execute(ExecutorService pool, int parallelism, final List<K> keys, final Task<K, V> task) {
+		parallelism = Math.min(parallelism, keys.size());
+		if(pool == null || parallelism <= 1) {
+			List<V> results = new ArrayList<V>(keys.size());
+			for(K key : keys) {
+				results.add(task.execute(key));
+			}
+			return results;
+		}
+
+		@SuppressWarnings("unchecked")
+		final V[] results = (V[])new Object[keys.size()];
+		final AtomicInteger next = new AtomicInteger();
+		final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+		final CountDownLatch done = new CountDownLatch(keys.size());
+
+		// after a failure the remaining keys are only counted down, not processed
+		final Runnable worker = new Runnable() {
+			@Override public void run() {
+				int index;
+				while((index = next.getAndIncrement()) < results.length) {
+					try {
+						if(error.get() == null) results[index] = task.execute(keys.get(index));
+					} catch(Throwable e) {
+						error.compareAndSet(null, e);
+					} finally {
+						done.countDown();
+					}
+				}
+			}
+		};
+
+		for(int i = 0; i < parallelism - 1; i++) {
+			pool.execute(worker);
+		}
+		worker.run();
+
+		// all keys are taken; wait for those still being processed by the workers
+		try {
+			done.await();
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while waiting for shard results", e);
+		}
+
+		Throwable e = error.get();
+		if(e instanceof RuntimeException) throw (RuntimeException)e;
+		if(e instanceof Error) throw (Error)e;
+		if(e != null) throw new RuntimeException(e);
+		return Arrays.asList(results);
+	}
+
+}
@@ -17,11 +17,16 @@
 package com.dell.doradus.olap.aggregate.mr;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.dell.doradus.core.ServerConfig;
 import com.dell.doradus.olap.Olap;
+import com.dell.doradus.olap.ShardExecutor;
 import com.dell.doradus.olap.aggregate.AggregationRequest;
 import com.dell.doradus.olap.aggregate.AggregationResult;
 import com.dell.doradus.olap.aggregate.MetricCollectorFactory;
@@ -33,16 +38,25 @@ import com.dell.doradus.olap.collections.BdLongSet;
 import com.dell.doradus.olap.io.FileDeletedException;
 import com.dell.doradus.olap.search.Result;
 import com.dell.doradus.olap.search.ResultBuilder;
+import com.dell.doradus.olap.search.ShardPruner;
 import com.dell.doradus.olap.store.CubeSearcher;
 import com.dell.doradus.search.aggregate.AggregationGroup;
 
 public class MFAggregationBuilder {
     private static Logger LOG = LoggerFactory.getLogger("MFAggregationBuilder");
+    // smallest number of documents scanned by one fork/join task
+    private static final int MIN_CHUNK_SIZE = 64 * 1024;
+    private static ForkJoinPool m_pool;
 	
-	public static AggregationResult aggregate(Olap olap, AggregationRequest request) {
+	public static AggregationResult aggregate(final Olap olap, final AggregationRequest request) {
+		for(AggregationRequest.Part p : request.parts) if(p.groups == null) p.groups=new ArrayList<AggregationGroup>();
+		List<AggregationCollector> collectors = ShardExecutor.execute(request.shards, new ShardExecutor.ShardTask<AggregationCollector>() {
+			@Override public AggregationCollector execute(String shard) {
+				return aggregate(olap, request.application, shard, request);
+			}
+		});
 		AggregationCollector collector = null;
-		for(String shard: request.shards) {
-			AggregationCollector agg = aggregate(olap, request.application, shard, request);
+		for(AggregationCollector agg : collectors) {
 			if(collector == null) collector = agg;
 			else collector.merge(agg);
 		}
@@ -56,6 +70,7 @@ public class MFAggregationBuilder {
 		for(int i = 0; i < 2; i++) {
 			try {
 				CubeSearcher searcher = olap.getSearcher(application, shard);
+				if(!mayMatch(searcher, request)) return new AggregationCollector(0);
 				return aggregate(searcher, request);
 			}catch(FileDeletedException ex) {
 				LOG.warn(ex.getMessage() + " - retrying: " + i);
@@ -66,22 +81,22 @@ public class MFAggregationBuilder {
 		return aggregate(searcher, request);
 	}
 	
+	// shards whose statistics exclude the queries of all the parts are skipped without loading their fields
+	private static boolean mayMatch(CubeSearcher searcher, AggregationRequest request) {
+		for(AggregationRequest.Part part : request.parts) {
+			if(ShardPruner.mayMatch(searcher, request.tableDef, part.query)) return true;
+		}
+		return false;
+	}
+	
 	public static AggregationCollector aggregate(CubeSearcher searcher, AggregationRequest request) {
 		for(AggregationRequest.Part p : request.parts) if(p.groups == null) p.groups=new ArrayList<AggregationGroup>();
 		
-		int groupsCount = request.parts[0].groups == null ? 0 : request.parts[0].groups.size();
-		//if(groupsCount == 0) groupsCount = 1;
-		MetricCollectorSet collectorSet = MetricCollectorFactory.create(searcher, request.metrics);
-		MetricCounterSet counterSet = MetricCounterFactory.create(searcher, request.metrics);
-		
 		Result[] filters = new Result[request.parts.length];
-		MFCollectorSet[] fieldCollectors = new MFCollectorSet[filters.length];
 		for(int i = 0; i < filters.length; i++) {
 			filters[i] = ResultBuilder.search(request.tableDef, request.parts[i].query, searcher);
-			fieldCollectors[i] = new MFCollectorSet(searcher, request.parts[i].groups, filters.length == 1); 
 		}
 		
-		
 		if(request.isOnlyCountStar()) {
 			Result r = filters[0];
 			for(int i = 1; i < filters.length; i++) {
@@ -90,6 +105,35 @@ public class MFAggregationBuilder {
 			AggregationCollector collector = new AggregationCollector(r.countSet());
 			return collector;
 		}
+		
+		// documents matching any of the filters, computed once for all chunks
+		Result any = filters[0];
+		if(filters.length > 1) {
+			any = new Result(filters[0]);
+			for(int i = 1; i < filters.length; i++) any.or(filters[i]);
+		}
+		
+		int docs = filters[0].size();
+		ForkJoinPool pool = docs >= ServerConfig.getInstance().olap_parallel_aggregation_threshold ? getPool() : null;
+		if(pool == null) return aggregate(searcher, request, filters, any, 0, docs);
+		
+		// chunk boundaries are aligned to 64 documents so that chunks never share a word of the filters
+		int chunkSize = (docs / pool.getParallelism() + 63) & ~63;
+		chunkSize = Math.max(chunkSize, MIN_CHUNK_SIZE);
+		return pool.invoke(new ScanTask(searcher, request, filters, any, 0, docs, chunkSize));
+	}
+	
+	// scan documents [startDoc, endDoc) with collectors and counters of its own
+	private static AggregationCollector aggregate(CubeSearcher searcher, AggregationRequest request, Result[] filters, Result any, int startDoc, int endDoc) {
+		int groupsCount = request.parts[0].groups == null ? 0 : request.parts[0].groups.size();
+		//if(groupsCount == 0) groupsCount = 1;
+		MetricCollectorSet collectorSet = MetricCollectorFactory.create(searcher, request.metrics);
+		MetricCounterSet counterSet = MetricCounterFactory.create(searcher, request.metrics);
+		
+		MFCollectorSet[] fieldCollectors = new MFCollectorSet[filters.length];
+		for(int i = 0; i < filters.length; i++) {
+			fieldCollectors[i] = new MFCollectorSet(searcher, request.parts[i].groups, filters.length == 1); 
+		}
 
 		BdLongSet[] sets = new BdLongSet[groupsCount];
 		for(int i = 0; i < groupsCount; i++) {
@@ -114,8 +158,7 @@ public class MFAggregationBuilder {
 			BdLongSet commonSet = new BdLongSet(1024);
 			commonSet.enableClearBuffer();
 			
-			for(int doc = 0; doc < filters[0].size(); doc++) {
-				if(!filters[0].get(doc)) continue;
+			for(int doc = filters[0].nextSetBit(startDoc); doc >= 0 && doc < endDoc; doc = filters[0].nextSetBit(doc + 1)) {
 				valueSet.reset();
 				counterSet.add(doc, valueSet);
 				// common part in groups
@@ -130,7 +173,7 @@ public class MFAggregationBuilder {
 			}
 		}
 		else {
-			for(int doc = 0; doc < filters[0].size(); doc++) {
+			for(int doc = any.nextSetBit(startDoc); doc >= 0 && doc < endDoc; doc = any.nextSetBit(doc + 1)) {
 				boolean collected = false;
 				for(int i = 0; i < filters.length; i++) {
 					if(!filters[i].get(doc)) continue;
@@ -152,5 +195,52 @@ public class MFAggregationBuilder {
 
 		return result;
 	}
+	
+	private static synchronized ForkJoinPool getPool() {
+		if(m_pool == null) {
+			int threads = ServerConfig.getInstance().olap_aggregation_threads;
+			if(threads == 0) threads = Runtime.getRuntime().availableProcessors();
+			if(threads <= 1) return null;
+			m_pool = new ForkJoinPool(threads);
+		}
+		return m_pool;
+	}
+	
+	// splits the range of documents in halves until it fits into one chunk;
+	// partial collectors are merged in document order, the same way results of different shards are merged
+	private static class ScanTask extends RecursiveTask<AggregationCollector> {
+		private static final long serialVersionUID = 1L;
+		
+		private CubeSearcher m_searcher;
+		private AggregationRequest m_request;
+		private Result[] m_filters;
+		private Result m_any;
+		private int m_startDoc;
+		private int m_endDoc;
+		private int m_chunkSize;
+		
+		ScanTask(CubeSearcher searcher, AggregationRequest request, Result[] filters, Result any, int startDoc, int endDoc, int chunkSize) {
+			m_searcher = searcher;
+			m_request = request;
+			m_filters = filters;
+			m_any = any;
+			m_startDoc = startDoc;
+			m_endDoc = endDoc;
+			m_chunkSize = chunkSize;
+		}
+		
+		@Override protected AggregationCollector compute() {
+			if(m_endDoc - m_startDoc <= m_chunkSize) {
+				return aggregate(m_searcher, m_request, m_filters, m_any, m_startDoc, m_endDoc);
+			}
+			int chunks = (m_endDoc - m_startDoc + m_chunkSize - 1) / m_chunkSize;
+			int middle = m_startDoc + chunks / 2 * m_chunkSize;
+			ScanTask right = new ScanTask(m_searcher, m_request, m_filters, m_any, middle, m_endDoc, m_chunkSize);
+			right.fork();
+			AggregationCollector collector = new ScanTask(m_searcher, m_request, m_filters, m_any, m_startDoc, middle, m_chunkSize).compute();
+			collector.merge(right.join());
+			return collector;
+		}
+	}
 
 }
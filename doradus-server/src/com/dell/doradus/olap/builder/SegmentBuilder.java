@@ -81,13 +81,14 @@ public class SegmentBuilder {
 					break;
 				}
 				case TEXT: {
-					ValueWriter term_writer = new ValueWriter(dir, b.table, fieldName);
+					FieldDefinition fieldDef = tableDef.getFieldDef(fieldName);
+					boolean termIndex = fieldDef != null && fieldDef.isTermIndexed();
+					ValueWriter term_writer = new ValueWriter(dir, b.table, fieldName, termIndex);
 					b.fieldBuilders[fieldIndex].flush(term_writer);
 					term_writer.close();
 					FieldWriter pos_writer = new FieldWriter(t.documents);
 					b.documents.flushTextField(fieldIndex, pos_writer);
 					pos_writer.close(dir, b.table, fieldName);
-					FieldDefinition fieldDef = tableDef.getFieldDef(fieldName);
 					stats.addTextField(fieldDef, pos_writer);
 					break;
 				}
@@ -118,8 +119,16 @@ public class SegmentBuilder {
 		return b;
 	}
 
-	private void add(OlapDocument document) {
+	// rough estimate, in bytes, of the memory taken by the documents added so far
+	public long getMemorySize() {
+		long size = 0;
+		for(TableBuilder b : tables.values()) size += b.memorySize;
+		return size;
+	}
+	
+	public void add(OlapDocument document) {
 		Utils.require(document.id != null, "_ID field is not set for a document");
+		Utils.require(document.table != null, "_table field is not set for a document");
 		TableDefinition tableDef = application.getTableDef(document.table);
 		Utils.require(tableDef != null, "Table '" + document.table + "' does not exist");
 		TableBuilder b = getTable(tableDef);
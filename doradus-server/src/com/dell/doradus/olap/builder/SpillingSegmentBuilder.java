@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2014 Dell, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dell.doradus.olap.builder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.dell.doradus.common.ApplicationDefinition;
+import com.dell.doradus.olap.OlapDocument;
+import com.dell.doradus.olap.io.Compressor;
+import com.dell.doradus.olap.io.VDirectory;
+
+/**
+ * Builds the segments of one batch from documents added one at a time, so that the batch
+ * is never held in memory as a whole. When the estimated memory of the current SegmentBuilder
+ * exceeds the limit, it is flushed to a new segment, or run, and a new builder is started.
+ * <p>
+ * The first run is named by the guid of the batch and the next ones by the guid followed by
+ * "-0001", "-0002" and so on, so that they are listed, and merged, in the order in which they
+ * were written, as consecutive batches are. Runs are created only by commit(), so the batch
+ * appears when all of it has been written; abort() deletes the runs already written.
+ */
+public class SpillingSegmentBuilder {
+	private ApplicationDefinition m_application;
+	private VDirectory m_shardDir;
+	private String m_guid;
+	private long m_memoryLimit;
+	private SegmentBuilder m_builder;
+	private int m_builderDocuments = 0;
+	private int m_documents = 0;
+	private List<VDirectory> m_runs = new ArrayList<VDirectory>();
+
+	// memoryLimit: size in bytes of the current builder from which it is flushed; 0 means no limit
+	public SpillingSegmentBuilder(ApplicationDefinition application, VDirectory shardDir, String guid, long memoryLimit) {
+		m_application = application;
+		m_shardDir = shardDir;
+		m_guid = guid;
+		m_memoryLimit = memoryLimit;
+		m_builder = new SegmentBuilder(application);
+	}
+
+	public void add(OlapDocument document) {
+		m_builder.add(document);
+		m_builderDocuments++;
+		m_documents++;
+		if(m_memoryLimit > 0 && m_builder.getMemorySize() > m_memoryLimit) spill();
+	}
+
+	public int getDocumentsCount() { return m_documents; }
+
+	public int getRunsCount() { return m_runs.size(); }
+
+	private void spill() {
+		String name = m_runs.size() == 0 ? m_guid : m_guid + String.format("-%04d", m_runs.size());
+		VDirectory runDir = m_shardDir.getDirectory(name);
+		runDir.setCodec(Compressor.getCodec(m_application));
+		m_runs.add(runDir);
+		m_builder.flush(runDir);
+		m_builder = new SegmentBuilder(m_application);
+		m_builderDocuments = 0;
+	}
+
+	// flushes the remaining documents and makes all the runs visible
+	public void commit() {
+		if(m_builderDocuments > 0 || m_runs.size() == 0) spill();
+		for(VDirectory runDir : m_runs) runDir.create();
+	}
+
+	// deletes the runs already written
+	public void abort() {
+		for(VDirectory runDir : m_runs) runDir.delete();
+		m_runs.clear();
+	}
+
+}
@@ -36,6 +36,8 @@ public class TableBuilder {
 	public FType[] fieldTypes;
 	public String[] fieldNames;
 	public int fieldsCount;
+	// rough estimate, in bytes, of the memory taken by the documents, values and terms
+	public long memorySize;
 	
 	private BSTR bstr = new BSTR();
 	private BSTR orig = new BSTR();
@@ -51,7 +53,10 @@ public class TableBuilder {
 
 	public Doc addDoc(String id) {
 		bstr.set(encoder, id);
-		return documents.add(bstr, fieldsCount);
+		int count = documents.docs.size();
+		Doc doc = documents.add(bstr, fieldsCount);
+		if(documents.docs.size() != count) memorySize += 112 + 2 * bstr.length + 8 * fieldsCount;
+		return doc;
 	}
 	
 	private int getFieldIndex(String field) {
@@ -69,6 +74,7 @@ public class TableBuilder {
 		fieldNames[fieldIndex] = field;
 		
 		doc.addNumField(fieldIndex, value);
+		memorySize += 40;
 	}
 
 	public void addTerm(Doc doc, String field, String term) {
@@ -80,8 +86,11 @@ public class TableBuilder {
 		if(b == null) b = fieldBuilders[fieldIndex] = new FieldBuilder(field);
 		orig.set(encoder, term);
 		bstr.set(encoder, term.toLowerCase());
+		int count = b.terms.size();
 		Term t = b.add(bstr, orig);
+		if(b.terms.size() != count) memorySize += 144 + bstr.length + orig.length;
 		doc.addTextField(fieldIndex, t);
+		memorySize += 16;
 	}
 
 	public void addLink(Doc doc, String field, Doc linkedDoc) {
@@ -90,6 +99,7 @@ public class TableBuilder {
 		fieldNames[fieldIndex] = field;
 		
 		doc.addLinkField(fieldIndex, linkedDoc);
+		memorySize += 16;
 	}
 
 }
@@ -24,6 +24,9 @@ import com.dell.doradus.service.db.DBService;
 import com.dell.doradus.service.db.DBTransaction;
 import com.dell.doradus.service.db.DColumn;
 import com.dell.doradus.service.db.StoreTemplate;
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 
 public class CassandraIO implements IO {
     private static Object g_createCFLock = new Object();
@@ -37,6 +40,15 @@ public class CassandraIO implements IO {
 		return col.getRawValue();
 	}
 
+	// same as getValue, read asynchronously
+	public ListenableFuture<byte[]> getValueAsync(String app, String key, String column) {
+		return Futures.transform(DBService.instance().getColumnAsync(app, key, column), new Function<DColumn, byte[]>() {
+			@Override public byte[] apply(DColumn col) {
+				return col == null ? null : col.getRawValue();
+			}
+		});
+	}
+
 	@Override
 	public List<ColumnValue> get(String app, String key, String prefix) {
 		List<ColumnValue> result = new ArrayList<ColumnValue>();
@@ -0,0 +1,33 @@
+/*
+ * Copyright (C) 2014 Dell, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dell.doradus.olap.io;
+
+import java.nio.ByteBuffer;
+
+/**
+ * IO that stores file chunks itself rather than as compressed column values.
+ * Chunks are passed uncompressed, and are read back as buffers that may be views
+ * of the storage (such as memory-mapped files) rather than copies.
+ * <p>
+ * A file is committed by writing its "File/&lt;name&gt;" length column to the directory row,
+ * after all its chunks are written.
+ */
+public interface ChunkIO extends IO {
+	public void writeChunk(String app, String fileKey, long chunk, byte[] data);
+	// returns null if the file does not exist. Returned buffer is read-only and starts at position 0
+	public ByteBuffer readChunk(String app, String fileKey, long chunk, boolean useCache);
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2014 Dell, Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dell.doradus.olap.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compression algorithm of OLAP file chunks. The id of a codec is stored in the chunk header
+ * (see {@link Compressor}) and must never change.
+ */
+public abstract class Codec {
+	public static final Codec NONE = new None();
+	public static final Codec GZIP = new GZip();
+	public static final Codec LZ4 = new LZ4Codec();
+	
+	private static final Codec[] CODECS = new Codec[] { NONE, GZIP, LZ4 };
+	
+	public abstract int getId();
+	public abstract String getName();
+	public abstract byte[] compress(byte[] data);
+	public abstract byte[] uncompress(byte[] data, int offset, int length);
+	
+	@Override public String toString() { return getName(); }
+	
+	/**
+	 * @return codec with the given name (case-insensitive), or null if there is no such codec
+	 */
+	public static Codec forName(String name) {
+		for(Codec codec : CODECS) {
+			if(codec.getName().equalsIgnoreCase(name)) return codec;
+		}
+		return null;
+	}
+	
+	public static Codec forId(int id) {
+		for(Codec codec : CODECS) {
+			if(codec.getId() == id) return codec;
+		}
+		throw new IllegalArgumentException("Unknown compression codec: " + id);
+	}
+	
+	public static class None extends Codec {
+		@Override public int getId() { return 0; }
+		@Override public String getName() { return "none"; }
+		@Override public byte[] compress(byte[] data) { return data; }
+		@Override public byte[] uncompress(byte[] data, int offset, int length) {
+			byte[] output = new byte[length];
+			System.arraycopy(data, offset, output, 0, length);
+			return output;
+		}
+	}
+	
+	public static class GZip extends Codec {
+		@Override public int getId() { return 1; }
+		@Override public String getName() { return "gzip"; }
+		
+		@Override public byte[] compress(byte[] data) {
+			try{
+				ByteArrayOutputStream baos = new ByteArrayOutputStream();
+				GZIPOutputStream gos = new GZIPOutputStream(baos);
+				gos.write(data, 0, data.length);
+				gos.close();
+				byte[] output = baos.toByteArray();
+				return output;
+	        } catch(IOException e) {
+	            throw new RuntimeException(e.getMessage(), e);
+	        }
+		}
+		
+		@Override public byte[] uncompress(byte[] data, int offset, int length) {
+			try{
+				ByteArrayInputStream bais = new ByteArrayInputStream(data, offset, length);
+				GZIPInputStream gis = new GZIPInputStream(bais);
+				ByteArrayOutputStream baos = new ByteArrayOutputStream();
+				byte[] buffer = new byte[4096];
+				while(true) {
+					int read = gis.read(buffer, 0, buffer.length);
+					if(read < 0) break;
+					baos.write(buffer, 0, read);
+				}
+				byte[] output = baos.toByteArray();
+				return output;
+	        } catch(IOException e) {
+	            throw new RuntimeException(e.getMessage(), e);
+	        }
+		}
+	}
+	
+	// payload: uncompressed length (4 bytes, little-endian) followed by an LZ4 block
+	public static class LZ4Codec extends Codec {
+		@Override public int getId() { return 2; }
+		@Override public String getName() { return "lz4"; }
+		
+		@Override public byte[] compress(byte[] data) {
+			byte[] buffer = new byte[4 + LZ4Block.maxCompressedLength(data.length)];
+			buffer[0] = (byte)data.length;
+			buffer[1] = (byte)(data.length >>> 8);
+			buffer[2] = (byte)(data.length >>> 16);
+			buffer[3] = (byte)(data.length >>> 24);
+			int length = 4 + LZ4Block.compress(data, 0, data.length, buffer, 4);
+			byte[] output = new byte[length];
+			System.arraycopy(buffer, 0, output, 0, length);
+			return output;
+		}
+		
+		@Override public byte[] uncompress(byte[] data, int offset, int length) {
+			int size = (data[offset] & 0xFF) | (data[offset + 1] & 0xFF) << 8 |
+					(data[offset + 2] & 0xFF) << 16 | (data[offset + 3] & 0xFF) << 24;
+			byte[] output = new byte[size];
+			LZ4Block.decompress(data, offset + 4, length - 4, output);
+			return output;
+		}
+	}
+	
+}
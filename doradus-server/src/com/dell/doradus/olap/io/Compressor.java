@@ -16,49 +16,94 @@
 
 package com.dell.doradus.olap.io;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
-
+import com.dell.doradus.common.ApplicationDefinition;
+import com.dell.doradus.common.CommonDefs;
 import com.dell.doradus.core.ServerConfig;
 
+/**
+ * Compresses and uncompresses OLAP file chunks.
+ * <p>
+ * If olap_internal_compression is set, chunks written with GZIP have no header, exactly as before
+ * codecs were introduced, and chunks of any other codec start with {@link #MAGIC} followed by one
+ * byte of the codec id, so each chunk is readable regardless of the codec the application currently
+ * uses. GZIP data always starts with 0x1F 0x8B, so it cannot be mistaken for a header.
+ * <p>
+ * If olap_internal_compression is not set, chunks are stored uncompressed and without header, as
+ * before: raw data may start with anything, so no header is looked for and no other codec can be used.
+ */
 public class Compressor {
     private static boolean m_bCompress = ServerConfig.getInstance().olap_internal_compression;
+    private static final byte[] MAGIC = new byte[] { (byte)0xC7, 'O', 'C' };
+    private static final Codec m_legacyCodec = m_bCompress ? Codec.GZIP : Codec.NONE;
+    private static Codec m_defaultCodec;
+    
+    /**
+     * @return codec set by the application option, or, if none, by olap_compression_codec configuration parameter 
+     */
+    public static Codec getCodec(ApplicationDefinition appDef) {
+    	String name = appDef == null ? null : appDef.getOption(CommonDefs.OPT_COMPRESSION);
+    	if(name == null) return getDefaultCodec();
+    	Codec codec = Codec.forName(name);
+    	if(codec == null) throw new IllegalArgumentException("Unknown compression codec: " + name);
+    	checkSupported(codec);
+    	return codec;
+    }
+    
+    /**
+     * @return false if the codec cannot be used because olap_internal_compression is not set
+     */
+    public static boolean isSupported(Codec codec) {
+    	return m_bCompress || codec == Codec.NONE;
+    }
+    
+    private static void checkSupported(Codec codec) {
+    	if(!isSupported(codec)) {
+    		throw new IllegalArgumentException("Compression codec " + codec + " requires olap_internal_compression");
+    	}
+    }
+    
+    public static synchronized Codec getDefaultCodec() {
+    	if(m_defaultCodec == null) {
+    		String name = ServerConfig.getInstance().olap_compression_codec;
+    		m_defaultCodec = name == null ? m_legacyCodec : Codec.forName(name);
+    		if(m_defaultCodec == null) throw new IllegalArgumentException("Unknown olap_compression_codec: " + name);
+    		checkSupported(m_defaultCodec);
+    	}
+    	return m_defaultCodec;
+    }
 	
 	public static byte[] compress(byte[] data) {
+		return compress(data, getDefaultCodec());
+	}
+	
+	public static byte[] compress(byte[] data, Codec codec) {
 		if(data.length == 0) return data;
-		if(!m_bCompress) return data;
-		try{
-			ByteArrayOutputStream baos = new ByteArrayOutputStream();
-			GZIPOutputStream gos = new GZIPOutputStream(baos);
-			gos.write(data, 0, data.length);
-			gos.close();
-			byte[] output = baos.toByteArray();
-			return output;
-        } catch(IOException e) {
-            throw new RuntimeException(e.getMessage(), e);
-        }
+		checkSupported(codec);
+		byte[] compressed = codec.compress(data);
+		if(codec == m_legacyCodec) return compressed;
+		byte[] output = new byte[MAGIC.length + 1 + compressed.length];
+		System.arraycopy(MAGIC, 0, output, 0, MAGIC.length);
+		output[MAGIC.length] = (byte)codec.getId();
+		System.arraycopy(compressed, 0, output, MAGIC.length + 1, compressed.length);
+		return output;
 	}
 		
 	public static byte[] uncompress(byte[] data) {
 		if(data.length == 0) return data;
 		if(!m_bCompress) return data;
-		try{
-			ByteArrayInputStream bais = new ByteArrayInputStream(data);
-			GZIPInputStream gis = new GZIPInputStream(bais);
-			ByteArrayOutputStream baos = new ByteArrayOutputStream();
-			byte[] buffer = new byte[4096];
-			while(true) {
-				int read = gis.read(buffer, 0, buffer.length);
-				if(read < 0) break;
-				baos.write(buffer, 0, read);
-			}
-			byte[] output = baos.toByteArray();
-			return output;
-        } catch(IOException e) {
-            throw new RuntimeException(e.getMessage(), e);
-        }
+		if(hasHeader(data)) {
+			Codec codec = Codec.forId(data[MAGIC.length]);
+			int offset = MAGIC.length + 1;
+			return codec.uncompress(data, offset, data.length - offset);
+		}
+		return Codec.GZIP.uncompress(data, 0, data.length);
+	}
+	
+	private static boolean hasHeader(byte[] data) {
+		if(data.length <= MAGIC.length) return false;
+		for(int i = 0; i < MAGIC.length; i++) {
+			if(data[i] != MAGIC[i]) return false;
+		}
+		return true;
 	}
 }
@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2014 Dell, Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dell.doradus.olap.io;
+
+/**
+ * Pure-Java compressor producing the LZ4 block format: a sequence of
+ * (literals, match offset, match length) tokens with a 64K window and a single-probe
+ * hash table. It trades compression ratio for speed, and decompression is a plain
+ * byte copy loop, many times faster than inflating GZIP.
+ */
+public class LZ4Block {
+	private static final int MIN_MATCH = 4;
+	private static final int HASH_LOG = 16;
+	private static final int MAX_DISTANCE = 65535;
+	// the last literals and the last match position limits required by the format
+	private static final int LAST_LITERALS = 5;
+	private static final int MF_LIMIT = 12;
+	private static final int SKIP_STRENGTH = 6;
+
+	public static int maxCompressedLength(int length) {
+		return length + length / 255 + 16;
+	}
+	
+	/**
+	 * Compresses src[srcOff, srcOff + srcLen) into dest starting at destOff, which must have at
+	 * least {@link #maxCompressedLength(int)} bytes available.
+	 * @return	number of bytes written to dest
+	 */
+	public static int compress(byte[] src, int srcOff, int srcLen, byte[] dest, int destOff) {
+		int end = srcOff + srcLen;
+		int matchLimit = end - LAST_LITERALS;
+		int mfLimit = end - MF_LIMIT;
+		int anchor = srcOff;
+		int ip = srcOff;
+		int dp = destOff;
+		// positions + 1, so that zero means empty slot
+		int[] table = new int[1 << HASH_LOG];
+		
+		while(ip < mfLimit) {
+			int sequence = readInt(src, ip);
+			int h = hash(sequence);
+			int ref = table[h] - 1;
+			table[h] = ip + 1;
+			if(ref < 0 || ip - ref > MAX_DISTANCE || readInt(src, ref) != sequence) {
+				// move faster through incompressible data
+				ip += 1 + ((ip - anchor) >>> SKIP_STRENGTH);
+				continue;
+			}
+			while(ip > anchor && ref > srcOff && src[ip - 1] == src[ref - 1]) {
+				ip--;
+				ref--;
+			}
+			int matchLength = MIN_MATCH;
+			while(ip + matchLength < matchLimit && src[ip + matchLength] == src[ref + matchLength]) matchLength++;
+			
+			dp = writeSequence(src, anchor, ip - anchor, ip - ref, matchLength, dest, dp);
+			ip += matchLength;
+			anchor = ip;
+			if(ip - 2 < mfLimit) table[hash(readInt(src, ip - 2))] = ip - 2 + 1;
+		}
+		
+		return writeLastLiterals(src, anchor, end - anchor, dest, dp) - destOff;
+	}
+	
+	/**
+	 * Decompresses src[srcOff, srcOff + srcLen) into dest, which must be exactly as long as the
+	 * original data.
+	 */
+	public static void decompress(byte[] src, int srcOff, int srcLen, byte[] dest) {
+		int sp = srcOff;
+		int end = srcOff + srcLen;
+		int dp = 0;
+		while(true) {
+			int token = src[sp++] & 0xFF;
+			int literals = token >>> 4;
+			if(literals == 15) {
+				int b;
+				do {
+					b = src[sp++] & 0xFF;
+					literals += b;
+				} while(b == 255);
+			}
+			System.arraycopy(src, sp, dest, dp, literals);
+			sp += literals;
+			dp += literals;
+			if(sp >= end) break;
+			
+			int offset = (src[sp++] & 0xFF) | (src[sp++] & 0xFF) << 8;
+			int matchLength = token & 15;
+			if(matchLength == 15) {
+				int b;
+				do {
+					b = src[sp++] & 0xFF;
+					matchLength += b;
+				} while(b == 255);
+			}
+			matchLength += MIN_MATCH;
+			int ref = dp - offset;
+			if(offset == 0 || ref < 0) throw new IllegalArgumentException("Corrupted LZ4 block: invalid offset " + offset);
+			if(offset >= matchLength) {
+				System.arraycopy(dest, ref, dest, dp, matchLength);
+				dp += matchLength;
+			} else {
+				// overlapping match repeats the last 'offset' bytes
+				for(int i = 0; i < matchLength; i++) dest[dp++] = dest[ref++];
+			}
+		}
+		if(dp != dest.length) throw new IllegalArgumentException("Corrupted LZ4 block: expected " + dest.length + " bytes, got " + dp);
+	}
+	
+	private static int writeSequence(byte[] src, int literalsStart, int literals, int offset, int matchLength, byte[] dest, int dp) {
+		int tokenPos = dp++;
+		int token = Math.min(literals, 15) << 4;
+		if(literals >= 15) dp = writeLength(literals - 15, dest, dp);
+		System.arraycopy(src, literalsStart, dest, dp, literals);
+		dp += literals;
+		dest[dp++] = (byte)offset;
+		dest[dp++] = (byte)(offset >>> 8);
+		int ml = matchLength - MIN_MATCH;
+		token |= Math.min(ml, 15);
+		if(ml >= 15) dp = writeLength(ml - 15, dest, dp);
+		dest[tokenPos] = (byte)token;
+		return dp;
+	}
+	
+	private static int writeLastLiterals(byte[] src, int literalsStart, int literals, byte[] dest, int dp) {
+		dest[dp++] = (byte)(Math.min(literals, 15) << 4);
+		if(literals >= 15) dp = writeLength(literals - 15, dest, dp);
+		System.arraycopy(src, literalsStart, dest, dp, literals);
+		return dp + literals;
+	}
+	
+	private static int writeLength(int length, byte[] dest, int dp) {
+		while(length >= 255) {
+			dest[dp++] = (byte)255;
+			length -= 255;
+		}
+		dest[dp++] = (byte)length;
+		return dp;
+	}
+	
+	private static int readInt(byte[] buf, int pos) {
+		return (buf[pos] & 0xFF) | (buf[pos + 1] & 0xFF) << 8 | (buf[pos + 2] & 0xFF) << 16 | (buf[pos + 3] & 0xFF) << 24;
+	}
+	
+	private static int hash(int sequence) {
+		return (sequence * -1640531535) >>> (32 - HASH_LOG);
+	}
+	
+}
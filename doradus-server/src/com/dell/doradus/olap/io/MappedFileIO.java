@@ -0,0 +1,339 @@
+/*
+ * Copyright (C) 2014 Dell, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dell.doradus.olap.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.dell.doradus.common.Utils;
+
+/**
+ * Stores OLAP data in the local file system and reads it through memory-mapped files.
+ * <p>
+ * Each VDirectory is a directory and each virtual file is one contiguous, uncompressed file,
+ * so a chunk read is a slice of the mapping, without copying or uncompressing.
+ * <ul>
+ * <li>Chunks of a file are written to "&lt;name&gt;~tmp", which is renamed to "&lt;name&gt;~file"
+ *     when the file is closed. Committed files are never modified, only replaced or deleted.</li>
+ * <li>A directory written before it is created (such as a new segment or a merged cube) is
+ *     written as "&lt;name&gt;~staging" and renamed when it is created, so it appears atomically.
+ *     Until then it is not listed but can be read, as the .cube.txt swap requires.</li>
+ * </ul>
+ * Names are escaped so that they cannot collide with the '~' suffixes.
+ */
+public class MappedFileIO implements ChunkIO {
+    private static Logger LOG = LoggerFactory.getLogger(MappedFileIO.class);
+    private static final String FILE_SUFFIX = "~file";
+    private static final String TEMP_SUFFIX = "~tmp";
+    private static final String STAGING_SUFFIX = "~staging";
+    // files are mapped in regions of this size, since a single mapping is limited to 2GB
+    private static final long REGION_SIZE = 1024L * VDirectory.CHUNK_SIZE;
+    private static final int MAX_MAPPED_FILES = 4096;
+
+    private final File m_root;
+    // mappings of committed files, keyed by app + "/" + file key
+    private final Map<String, MappedFile> m_mapped = new LinkedHashMap<String, MappedFile>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+		@Override protected boolean removeEldestEntry(Map.Entry<String, MappedFile> eldest) {
+			return size() > MAX_MAPPED_FILES;
+		}
+    };
+
+	public MappedFileIO(File root) {
+		m_root = root.getAbsoluteFile();
+		if(!m_root.isDirectory() && !m_root.mkdirs()) {
+			throw new RuntimeException("Cannot create OLAP storage directory " + m_root);
+		}
+		LOG.info("OLAP data is stored in {}", m_root);
+	}
+
+	@Override public byte[] getValue(String app, String key, String column) {
+		List<ColumnValue> list = get(app, key, column);
+		if(list.size() == 0 || list.get(0).columnName.length() != 0) return null;
+		return list.get(0).columnValue;
+	}
+
+	@Override public List<ColumnValue> get(String app, String key, String prefix) {
+		List<ColumnValue> result = new ArrayList<ColumnValue>();
+		File dir = getDirectory(app, key, false);
+		File[] children = dir.listFiles();
+		if(children == null) return result;
+		if(prefix.startsWith("Directory/")) {
+			prefix = prefix.substring("Directory/".length());
+			for(File child : children) {
+				String name = child.getName();
+				if(!child.isDirectory() || name.endsWith(STAGING_SUFFIX)) continue;
+				name = unescape(name);
+				if(!name.startsWith(prefix)) continue;
+				result.add(new ColumnValue(name.substring(prefix.length()), new byte[0]));
+			}
+		} else if(prefix.startsWith("File/")) {
+			prefix = prefix.substring("File/".length());
+			for(File child : children) {
+				String name = child.getName();
+				if(!name.endsWith(FILE_SUFFIX)) continue;
+				name = unescape(name.substring(0, name.length() - FILE_SUFFIX.length()));
+				if(!name.startsWith(prefix)) continue;
+				result.add(new ColumnValue(name.substring(prefix.length()), Utils.toBytes("" + child.length())));
+			}
+		} else throw new IllegalArgumentException("Unsupported column prefix: " + prefix);
+		Collections.sort(result);
+		return result;
+	}
+
+	@Override public void createCF(String name) {
+		File dir = new File(m_root, escape(name));
+		if(!dir.isDirectory() && !dir.mkdirs()) throw new RuntimeException("Cannot create " + dir);
+	}
+
+	@Override public void deleteCF(String name) {
+		evict(name);
+		deleteRecursive(new File(m_root, escape(name)));
+	}
+
+	@Override public void write(String app, String key, List<ColumnValue> values) {
+		File dir = getDirectory(app, key, true);
+		for(ColumnValue v : values) {
+			if(v.columnName.startsWith("Directory/")) {
+				commitDirectory(dir, v.columnName.substring("Directory/".length()));
+			} else if(v.columnName.startsWith("File/")) {
+				String name = v.columnName.substring("File/".length());
+				commitFile(dir, name, v.getLong());
+				evict(app + "/" + key + "/" + name);
+			} else throw new IllegalArgumentException("Unsupported column: " + v.columnName);
+		}
+	}
+
+	@Override public void delete(String columnFamily, String key, String columnName) {
+		if(columnName == null) {
+			// either a directory row or a file key
+			evict(columnFamily + "/" + key);
+			File dir = getDirectory(columnFamily, key, false);
+			if(dir.exists()) deleteRecursive(dir);
+			else deleteRecursive(getFile(columnFamily, key, FILE_SUFFIX, false));
+		} else if(columnName.startsWith("Directory/")) {
+			String name = columnName.substring("Directory/".length());
+			evict(columnFamily + "/" + key + "/" + name);
+			File dir = getDirectory(columnFamily, key, false);
+			deleteRecursive(new File(dir, escape(name)));
+			deleteRecursive(new File(dir, escape(name) + STAGING_SUFFIX));
+		} else if(columnName.startsWith("File/")) {
+			String name = columnName.substring("File/".length());
+			evict(columnFamily + "/" + key + "/" + name);
+			File dir = getDirectory(columnFamily, key, false);
+			deleteRecursive(new File(dir, escape(name) + FILE_SUFFIX));
+		}
+	}
+
+	@Override public void writeChunk(String app, String fileKey, long chunk, byte[] data) {
+		File file = getFile(app, fileKey, TEMP_SUFFIX, true);
+		try(RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			if(chunk == 0) raf.setLength(0);
+			raf.seek(chunk * VDirectory.CHUNK_SIZE);
+			raf.write(data);
+		} catch(IOException e) {
+			LOG.error("Error writing file", e);
+			throw new RuntimeException("Error writing file " + file, e);
+		}
+	}
+
+	@Override public ByteBuffer readChunk(String app, String fileKey, long chunk, boolean useCache) {
+		String cacheKey = app + "/" + fileKey;
+		MappedFile mapped;
+		synchronized(m_mapped) {
+			mapped = m_mapped.get(cacheKey);
+		}
+		if(mapped == null) {
+			File file = getFile(app, fileKey, FILE_SUFFIX, false);
+			if(!file.exists()) return null;
+			// files that are read once (such as .cube.txt) are not worth mapping
+			if(!useCache) return readChunk(file, chunk);
+			try {
+				mapped = new MappedFile(file);
+			} catch(IOException e) {
+				// deleted in between
+				if(!file.exists()) return null;
+				LOG.error("Error mapping file", e);
+				throw new RuntimeException("Error mapping file " + file, e);
+			}
+			synchronized(m_mapped) {
+				m_mapped.put(cacheKey, mapped);
+			}
+		}
+		return mapped.getChunk(chunk);
+	}
+
+	private ByteBuffer readChunk(File file, long chunk) {
+		try(RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			long position = chunk * VDirectory.CHUNK_SIZE;
+			byte[] data = new byte[(int)Math.min(VDirectory.CHUNK_SIZE, raf.length() - position)];
+			raf.seek(position);
+			raf.readFully(data);
+			return ByteBuffer.wrap(data).asReadOnlyBuffer();
+		} catch(IOException e) {
+			if(!file.exists()) return null;
+			LOG.error("Error reading file", e);
+			throw new RuntimeException("Error reading file " + file, e);
+		}
+	}
+
+	// Resolves a directory row "Directory/$root/..." to its directory. A missing directory resolves
+	// to its staging directory if that exists, or if 'create' is set, in which case it is created
+	private File getDirectory(String app, String key, boolean create) {
+		File dir = new File(m_root, escape(app));
+		List<String> names = Utils.split(key, '/');
+		// names[0] is "Directory"; names[1] is the root, which has no parent to be created in
+		for(int i = 1; i < names.size(); i++) {
+			String name = escape(names.get(i));
+			File child = new File(dir, name);
+			if(i > 1 && !child.isDirectory()) {
+				File staging = new File(dir, name + STAGING_SUFFIX);
+				if(create || staging.isDirectory()) child = staging;
+			}
+			dir = child;
+		}
+		if(create && !dir.mkdirs() && !dir.isDirectory()) throw new RuntimeException("Cannot create " + dir);
+		return dir;
+	}
+
+	// file key is the directory row + "/" + file name
+	private File getFile(String app, String fileKey, String suffix, boolean create) {
+		int idx = fileKey.lastIndexOf('/');
+		File dir = getDirectory(app, fileKey.substring(0, idx), create);
+		return new File(dir, escape(fileKey.substring(idx + 1)) + suffix);
+	}
+
+	private void commitDirectory(File parent, String name) {
+		File dir = new File(parent, escape(name));
+		if(dir.isDirectory()) return;
+		File staging = new File(parent, escape(name) + STAGING_SUFFIX);
+		try {
+			if(staging.isDirectory()) {
+				Files.move(staging.toPath(), dir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			} else if(!dir.mkdir() && !dir.isDirectory()) {
+				throw new IOException("Cannot create " + dir);
+			}
+		} catch(IOException e) {
+			LOG.error("Error creating directory", e);
+			throw new RuntimeException("Error creating directory " + dir, e);
+		}
+	}
+
+	private void commitFile(File dir, String name, long length) {
+		File temp = new File(dir, escape(name) + TEMP_SUFFIX);
+		File file = new File(dir, escape(name) + FILE_SUFFIX);
+		try {
+			// empty files have no chunks
+			if(!temp.exists()) temp.createNewFile();
+			if(temp.length() != length) {
+				throw new IOException("File " + temp + " has length " + temp.length() + "; expected " + length);
+			}
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch(IOException e) {
+			LOG.error("Error writing file", e);
+			throw new RuntimeException("Error writing file " + file, e);
+		}
+	}
+
+	// Drops mappings of the file key or of the files under it. Dropped mappings are released by GC
+	private void evict(String key) {
+		synchronized(m_mapped) {
+			Iterator<String> it = m_mapped.keySet().iterator();
+			while(it.hasNext()) {
+				String k = it.next();
+				if(k.equals(key) || k.startsWith(key + "/")) it.remove();
+			}
+		}
+	}
+
+	private static void deleteRecursive(File file) {
+		File[] children = file.listFiles();
+		if(children != null) {
+			for(File child : children) deleteRecursive(child);
+		}
+		if(file.exists() && !file.delete()) LOG.warn("Cannot delete {}", file);
+	}
+
+	private static String escape(String name) {
+		StringBuilder sb = new StringBuilder(name.length());
+		for(int i = 0; i < name.length(); i++) {
+			char c = name.charAt(i);
+			if((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || "._-$".indexOf(c) >= 0) {
+				sb.append(c);
+			} else {
+				sb.append(String.format("%%%04x", (int)c));
+			}
+		}
+		return sb.toString();
+	}
+
+	private static String unescape(String name) {
+		if(name.indexOf('%') < 0) return name;
+		StringBuilder sb = new StringBuilder(name.length());
+		for(int i = 0; i < name.length(); i++) {
+			char c = name.charAt(i);
+			if(c == '%') {
+				sb.append((char)Integer.parseInt(name.substring(i + 1, i + 5), 16));
+				i += 4;
+			} else sb.append(c);
+		}
+		return sb.toString();
+	}
+
+	private static class MappedFile {
+		private MappedByteBuffer[] m_regions;
+
+		public MappedFile(File file) throws IOException {
+			try(RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+				FileChannel channel = raf.getChannel();
+				long length = channel.size();
+				m_regions = new MappedByteBuffer[(int)((length + REGION_SIZE - 1) / REGION_SIZE)];
+				for(int i = 0; i < m_regions.length; i++) {
+					long position = i * REGION_SIZE;
+					m_regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(REGION_SIZE, length - position));
+				}
+			}
+		}
+
+		public ByteBuffer getChunk(long chunk) {
+			long position = chunk * VDirectory.CHUNK_SIZE;
+			int region = (int)(position / REGION_SIZE);
+			if(region >= m_regions.length) throw new RuntimeException("End of stream");
+			ByteBuffer buffer = m_regions[region].duplicate();
+			int offset = (int)(position % REGION_SIZE);
+			buffer.position(offset);
+			buffer.limit(Math.min(buffer.capacity(), offset + VDirectory.CHUNK_SIZE));
+			return buffer.slice();
+		}
+	}
+
+}
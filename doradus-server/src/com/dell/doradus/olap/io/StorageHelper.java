@@ -16,26 +16,54 @@
 
 package com.dell.doradus.olap.io;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.dell.doradus.core.ServerConfig;
-import com.dell.doradus.search.util.LRUSizeCache;
+import com.dell.doradus.search.util.ConcurrentSizeCache;
+import com.dell.doradus.service.db.DBService;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 
 public class StorageHelper {
-    private LRUSizeCache<String, byte[]> m_chunkCache;
+    // compressed chunks, as they are stored
+    private ConcurrentSizeCache<String, byte[]> m_chunkCache;
+    // uncompressed chunks in front of m_chunkCache, so that hot chunks are not uncompressed on every read.
+    // Returned arrays are shared between readers and must not be modified.
+    private ConcurrentSizeCache<String, byte[]> m_uncompressedCache;
     private IO m_io;
+    // chunks being read ahead from Cassandra, by cache key
+    private ConcurrentHashMap<String, ListenableFuture<byte[]>> m_prefetches =
+    		new ConcurrentHashMap<String, ListenableFuture<byte[]>>();
 
     public StorageHelper(IO io) {
     	m_io = io;
 		int cacheSize = ServerConfig.getInstance().olap_file_cache_size_mb;  
 		if(cacheSize > 0) {
-			m_chunkCache = new LRUSizeCache<String, byte[]>(cacheSize, cacheSize * 1024L * 1024L);
+			m_chunkCache = new ConcurrentSizeCache<String, byte[]>(cacheSize * 1024L * 1024L);
+		}
+		int uncompressedCacheSize = ServerConfig.getInstance().olap_uncompressed_cache_size_mb;
+		if(uncompressedCacheSize > 0) {
+			m_uncompressedCache = new ConcurrentSizeCache<String, byte[]>(uncompressedCacheSize * 1024L * 1024L);
 		}
     }
+    
+    public ConcurrentSizeCache<String, byte[]> getChunkCache() { return m_chunkCache; }
+    public ConcurrentSizeCache<String, byte[]> getUncompressedCache() { return m_uncompressedCache; }
 
 	public void writeFileChunk(String app, String key, String columnName, byte[] value, boolean useCache) {
-		value = Compressor.compress(value);
+		writeFileChunk(app, key, columnName, value, Compressor.getDefaultCodec(), useCache);
+	}
+	
+	public void writeFileChunk(String app, String key, String columnName, byte[] value, Codec codec, boolean useCache) {
+		// chunk IO stores chunks as they are
+		if(m_io instanceof ChunkIO) {
+			((ChunkIO)m_io).writeChunk(app, key, Long.parseLong(columnName), value);
+			return;
+		}
+		value = Compressor.compress(value, codec);
 		write(app, key, columnName, value);
 		if(useCache && m_chunkCache != null) {
 			String cacheKey = app + "/" + key + "/" + columnName;
@@ -43,25 +71,88 @@ public class StorageHelper {
 		}
 	}
 
+	public ByteBuffer readFileChunk(String app, String key, long chunk, boolean useCache) {
+		if(m_io instanceof ChunkIO) {
+			ByteBuffer buffer = ((ChunkIO)m_io).readChunk(app, key, chunk, useCache);
+			if(buffer == null) throw new FileDeletedException();
+			return buffer;
+		}
+		return ByteBuffer.wrap(readFileChunk(app, key, "" + chunk, useCache));
+	}
+
 	public byte[] readFileChunk(String app, String key, String columnName, boolean useCache) {
+		if(m_io instanceof ChunkIO) {
+			ByteBuffer buffer = readFileChunk(app, key, Long.parseLong(columnName), useCache);
+			byte[] value = new byte[buffer.remaining()];
+			buffer.get(value);
+			return value;
+		}
+		String k = app + "/" + key + "/" + columnName;
+		if(useCache && m_uncompressedCache != null) {
+			byte[] uncompressed = m_uncompressedCache.get(k);
+			if(uncompressed != null) return uncompressed;
+		}
+		byte[] value = null;
 		if(useCache && m_chunkCache != null) {
-			byte[] cached = m_chunkCache.get(app + "/" + key + "/" + columnName);
-			if(cached != null) {
-				cached = Compressor.uncompress(cached);
-				return cached;
+			value = m_chunkCache.get(k);
+		}
+		if(value == null && useCache && m_chunkCache != null) {
+			ListenableFuture<byte[]> prefetch = m_prefetches.get(k);
+			if(prefetch != null) {
+				try {
+					value = DBService.getResult(prefetch);
+				} catch(RuntimeException e) {
+					// a failed read ahead is not an error: the chunk is read again below
+					m_prefetches.remove(k, prefetch);
+				}
 			}
 		}
-		byte[] value = getValue(app, key, columnName);
-		if(value == null) throw new FileDeletedException();
-		if(useCache && m_chunkCache != null) {
-			String k = app + "/" + key + "/" + columnName;
-			m_chunkCache.put(k, value, value.length + 2 * k.length() + 16);
+		if(value == null) {
+			value = getValue(app, key, columnName);
+			if(value == null) throw new FileDeletedException();
+			if(useCache && m_chunkCache != null) {
+				m_chunkCache.put(k, value, value.length + 2 * k.length() + 16);
+			}
 		}
-		value = Compressor.uncompress(value);
-		return value;
+		byte[] uncompressed = Compressor.uncompress(value);
+		// uncompressed chunks are the stored ones; no need to keep them in both caches
+		if(useCache && m_uncompressedCache != null && uncompressed != value) {
+			m_uncompressedCache.put(k, uncompressed, uncompressed.length + 2 * k.length() + 16);
+		}
+		return uncompressed;
 	}
 	
 
+	/**
+	 * Starts reading the chunk from Cassandra into the chunk cache without waiting for it,
+	 * so that a stream reading a file sequentially finds its next chunk already read.
+	 * Does nothing for other storages, without CQL, whose reads are synchronous, or if the
+	 * chunk is cached or is already being read.
+	 */
+	public void prefetchFileChunk(final String app, final String key, long chunk) {
+		if(!(m_io instanceof CassandraIO) || !ServerConfig.getInstance().use_cql || m_chunkCache == null) return;
+		final String columnName = "" + chunk;
+		final String k = app + "/" + key + "/" + columnName;
+		if(m_prefetches.containsKey(k)) return;
+		// lookups that do not count as requests, so that chunks read ahead are not deemed frequently used
+		if(m_uncompressedCache != null && m_uncompressedCache.contains(k)) return;
+		if(m_chunkCache.contains(k)) return;
+		final ListenableFuture<byte[]> future = ((CassandraIO)m_io).getValueAsync(app, key, columnName);
+		if(m_prefetches.putIfAbsent(k, future) != null) return;
+		future.addListener(new Runnable() {
+			@Override public void run() {
+				try {
+					byte[] value = future.get();
+					if(value != null) m_chunkCache.put(k, value, value.length + 2 * k.length() + 16);
+				} catch(Exception e) {
+					// the chunk is read again when it is needed
+				} finally {
+					m_prefetches.remove(k, future);
+				}
+			}
+		}, MoreExecutors.sameThreadExecutor());
+	}
+
 	public void write(String app, String key, String columnName, byte[] value) {
 		ColumnValue v = new ColumnValue(columnName);
 		v.columnValue = value;
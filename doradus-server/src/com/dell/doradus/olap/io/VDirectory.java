@@ -17,6 +17,7 @@
 package com.dell.doradus.olap.io;
 
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -24,6 +25,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.dell.doradus.common.Utils;
+import com.dell.doradus.core.ServerConfig;
 
 public class VDirectory {
     private static Logger m_logger = LoggerFactory.getLogger("Olap.VDirectory");
@@ -34,10 +36,16 @@ public class VDirectory {
 	private String m_storeName;
 	private String m_name;
 	private String m_row;
+	// codec of the files created in this directory and its subdirectories
+	private Codec m_codec;
 	
 	public VDirectory(String storeName) {
 		m_parent = null;
-		IO io = new CassandraIO();
+		String storage = ServerConfig.getInstance().olap_storage;
+		IO io = null;
+		if(storage == null || "cassandra".equalsIgnoreCase(storage)) io = new CassandraIO();
+		else if("mmap".equalsIgnoreCase(storage)) io = new MappedFileIO(new File(ServerConfig.getInstance().olap_storage_dir));
+		else throw new IllegalArgumentException("Unknown olap_storage: " + storage);
 		//IO io = new FileIO();
 		//IO io = new SqlIO();
 		//IO io = new MemIO();
@@ -46,6 +54,7 @@ public class VDirectory {
 		m_name = "$root";
 		m_helper.createCF(m_storeName);
 		m_row = "Directory/" + m_name;
+		m_codec = Compressor.getDefaultCodec();
 	}
 	
 	private VDirectory(VDirectory parent, String name) {
@@ -54,12 +63,15 @@ public class VDirectory {
 		m_storeName = parent.m_storeName;
 		m_name = name;
 		m_row = m_parent.m_row + "/" + m_name;
+		m_codec = parent.m_codec;
 	}
 
 	public VDirectory getParent() { return m_parent; }
 	public String getName() { return m_name; }
 	public String getStoreName() { return m_storeName; }
 	public String getRow() { return m_row; }
+	public Codec getCodec() { return m_codec; }
+	public void setCodec(Codec codec) { m_codec = codec; }
 	
 	// ************** DIRECTORIES ************** //
 	
@@ -147,7 +159,7 @@ public class VDirectory {
 	}
 
 	public VOutputStream create(String name) {
-		return new VOutputStream(m_helper, m_storeName, m_row, name);
+		return new VOutputStream(m_helper, m_storeName, m_row, name, m_codec);
 	}
 
 	public String readAllText(String file) {
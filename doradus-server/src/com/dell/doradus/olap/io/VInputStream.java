@@ -16,6 +16,9 @@
 
 package com.dell.doradus.olap.io;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
 public class VInputStream {
 	private StorageHelper m_helper;
 	private String m_app;
@@ -23,7 +26,8 @@ public class VInputStream {
 	private String m_name;
 	private long m_length;
 	private int m_bufferSize = VDirectory.CHUNK_SIZE;
-    private byte[] m_buffer;
+    // chunk data; may be a view of a memory-mapped file, so it is only read with absolute gets
+    private ByteBuffer m_buffer;
     private long m_buffersCount;
     public boolean useCache = true;
 
@@ -94,9 +98,13 @@ public class VInputStream {
         if (bufferNumber < 0 || bufferNumber >= m_buffersCount) {
         	throw new RuntimeException("End of stream");
         }
+        // a sequential read gets the next chunk read ahead
+        if (useCache && m_bufferNumber >= 0 && bufferNumber == m_bufferNumber + 1 && bufferNumber + 1 < m_buffersCount) {
+        	m_helper.prefetchFileChunk(m_app, m_row + "/" + m_name, bufferNumber + 1);
+        }
         m_bufferNumber = bufferNumber;
-        m_buffer = m_helper.readFileChunk(m_app, m_row + "/" + m_name, "" + bufferNumber, useCache);
-        m_bufferLength = m_buffer.length;
+        m_buffer = m_helper.readFileChunk(m_app, m_row + "/" + m_name, bufferNumber, useCache);
+        m_bufferLength = m_buffer.limit();
         m_positionInBuffer = 0;
     }
     
@@ -107,7 +115,13 @@ public class VInputStream {
         {
             if (m_positionInBuffer == m_bufferLength) readBuffer(m_bufferNumber + 1);
             int toRead = Math.min(m_bufferLength - m_positionInBuffer, count);
-            System.arraycopy(m_buffer, m_positionInBuffer, buffer, offset, toRead);
+            if(m_buffer.hasArray()) {
+            	System.arraycopy(m_buffer.array(), m_buffer.arrayOffset() + m_positionInBuffer, buffer, offset, toRead);
+            } else {
+            	ByteBuffer b = m_buffer.duplicate();
+            	b.position(m_positionInBuffer);
+            	b.get(buffer, offset, toRead);
+            }
             count -= toRead;
             m_positionInBuffer += toRead;
             offset += toRead;
@@ -115,14 +129,93 @@ public class VInputStream {
         return cnt;
     }
 
+    // Bulk reads of little-endian fixed-width values, copied from views of the current chunk.
+    // A value that spans two chunks is read byte by byte.
+    
+    public void readShorts(short[] values, int offset, int count)
+    {
+        while (count > 0)
+        {
+            if (m_positionInBuffer == m_bufferLength) readBuffer(m_bufferNumber + 1);
+            int n = Math.min((m_bufferLength - m_positionInBuffer) / 2, count);
+            if (n == 0) {
+            	values[offset++] = readShort();
+            	count--;
+            	continue;
+            }
+            view().asShortBuffer().get(values, offset, n);
+            m_positionInBuffer += n * 2;
+            offset += n;
+            count -= n;
+        }
+    }
+
+    public void readInts(int[] values, int offset, int count)
+    {
+        while (count > 0)
+        {
+            if (m_positionInBuffer == m_bufferLength) readBuffer(m_bufferNumber + 1);
+            int n = Math.min((m_bufferLength - m_positionInBuffer) / 4, count);
+            if (n == 0) {
+            	values[offset++] = readInt();
+            	count--;
+            	continue;
+            }
+            view().asIntBuffer().get(values, offset, n);
+            m_positionInBuffer += n * 4;
+            offset += n;
+            count -= n;
+        }
+    }
+
+    public void readLongs(long[] values, int offset, int count)
+    {
+        while (count > 0)
+        {
+            if (m_positionInBuffer == m_bufferLength) readBuffer(m_bufferNumber + 1);
+            int n = Math.min((m_bufferLength - m_positionInBuffer) / 8, count);
+            if (n == 0) {
+            	values[offset++] = readLong();
+            	count--;
+            	continue;
+            }
+            view().asLongBuffer().get(values, offset, n);
+            m_positionInBuffer += n * 8;
+            offset += n;
+            count -= n;
+        }
+    }
+
+    // little-endian view of the current chunk from the current position
+    private ByteBuffer view()
+    {
+    	ByteBuffer b = m_buffer.duplicate();
+    	b.position(m_positionInBuffer);
+    	return b.order(ByteOrder.LITTLE_ENDIAN);
+    }
+    
     public int readByte()
     {
         if (m_positionInBuffer == m_bufferLength) readBuffer(m_bufferNumber + 1);
-        return m_buffer[m_positionInBuffer++] & 0xFF;
+        return m_buffer.get(m_positionInBuffer++) & 0xFF;
     }
 
     public int readVInt()
     {
+        // a VInt takes at most 5 bytes; if they are all in the current chunk, decode it in place
+        if (m_bufferLength - m_positionInBuffer >= 5) {
+        	int pos = m_positionInBuffer;
+        	int b = m_buffer.get(pos++);
+        	int u = b & 127;
+        	int shift = 7;
+        	while (b < 0) {
+        		b = m_buffer.get(pos++);
+        		u += (b & 127) << shift;
+        		shift += 7;
+        	}
+        	m_positionInBuffer = pos;
+        	return u;
+        }
         int b = readByte();
         int u = b & 127;
         int shift = 7;
@@ -137,6 +230,19 @@ public class VInputStream {
 
     public long readVLong()
     {
+        if (m_bufferLength - m_positionInBuffer >= 10) {
+        	int pos = m_positionInBuffer;
+        	long b = m_buffer.get(pos++);
+        	long u = b & 127;
+        	int shift = 7;
+        	while (b < 0) {
+        		b = m_buffer.get(pos++);
+        		u += (b & 127) << shift;
+        		shift += 7;
+        	}
+        	m_positionInBuffer = pos;
+        	return u;
+        }
         long b = readByte();
         long u = b & 127;
         int shift = 7;
@@ -149,6 +255,43 @@ public class VInputStream {
         return u;
     }
 
+    public void readVInts(int[] values, int offset, int count)
+    {
+        int end = offset + count;
+        while (offset < end)
+        {
+            int limit = m_bufferLength - 5;
+            if (m_positionInBuffer > limit) {
+            	// near the end of the chunk
+            	values[offset++] = readVInt();
+            	continue;
+            }
+            ByteBuffer buffer = m_buffer;
+            int pos = m_positionInBuffer;
+            while (offset < end && pos <= limit) {
+            	int b = buffer.get(pos++);
+            	int u = b & 127;
+            	int shift = 7;
+            	while (b < 0) {
+            		b = buffer.get(pos++);
+            		u += (b & 127) << shift;
+            		shift += 7;
+            	}
+            	values[offset++] = u;
+            }
+            m_positionInBuffer = pos;
+        }
+    }
+
+    // reads VInts written by VOutputStream.writeVIntDeltas: each value is the sum of the
+    // previous value, starting from 0, and the delta
+    public void readVIntDeltas(int[] values, int offset, int count)
+    {
+        readVInts(values, offset, count);
+        int end = offset + count;
+        for (int i = offset + 1; i < end; i++) values[i] += values[i - 1];
+    }
+
     public short readShort()
     {
         int u =
@@ -16,6 +16,9 @@
 
 package com.dell.doradus.olap.io;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
 import com.dell.doradus.common.Utils;
 
 public class VOutputStream {
@@ -28,13 +31,20 @@ public class VOutputStream {
     private int m_positionInBuffer;
     private BSTR m_cur = new BSTR();
     public boolean useCache = true;
+    private Codec m_codec;
 
     public VOutputStream(StorageHelper helper, String app, String row, String name)
+    {
+    	this(helper, app, row, name, Compressor.getDefaultCodec());
+    }
+    
+    public VOutputStream(StorageHelper helper, String app, String row, String name, Codec codec)
     {
     	m_helper = helper;
     	m_app = app;
     	m_row = row;
     	m_name = name;
+    	m_codec = codec;
         m_buffersCount = 0;
         m_positionInBuffer = 0;
     }
@@ -55,7 +65,7 @@ public class VOutputStream {
     		buf = new byte[m_positionInBuffer];
     		System.arraycopy(m_buffer, 0, buf, 0, buf.length);
     	}
-    	m_helper.writeFileChunk(m_app, m_row + "/" + m_name, "" + m_buffersCount, buf, useCache);
+    	m_helper.writeFileChunk(m_app, m_row + "/" + m_name, "" + m_buffersCount, buf, m_codec, useCache);
     	m_buffersCount++;
     	m_positionInBuffer = 0;
     }
@@ -81,6 +91,17 @@ public class VOutputStream {
 
     public void writeVInt(int value)
     {
+        // a VInt takes at most 5 bytes; if they fit in the current chunk, write it in place
+        if (m_buffer.length - m_positionInBuffer > 5) {
+        	int u = value >>> 7;
+        	while (u != 0) {
+        		m_buffer[m_positionInBuffer++] = (byte)(value & 127 | 128);
+        		value = u;
+        		u >>>= 7;
+        	}
+        	m_buffer[m_positionInBuffer++] = (byte)value;
+        	return;
+        }
 
         int u = value >>> 7;
         while (u != 0)
@@ -92,6 +113,24 @@ public class VOutputStream {
         writeByte((byte)value);
     }
 
+    public void writeVInts(int[] values, int offset, int count)
+    {
+        int end = offset + count;
+        for (int i = offset; i < end; i++) writeVInt(values[i]);
+    }
+
+    // writes non-decreasing values as VInts of the differences, starting from 0;
+    // read back by VInputStream.readVIntDeltas
+    public void writeVIntDeltas(int[] values, int offset, int count)
+    {
+        int end = offset + count;
+        int last = 0;
+        for (int i = offset; i < end; i++) {
+        	writeVInt(values[i] - last);
+        	last = values[i];
+        }
+    }
+
     public void writeVLong(long value)
     {
         long u = ((long)value) >>> 7;
@@ -124,6 +163,47 @@ public class VOutputStream {
         writeByte((byte)u);
     }
 
+    // Bulk write of little-endian ints; an int that spans two chunks is written byte by byte
+    public void writeInts(int[] values, int offset, int count)
+    {
+        while (count > 0)
+        {
+            int n = Math.min((m_buffer.length - m_positionInBuffer) / 4, count);
+            if (n == 0) {
+            	writeInt(values[offset++]);
+            	count--;
+            	continue;
+            }
+            ByteBuffer b = ByteBuffer.wrap(m_buffer).order(ByteOrder.LITTLE_ENDIAN);
+            b.position(m_positionInBuffer);
+            b.asIntBuffer().put(values, offset, n);
+            m_positionInBuffer += n * 4;
+            offset += n;
+            count -= n;
+            if (m_positionInBuffer == m_buffer.length) writeBuffer();
+        }
+    }
+
+    public void writeLongs(long[] values, int offset, int count)
+    {
+        while (count > 0)
+        {
+            int n = Math.min((m_buffer.length - m_positionInBuffer) / 8, count);
+            if (n == 0) {
+            	writeLong(values[offset++]);
+            	count--;
+            	continue;
+            }
+            ByteBuffer b = ByteBuffer.wrap(m_buffer).order(ByteOrder.LITTLE_ENDIAN);
+            b.position(m_positionInBuffer);
+            b.asLongBuffer().put(values, offset, n);
+            m_positionInBuffer += n * 8;
+            offset += n;
+            count -= n;
+            if (m_positionInBuffer == m_buffer.length) writeBuffer();
+        }
+    }
+
     public void writeLong(long value)
     {
         long u = (long)value;
@@ -16,9 +16,18 @@
 
 package com.dell.doradus.olap.merge;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,6 +36,7 @@ import com.dell.doradus.common.ApplicationDefinition;
 import com.dell.doradus.common.FieldDefinition;
 import com.dell.doradus.common.FieldType;
 import com.dell.doradus.common.TableDefinition;
+import com.dell.doradus.core.ServerConfig;
 import com.dell.doradus.olap.io.VDirectory;
 import com.dell.doradus.olap.store.FieldSearcher;
 import com.dell.doradus.olap.store.FieldWriter;
@@ -46,11 +56,16 @@ import com.dell.doradus.utilities.Timer;
 public class Merger {
     private static Logger LOG = LoggerFactory.getLogger("Olap.Merger");
     
+    // memory reserved by the field merges running in all the merges of this node
+    private static final Object g_memoryLock = new Object();
+    private static long g_memoryReserved = 0;
+    
     private ApplicationDefinition appDef;
     private List<VDirectory> sources;
     private VDirectory destination;
     private SegmentStats stats;
     private Map<String, Remap> remaps = new HashMap<String, Remap>();
+    private List<SegmentStats> sourceStats;
 	
 	public static void mergeApplication(ApplicationDefinition appDef, List<VDirectory> sources, VDirectory destination) {
 		Merger m = new Merger(appDef, sources, destination);
@@ -72,13 +87,21 @@ public class Merger {
 			LOG.debug("   Merging {}", table);
 			mergeDocs(tableDef);
 		}
+		// once the documents are merged, fields are independent of each other
+		List<FieldDefinition> fields = new ArrayList<FieldDefinition>();
 		for(TableDefinition tableDef : appDef.getTableDefinitions().values()) {
-			String table = tableDef.getTableName();
-			LOG.debug("   Merging fields of table {}", table);
 			for(FieldDefinition fieldDef : tableDef.getFieldDefinitions()) {
-				LOG.debug("      Merging {}/{} ({})", new Object[] {table, fieldDef.getName(), fieldDef.getType()});
-				mergeField(fieldDef);
+				if(fieldDef.isGroupField() || fieldDef.isXLinkField()) continue;
+				fields.add(fieldDef);
+			}
+		}
+		int threads = Math.min(ServerConfig.getInstance().olap_merge_threads, fields.size());
+		if(threads <= 1) {
+			for(FieldDefinition fieldDef : fields) {
+				mergeField(fieldDef, estimateMemory(fieldDef));
 			}
+		} else {
+			mergeFields(fields, threads);
 		}
 		
 		stats.totalStoreSize = destination.totalLength(false);
@@ -117,6 +140,111 @@ public class Merger {
         stats.addTable(table, id_writer.size());
     }
     
+	// Merges the fields on the given number of threads, largest fields first
+	private void mergeFields(List<FieldDefinition> fields, int threads) {
+		final Map<FieldDefinition, Long> memory = new HashMap<FieldDefinition, Long>();
+		for(FieldDefinition fieldDef : fields) {
+			memory.put(fieldDef, estimateMemory(fieldDef));
+		}
+		fields = new ArrayList<FieldDefinition>(fields);
+		Collections.sort(fields, new Comparator<FieldDefinition>() {
+			@Override public int compare(FieldDefinition x, FieldDefinition y) {
+				return Long.compare(memory.get(y), memory.get(x));
+			}
+		});
+		LOG.debug("   Merging {} fields on {} threads", fields.size(), threads);
+		final String name = "OlapMerge-" + appDef.getAppName() + "-";
+		ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			private final AtomicInteger counter = new AtomicInteger();
+			@Override public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, name + counter.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		try {
+			List<Future<?>> futures = new ArrayList<Future<?>>(fields.size());
+			for(final FieldDefinition fieldDef : fields) {
+				futures.add(executor.submit(new Runnable() {
+					@Override public void run() {
+						mergeField(fieldDef, memory.get(fieldDef));
+					}
+				}));
+			}
+			for(Future<?> future : futures) {
+				future.get();
+			}
+		} catch(InterruptedException e) {
+			throw new RuntimeException("Merge of " + appDef.getAppName() + " interrupted", e);
+		} catch(ExecutionException e) {
+			Throwable cause = e.getCause();
+			if(cause instanceof RuntimeException) throw (RuntimeException)cause;
+			if(cause instanceof Error) throw (Error)cause;
+			throw new RuntimeException(cause);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	// Merges the field once its memory can be reserved within olap_merge_memory_mb. A field
+	// that needs more than the whole budget is merged when no other field merge is running.
+	private void mergeField(FieldDefinition fieldDef, long memory) {
+		long limit = ServerConfig.getInstance().olap_merge_memory_mb * 1024L * 1024;
+		if(limit > 0) {
+			synchronized(g_memoryLock) {
+				try {
+					while(g_memoryReserved > 0 && g_memoryReserved + memory > limit) g_memoryLock.wait();
+				} catch(InterruptedException e) {
+					throw new RuntimeException("Merge of " + appDef.getAppName() + " interrupted", e);
+				}
+				g_memoryReserved += memory;
+			}
+		}
+		try {
+			LOG.debug("      Merging {}/{} ({})", new Object[] {fieldDef.getTableName(), fieldDef.getName(), fieldDef.getType()});
+			mergeField(fieldDef);
+		} finally {
+			if(limit > 0) {
+				synchronized(g_memoryLock) {
+					g_memoryReserved -= memory;
+					g_memoryLock.notifyAll();
+				}
+			}
+		}
+	}
+	
+	// Rough estimate of the memory taken by the merge of the field: the writers hold the values
+	// of all the documents of the destination, and text fields hold a remap of the values.
+	// Counts are taken from the statistics of the sources.
+	private long estimateMemory(FieldDefinition fieldDef) {
+		String table = fieldDef.getTableName();
+		String field = fieldDef.getName();
+		long memory = 16L * remaps.get(table).dstSize();
+		for(SegmentStats sourceStats : getSourceStats()) {
+			if(fieldDef.getType() == FieldType.TEXT || fieldDef.getType() == FieldType.BINARY) {
+				SegmentStats.Table.TextField f = sourceStats.getTextField(table, field);
+				if(f != null) memory += 8L * f.doclistSize + 8L * f.valuesCount;
+			} else if(fieldDef.isLinkField()) {
+				SegmentStats.Table.LinkField f = sourceStats.getLinkField(table, field);
+				if(f != null) memory += 8L * f.doclistSize;
+			} else {
+				SegmentStats.Table.NumField f = sourceStats.getNumField(table, field);
+				if(f != null) memory += 8L * f.doclistSize;
+			}
+		}
+		return memory;
+	}
+	
+	private List<SegmentStats> getSourceStats() {
+		if(sourceStats == null) {
+			sourceStats = new ArrayList<SegmentStats>(sources.size());
+			for(VDirectory source : sources) {
+				sourceStats.add(SegmentStats.load(source));
+			}
+		}
+		return sourceStats;
+	}
+	
 	private void mergeField(FieldDefinition fieldDef) {
 		if(fieldDef.getType() == FieldType.TEXT || fieldDef.getType() == FieldType.BINARY) {
 			mergeTextField(fieldDef);
@@ -181,7 +309,8 @@ public class Merger {
 		String field = fieldDef.getName();
 		Remap valRemap = new Remap(sources.size());
 		{
-	        ValueWriter value_writer = new ValueWriter(destination, table, field);
+	        ValueWriter value_writer = new ValueWriter(destination, table, field, fieldDef.isTermIndexed());
+	        value_writer.setBloomFilter(ServerConfig.getInstance().olap_bloom_filter_max_values);
 	        
 	        HeapList<IxTerm> heap = new HeapList<IxTerm>(sources.size() - 1);
 	        IxTerm current = null;
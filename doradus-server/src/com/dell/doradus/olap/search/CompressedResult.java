@@ -0,0 +1,484 @@
+/*
+ * Copyright (C) 2014 Dell, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dell.doradus.olap.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.dell.doradus.olap.store.BitVector;
+import com.dell.doradus.olap.store.IntList;
+
+/**
+ * Immutable, compressed form of a {@link Result}, in the manner of Roaring bitmaps.
+ * <p>
+ * Documents are split into blocks of 65536; blocks without documents are not stored,
+ * and each other block is stored in the smallest of three containers: a sorted array of
+ * the documents (up to 4096 of them), a bitmap, or a list of runs of consecutive documents.
+ * A selective filter on a large table therefore takes a few bytes instead of size/8.
+ * <p>
+ * and/or/andNot/not work across container types and return new results; a {@link Result}
+ * keeps this form while it is sparse and combines it with bitmaps in place.
+ */
+public class CompressedResult {
+	private static final int BLOCK_BITS = 16;
+	private static final int BLOCK_WORDS = (1 << BLOCK_BITS) / 64;
+
+	private int m_size;
+	// blocks that have documents, in ascending order
+	private int[] m_keys;
+	private Container[] m_containers;
+
+	private CompressedResult(int size, int[] keys, Container[] containers) {
+		m_size = size;
+		m_keys = keys;
+		m_containers = containers;
+	}
+
+	public static CompressedResult compress(BitVector bv) {
+		long[] words = bv.getWords();
+		List<Integer> keys = new ArrayList<Integer>();
+		List<Container> containers = new ArrayList<Container>();
+		for(int key = 0; key * BLOCK_WORDS < words.length; key++) {
+			int from = key * BLOCK_WORDS;
+			Container c = compress(words, from, Math.min(from + BLOCK_WORDS, words.length));
+			if(c == null) continue;
+			keys.add(key);
+			containers.add(c);
+		}
+		return create(bv.size(), keys, containers);
+	}
+
+	public int size() { return m_size; }
+
+	// smaller than half of the bitmap of the same documents
+	public boolean isSparse() { return sizeInBytes() < (m_size + 7) / 16; }
+
+	// sets the documents of this result in the bitmap of the same size
+	public void fill(long[] words) {
+		for(int i = 0; i < m_keys.length; i++) {
+			m_containers[i].fill(words, m_keys[i] * BLOCK_WORDS);
+		}
+	}
+
+	// clears the documents of the bitmap of the same size that are not in this result
+	public void andInto(long[] words) {
+		long[] a = new long[BLOCK_WORDS];
+		int j = 0;
+		for(int offset = 0, key = 0; offset < words.length; offset += BLOCK_WORDS, key++) {
+			int count = Math.min(BLOCK_WORDS, words.length - offset);
+			if(j < m_keys.length && m_keys[j] == key) {
+				load(m_containers[j++], a);
+				for(int w = 0; w < count; w++) words[offset + w] &= a[w];
+			} else {
+				Arrays.fill(words, offset, offset + count, 0);
+			}
+		}
+	}
+
+	// clears the documents of this result in the bitmap of the same size
+	public void andNotInto(long[] words) {
+		long[] a = new long[BLOCK_WORDS];
+		for(int i = 0; i < m_keys.length; i++) {
+			int offset = m_keys[i] * BLOCK_WORDS;
+			int count = Math.min(BLOCK_WORDS, words.length - offset);
+			load(m_containers[i], a);
+			for(int w = 0; w < count; w++) words[offset + w] &= ~a[w];
+		}
+	}
+
+	public boolean get(int doc) {
+		int i = Arrays.binarySearch(m_keys, doc >>> BLOCK_BITS);
+		return i >= 0 && m_containers[i].contains(doc & 0xFFFF);
+	}
+
+	// first document starting from 'from', or -1 if there is none
+	public int nextSetBit(int from) {
+		if(from >= m_size) return -1;
+		int i = Arrays.binarySearch(m_keys, from >>> BLOCK_BITS);
+		if(i >= 0) {
+			int doc = m_containers[i].nextSetBit(from & 0xFFFF);
+			if(doc >= 0) return (m_keys[i] << BLOCK_BITS) + doc;
+			i++;
+		} else i = -i - 1;
+		return i < m_keys.length ? (m_keys[i] << BLOCK_BITS) + m_containers[i].nextSetBit(0) : -1;
+	}
+
+	public IntList getList() {
+		IntList list = new IntList(Math.max(countSet(), 1));
+		for(int i = 0; i < m_keys.length; i++) {
+			m_containers[i].addTo(list, m_keys[i] << BLOCK_BITS);
+		}
+		return list;
+	}
+
+	public int countSet() {
+		int count = 0;
+		for(Container c : m_containers) count += c.cardinality();
+		return count;
+	}
+
+	public long sizeInBytes() {
+		long size = 32 + 4L * m_keys.length;
+		for(Container c : m_containers) size += c.sizeInBytes();
+		return size;
+	}
+
+	public CompressedResult and(CompressedResult other) {
+		List<Integer> keys = new ArrayList<Integer>();
+		List<Container> containers = new ArrayList<Container>();
+		long[] a = new long[BLOCK_WORDS];
+		long[] b = new long[BLOCK_WORDS];
+		int i = 0;
+		int j = 0;
+		while(i < m_keys.length && j < other.m_keys.length) {
+			if(m_keys[i] < other.m_keys[j]) i++;
+			else if(m_keys[i] > other.m_keys[j]) j++;
+			else {
+				Container c1 = m_containers[i];
+				Container c2 = other.m_containers[j];
+				Container c;
+				if(c1 instanceof ArrayContainer && c2 instanceof ArrayContainer) {
+					c = ((ArrayContainer)c1).and((ArrayContainer)c2);
+				} else {
+					load(c1, a);
+					load(c2, b);
+					for(int w = 0; w < BLOCK_WORDS; w++) a[w] &= b[w];
+					c = compress(a, 0, BLOCK_WORDS);
+				}
+				if(c != null) {
+					keys.add(m_keys[i]);
+					containers.add(c);
+				}
+				i++;
+				j++;
+			}
+		}
+		return create(m_size, keys, containers);
+	}
+
+	public CompressedResult or(CompressedResult other) {
+		List<Integer> keys = new ArrayList<Integer>();
+		List<Container> containers = new ArrayList<Container>();
+		long[] a = new long[BLOCK_WORDS];
+		long[] b = new long[BLOCK_WORDS];
+		int i = 0;
+		int j = 0;
+		while(i < m_keys.length || j < other.m_keys.length) {
+			if(j == other.m_keys.length || (i < m_keys.length && m_keys[i] < other.m_keys[j])) {
+				keys.add(m_keys[i]);
+				containers.add(m_containers[i++]);
+			} else if(i == m_keys.length || m_keys[i] > other.m_keys[j]) {
+				keys.add(other.m_keys[j]);
+				containers.add(other.m_containers[j++]);
+			} else {
+				load(m_containers[i], a);
+				load(other.m_containers[j], b);
+				for(int w = 0; w < BLOCK_WORDS; w++) a[w] |= b[w];
+				keys.add(m_keys[i]);
+				containers.add(compress(a, 0, BLOCK_WORDS));
+				i++;
+				j++;
+			}
+		}
+		return create(m_size, keys, containers);
+	}
+
+	public CompressedResult andNot(CompressedResult other) {
+		List<Integer> keys = new ArrayList<Integer>();
+		List<Container> containers = new ArrayList<Container>();
+		long[] a = new long[BLOCK_WORDS];
+		long[] b = new long[BLOCK_WORDS];
+		int j = 0;
+		for(int i = 0; i < m_keys.length; i++) {
+			while(j < other.m_keys.length && other.m_keys[j] < m_keys[i]) j++;
+			Container c = m_containers[i];
+			if(j < other.m_keys.length && other.m_keys[j] == m_keys[i]) {
+				load(c, a);
+				load(other.m_containers[j], b);
+				for(int w = 0; w < BLOCK_WORDS; w++) a[w] &= ~b[w];
+				c = compress(a, 0, BLOCK_WORDS);
+			}
+			if(c != null) {
+				keys.add(m_keys[i]);
+				containers.add(c);
+			}
+		}
+		return create(m_size, keys, containers);
+	}
+
+	// documents of this result that are set in the bitmap of the same size
+	public CompressedResult and(long[] words) {
+		return filter(words, false);
+	}
+
+	// documents of this result that are not set in the bitmap of the same size
+	public CompressedResult andNot(long[] words) {
+		return filter(words, true);
+	}
+
+	private CompressedResult filter(long[] words, boolean exclude) {
+		List<Integer> keys = new ArrayList<Integer>();
+		List<Container> containers = new ArrayList<Container>();
+		long[] a = new long[BLOCK_WORDS];
+		for(int i = 0; i < m_keys.length; i++) {
+			int offset = m_keys[i] * BLOCK_WORDS;
+			int count = Math.min(BLOCK_WORDS, words.length - offset);
+			load(m_containers[i], a);
+			for(int w = 0; w < count; w++) a[w] &= exclude ? ~words[offset + w] : words[offset + w];
+			Container c = compress(a, 0, BLOCK_WORDS);
+			if(c != null) {
+				keys.add(m_keys[i]);
+				containers.add(c);
+			}
+		}
+		return create(m_size, keys, containers);
+	}
+
+	public CompressedResult not() {
+		List<Integer> keys = new ArrayList<Integer>();
+		List<Container> containers = new ArrayList<Container>();
+		long[] a = new long[BLOCK_WORDS];
+		int blocks = (m_size + (1 << BLOCK_BITS) - 1) >>> BLOCK_BITS;
+		int j = 0;
+		for(int key = 0; key < blocks; key++) {
+			Arrays.fill(a, 0);
+			if(j < m_keys.length && m_keys[j] == key) load(m_containers[j++], a);
+			// documents of the block past the end of the result stay clear
+			int docs = Math.min(1 << BLOCK_BITS, m_size - (key << BLOCK_BITS));
+			for(int w = 0; w < BLOCK_WORDS; w++) {
+				int bits = Math.min(64, Math.max(0, docs - w * 64));
+				long mask = bits == 64 ? -1L : (1L << bits) - 1;
+				a[w] = ~a[w] & mask;
+			}
+			Container c = compress(a, 0, BLOCK_WORDS);
+			if(c != null) {
+				keys.add(key);
+				containers.add(c);
+			}
+		}
+		return create(m_size, keys, containers);
+	}
+
+	private static CompressedResult create(int size, List<Integer> keys, List<Container> containers) {
+		int[] k = new int[keys.size()];
+		for(int i = 0; i < k.length; i++) k[i] = keys.get(i);
+		return new CompressedResult(size, k, containers.toArray(new Container[containers.size()]));
+	}
+
+	private static void load(Container c, long[] words) {
+		Arrays.fill(words, 0);
+		c.fill(words, 0);
+	}
+
+	// smallest container of the words [from, to) of one block, or null if no bits are set
+	private static Container compress(long[] words, int from, int to) {
+		int cardinality = 0;
+		int runs = 0;
+		long carry = 0;
+		for(int w = from; w < to; w++) {
+			long x = words[w];
+			cardinality += Long.bitCount(x);
+			// a run starts at every set bit whose preceding bit is clear
+			runs += Long.bitCount(x & ~((x << 1) | carry));
+			carry = x >>> 63;
+		}
+		if(cardinality == 0) return null;
+		long arraySize = 2L * cardinality;
+		long runSize = 4L * runs;
+		long bitmapSize = 8L * BLOCK_WORDS;
+		if(runSize <= arraySize && runSize < bitmapSize) return new RunContainer(words, from, to, runs);
+		if(arraySize < bitmapSize) return new ArrayContainer(words, from, to, cardinality);
+		return new BitmapContainer(words, from, to, cardinality);
+	}
+
+	private static abstract class Container {
+		public abstract int cardinality();
+		public abstract boolean contains(int doc);
+		// first document of the block starting from 'doc', or -1 if there is none
+		public abstract int nextSetBit(int doc);
+		// sets the documents of the block in words starting from 'offset'
+		public abstract void fill(long[] words, int offset);
+		// adds the documents of the block, starting from document 'base'
+		public abstract void addTo(IntList list, int base);
+		public abstract long sizeInBytes();
+	}
+
+	private static class ArrayContainer extends Container {
+		private char[] m_docs;
+
+		public ArrayContainer(char[] docs) { m_docs = docs; }
+
+		public ArrayContainer(long[] words, int from, int to, int cardinality) {
+			m_docs = new char[cardinality];
+			int n = 0;
+			for(int w = from; w < to; w++) {
+				long x = words[w];
+				while(x != 0) {
+					m_docs[n++] = (char)(((w - from) << 6) + Long.numberOfTrailingZeros(x));
+					x &= x - 1;
+				}
+			}
+		}
+
+		public ArrayContainer and(ArrayContainer other) {
+			char[] docs = new char[Math.min(m_docs.length, other.m_docs.length)];
+			int n = 0;
+			int i = 0;
+			int j = 0;
+			while(i < m_docs.length && j < other.m_docs.length) {
+				if(m_docs[i] < other.m_docs[j]) i++;
+				else if(m_docs[i] > other.m_docs[j]) j++;
+				else {
+					docs[n++] = m_docs[i++];
+					j++;
+				}
+			}
+			return n == 0 ? null : new ArrayContainer(Arrays.copyOf(docs, n));
+		}
+
+		@Override public int cardinality() { return m_docs.length; }
+		@Override public boolean contains(int doc) { return Arrays.binarySearch(m_docs, (char)doc) >= 0; }
+		@Override public int nextSetBit(int doc) {
+			int i = Arrays.binarySearch(m_docs, (char)doc);
+			if(i < 0) i = -i - 1;
+			return i < m_docs.length ? m_docs[i] : -1;
+		}
+		@Override public void fill(long[] words, int offset) {
+			for(char doc : m_docs) words[offset + (doc >>> 6)] |= 1L << doc;
+		}
+		@Override public void addTo(IntList list, int base) {
+			for(char doc : m_docs) list.add(base + doc);
+		}
+		@Override public long sizeInBytes() { return 32 + 2L * m_docs.length; }
+	}
+
+	private static class BitmapContainer extends Container {
+		private long[] m_words;
+		private int m_cardinality;
+
+		public BitmapContainer(long[] words, int from, int to, int cardinality) {
+			m_words = Arrays.copyOfRange(words, from, to);
+			m_cardinality = cardinality;
+		}
+
+		@Override public int cardinality() { return m_cardinality; }
+		@Override public boolean contains(int doc) {
+			int w = doc >>> 6;
+			return w < m_words.length && (m_words[w] & (1L << doc)) != 0;
+		}
+		@Override public int nextSetBit(int doc) {
+			int w = doc >>> 6;
+			if(w >= m_words.length) return -1;
+			long word = m_words[w] & (-1L << doc);
+			while(word == 0) {
+				if(++w == m_words.length) return -1;
+				word = m_words[w];
+			}
+			return (w << 6) + Long.numberOfTrailingZeros(word);
+		}
+		@Override public void fill(long[] words, int offset) {
+			// results of operations have full blocks; the last block of the result may be shorter
+			int count = Math.min(m_words.length, words.length - offset);
+			for(int w = 0; w < count; w++) words[offset + w] |= m_words[w];
+		}
+		@Override public void addTo(IntList list, int base) {
+			for(int w = 0; w < m_words.length; w++) {
+				long word = m_words[w];
+				while(word != 0) {
+					list.add(base + (w << 6) + Long.numberOfTrailingZeros(word));
+					word &= word - 1;
+				}
+			}
+		}
+		@Override public long sizeInBytes() { return 32 + 8L * m_words.length; }
+	}
+
+	private static class RunContainer extends Container {
+		// first document and length of each run
+		private char[] m_starts;
+		private char[] m_lengths;
+		private int m_cardinality;
+
+		public RunContainer(long[] words, int from, int to, int runs) {
+			m_starts = new char[runs];
+			m_lengths = new char[runs];
+			int n = 0;
+			int start = -1;
+			int last = -2;
+			for(int w = from; w < to; w++) {
+				long x = words[w];
+				while(x != 0) {
+					int doc = ((w - from) << 6) + Long.numberOfTrailingZeros(x);
+					x &= x - 1;
+					if(doc != last + 1) {
+						if(start >= 0) addRun(n++, start, last);
+						start = doc;
+					}
+					last = doc;
+				}
+			}
+			if(start >= 0) addRun(n++, start, last);
+		}
+
+		private void addRun(int index, int first, int last) {
+			m_starts[index] = (char)first;
+			// lengths are stored minus 1, so that a full block fits into a char
+			m_lengths[index] = (char)(last - first);
+			m_cardinality += last - first + 1;
+		}
+
+		@Override public int cardinality() { return m_cardinality; }
+		@Override public boolean contains(int doc) {
+			int i = Arrays.binarySearch(m_starts, (char)doc);
+			if(i >= 0) return true;
+			i = -i - 2;
+			return i >= 0 && doc <= m_starts[i] + m_lengths[i];
+		}
+		@Override public int nextSetBit(int doc) {
+			int i = Arrays.binarySearch(m_starts, (char)doc);
+			if(i >= 0) return doc;
+			i = -i - 2;
+			if(i >= 0 && doc <= m_starts[i] + m_lengths[i]) return doc;
+			return i + 1 < m_starts.length ? m_starts[i + 1] : -1;
+		}
+		@Override public void fill(long[] words, int offset) {
+			for(int i = 0; i < m_starts.length; i++) {
+				int from = m_starts[i];
+				int to = from + m_lengths[i] + 1;
+				int w1 = from >>> 6;
+				int w2 = (to - 1) >>> 6;
+				long first = -1L << from;
+				long last = -1L >>> (63 - ((to - 1) & 63));
+				if(w1 == w2) words[offset + w1] |= first & last;
+				else {
+					words[offset + w1] |= first;
+					for(int w = w1 + 1; w < w2; w++) words[offset + w] = -1L;
+					words[offset + w2] |= last;
+				}
+			}
+		}
+		@Override public void addTo(IntList list, int base) {
+			for(int i = 0; i < m_starts.length; i++) {
+				int last = base + m_starts[i] + m_lengths[i];
+				for(int doc = base + m_starts[i]; doc <= last; doc++) list.add(doc);
+			}
+		}
+		@Override public long sizeInBytes() { return 48 + 4L * m_starts.length; }
+	}
+
+}
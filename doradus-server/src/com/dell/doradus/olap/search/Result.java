@@ -21,38 +21,109 @@ import com.dell.doradus.olap.store.IntIterator;
 import com.dell.doradus.olap.store.IntList;
 
 public class Result {
+	private int m_size;
+	// documents are held in a bitmap or, while they are sparse, in compressed form
 	private BitVector m_bv;
+	private CompressedResult m_compressed;
 	
 	public Result(int size) {
+		m_size = size;
 		m_bv = new BitVector(size);
 	}
 
 	public Result(Result other) {
-		m_bv = new BitVector(other.m_bv.size());
-		System.arraycopy(other.m_bv.getBuffer(), 0, m_bv.getBuffer(), 0, m_bv.getBuffer().length);
+		m_size = other.m_size;
+		// compressed results are immutable and can be shared
+		if(other.m_compressed != null) m_compressed = other.m_compressed;
+		else m_bv = new BitVector(other.m_bv);
 	}
 	
-	public int size() { return m_bv.size(); }
-	public BitVector getBitVector() { return m_bv; }
+	public Result(CompressedResult compressed) {
+		m_size = compressed.size();
+		m_compressed = compressed;
+		adapt();
+	}
+	
+	public int size() { return m_size; }
+	public BitVector getBitVector() {
+		expand();
+		return m_bv;
+	}
+	public boolean isCompressed() { return m_compressed != null; }
+	public CompressedResult compress() {
+		return m_compressed != null ? m_compressed : CompressedResult.compress(m_bv);
+	}
 	
 	public int countSet() {
-		return m_bv.bitsSet();
+		return m_compressed != null ? m_compressed.countSet() : m_bv.bitsSet();
+	}
+	public boolean get(int index) { return m_compressed != null ? m_compressed.get(index) : m_bv.get(index); }
+	// first set document starting from 'from', or -1 if there is none
+	public int nextSetBit(int from) {
+		return m_compressed != null ? m_compressed.nextSetBit(from) : m_bv.nextSetBit(from);
+	}
+	public void set(int index) { getBitVector().set(index); }
+	public void clear(int index) { getBitVector().clear(index); }
+	public void clear() {
+		m_compressed = null;
+		if(m_bv == null) m_bv = new BitVector(m_size);
+		else m_bv.clearAll();
 	}
-	public boolean get(int index) { return m_bv.get(index); }
-	public void set(int index) { m_bv.set(index); }
-	public void clear(int index) { m_bv.clear(index); }
-	public void clear() { m_bv.clearAll(); }
 	
-	public void not() { m_bv.not(); }
+	public void not() {
+		if(m_compressed != null) {
+			m_compressed = m_compressed.not();
+			adapt();
+		} else m_bv.not();
+	}
 	
-	public void or(Result r2) { m_bv.or(r2.m_bv); }
-	public void and(Result r2) { m_bv.and(r2.m_bv); }
-	public void andNot(Result r2) { m_bv.andNot(r2.m_bv); }
+	public void or(Result r2) {
+		if(m_compressed != null && r2.m_compressed != null) {
+			m_compressed = m_compressed.or(r2.m_compressed);
+			adapt();
+		} else if(r2.m_compressed != null) {
+			r2.m_compressed.fill(m_bv.getWords());
+		} else getBitVector().or(r2.m_bv);
+	}
+	public void and(Result r2) {
+		if(m_compressed != null && r2.m_compressed != null) {
+			m_compressed = m_compressed.and(r2.m_compressed);
+			adapt();
+		} else if(m_compressed != null) {
+			m_compressed = m_compressed.and(r2.m_bv.getWords());
+			adapt();
+		} else if(r2.m_compressed != null) {
+			r2.m_compressed.andInto(m_bv.getWords());
+		} else m_bv.and(r2.m_bv);
+	}
+	public void andNot(Result r2) {
+		if(m_compressed != null && r2.m_compressed != null) {
+			m_compressed = m_compressed.andNot(r2.m_compressed);
+			adapt();
+		} else if(m_compressed != null) {
+			m_compressed = m_compressed.andNot(r2.m_bv.getWords());
+			adapt();
+		} else if(r2.m_compressed != null) {
+			r2.m_compressed.andNotInto(m_bv.getWords());
+		} else m_bv.andNot(r2.m_bv);
+	}
 	
 	public IntIterator iterate() {
-		IntList array = m_bv.getList();
+		IntList array = m_compressed != null ? m_compressed.getList() : m_bv.getList();
 		IntIterator iter = new IntIterator();
 		array.set(iter);
 		return iter;
 	}
+	
+	// keeps the compressed form only while it is sparse
+	private void adapt() {
+		if(m_compressed != null && !m_compressed.isSparse()) expand();
+	}
+	
+	private void expand() {
+		if(m_compressed == null) return;
+		m_bv = new BitVector(m_size);
+		m_compressed.fill(m_bv.getWords());
+		m_compressed = null;
+	}
 }
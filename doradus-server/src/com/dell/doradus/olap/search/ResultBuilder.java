@@ -34,6 +34,7 @@ import com.dell.doradus.olap.store.FieldSearcher;
 import com.dell.doradus.olap.store.IdSearcher;
 import com.dell.doradus.olap.store.NumSearcher;
 import com.dell.doradus.olap.store.NumSearcherMV;
+import com.dell.doradus.olap.store.TrigramSearcher;
 import com.dell.doradus.olap.store.ValueSearcher;
 import com.dell.doradus.olap.xlink.XLinkContext;
 import com.dell.doradus.olap.xlink.XLinkQuery;
@@ -57,60 +58,85 @@ import com.dell.doradus.search.query.OrQuery;
 import com.dell.doradus.search.query.Query;
 import com.dell.doradus.search.query.RangeQuery;
 import com.dell.doradus.search.query.TransitiveLinkQuery;
-import com.dell.doradus.search.util.LRUSizeCache;
+import com.dell.doradus.search.util.ConcurrentSizeCache;
 
 public class ResultBuilder {
 	private static int queryCache = -1;
-	private static LRUSizeCache<String, Result> m_cache;
+	// results are cached compressed: selective queries take a few bytes instead of a bitmap
+	private static ConcurrentSizeCache<String, CompressedResult> m_cache;
 	
-	public static Result search(TableDefinition tableDef, Query query, CubeSearcher searcher) {
+	public static Result search(final TableDefinition tableDef, final Query query, final CubeSearcher searcher) {
 		synchronized(ResultBuilder.class) {
 			if(queryCache == -1) {
 				queryCache = ServerConfig.getInstance().olap_query_cache_size_mb;
 				if(queryCache > 0) {
-					m_cache = new LRUSizeCache<String, Result>(0, queryCache * 1024L * 1024);
+					m_cache = new ConcurrentSizeCache<String, CompressedResult>(queryCache * 1024L * 1024);
 				}
 			}
 		}
 		boolean skipCache = m_cache == null || XLinkContext.isXLinkQuery(tableDef, query); 
 		if(skipCache) return searchInternal(tableDef, query, searcher);
 		
-		String key = searcher.getId() + "/" + tableDef.getTableName() + "/" + query.toString();
-		Result result = m_cache.get(key);
-		if(result != null) {
-			Result newResult = new Result(result);
-			return newResult;
-		}
-		result = searchInternal(tableDef, query, searcher);
-		m_cache.put(key, result, result.getBitVector().getBuffer().length + 2 * key.length() + 16);
-		//return result;
-		Result newResult = new Result(result);
-		return newResult;
+		final String key = searcher.getId() + "/" + tableDef.getTableName() + "/" + query.toString();
+		// the same query run concurrently is searched once
+		final Result[] computed = new Result[1];
+		CompressedResult cached = m_cache.get(key, new ConcurrentSizeCache.Loader<CompressedResult>() {
+			@Override public CompressedResult load() {
+				computed[0] = searchInternal(tableDef, query, searcher);
+				return computed[0].compress();
+			}
+			@Override public long sizeOf(CompressedResult value) {
+				return value.sizeInBytes() + 2 * key.length() + 16;
+			}
+		});
+		// the cache holds its own copy, so a dense result computed here can be returned as is;
+		// sparse results share the immutable compressed form until something needs a bitmap
+		if(computed[0] != null && !cached.isSparse()) return computed[0];
+		return new Result(cached);
 	}
 	
 	
 	private static Result searchInternal(TableDefinition tableDef, Query query, CubeSearcher searcher) {
-		Result r = new Result(searcher.getDocs(tableDef.getTableName()));
-		if(query instanceof AllQuery) {
-			r.not();
-		} else if(query instanceof AndQuery) {
-			r.not();
+		// AND/OR/NOT combine the results of the subqueries, which stay compressed while they are sparse
+		if(query instanceof AndQuery) {
+			Result r = null;
 			for(Query qu : ((AndQuery)query).subqueries) {
 				Result c = search(tableDef, qu, searcher);
-				r.and(c);
+				if(r == null) r = c;
+				else if(c.isCompressed() && !r.isCompressed()) {
+					// the intersection is computed on the sparse side
+					c.and(r);
+					r = c;
+				}
+				else r.and(c);
 			}
-		} else if(query instanceof NoneQuery) {
+			if(r != null) return r;
 		} else if(query instanceof OrQuery) {
 			IdInQuery iiq = IdInQuery.tryCreate((OrQuery)query);
 			if(iiq != null) return searchInternal(tableDef, iiq, searcher);
 			
+			Result r = null;
 			for(Query qu : ((OrQuery)query).subqueries) {
 				Result c = search(tableDef, qu, searcher);
-				r.or(c);
+				if(r == null) r = c;
+				else if(!c.isCompressed() && r.isCompressed()) {
+					// the union is computed in the bitmap
+					c.or(r);
+					r = c;
+				}
+				else r.or(c);
 			}
+			if(r != null) return r;
 		} else if(query instanceof NotQuery) {
-			r = search(tableDef, ((NotQuery)query).innerQuery, searcher);
+			Result r = search(tableDef, ((NotQuery)query).innerQuery, searcher);
+			r.not();
+			return r;
+		}
+		
+		Result r = new Result(searcher.getDocs(tableDef.getTableName()));
+		if(query instanceof AllQuery || query instanceof AndQuery) {
 			r.not();
+		} else if(query instanceof NoneQuery || query instanceof OrQuery) {
 		} else if(query instanceof IdInQuery) {
 			IdInQuery iiq = (IdInQuery)query;
 			List<BSTR> ids = new ArrayList<BSTR>(iiq.ids.size());
@@ -158,13 +184,7 @@ public class ResultBuilder {
 					else if(idx2 >= 0 && idx2 < idx) idx = idx2;
 					
 					if(idx >= 0 && idx != value.length() - 1) {
-						Result vr = new Result(vs.size());
-						for(int i = 0; i < vs.size(); i++) {
-							String str = vs.getValue(i).toString();
-							if(Utils.matchesPattern(str, value)) {
-								vr.set(i);
-							}
-						}
+						Result vr = matchValues(searcher, tableDef.getTableName(), field, vs, BinaryQuery.EQUALS, value);
 						FieldSearcher field_searcher = searcher.getFieldSearcher(tableDef.getTableName(), field);
 						field_searcher.fillDocs(vr, r);
 					}
@@ -187,20 +207,12 @@ public class ResultBuilder {
 					}
 				}
 				else if(bq.operation.equals(BinaryQuery.CONTAINS)) {
-					Result vr = new Result(vs.size());
-					for(int i = 0; i < vs.size(); i++) {
-						String str = vs.getValue(i).toString();
-						if(FilterContains.compare(str, value)) vr.set(i);
-					}
+					Result vr = matchValues(searcher, tableDef.getTableName(), field, vs, BinaryQuery.CONTAINS, value);
 					FieldSearcher field_searcher = searcher.getFieldSearcher(tableDef.getTableName(), field);
 					field_searcher.fillDocs(vr, r);
 				}
 				else if(bq.operation.equals(BinaryQuery.REGEXP)) {
-					Result vr = new Result(vs.size());
-					for(int i = 0; i < vs.size(); i++) {
-						String str = vs.getValue(i).toString();
-						if(Pattern.matches(value, str)) vr.set(i);
-					}
+					Result vr = matchValues(searcher, tableDef.getTableName(), field, vs, BinaryQuery.REGEXP, value);
 					FieldSearcher field_searcher = searcher.getFieldSearcher(tableDef.getTableName(), field);
 					field_searcher.fillDocs(vr, r);
 				}
@@ -258,11 +270,7 @@ public class ResultBuilder {
 					else if(idx2 >= 0 && idx2 < idx) idx = idx2;
 					
 					if(idx >= 0 && idx != value.length() - 1) {
-						Result vr = new Result(vs.size());
-						for(int i = 0; i < vs.size(); i++) {
-							String str = vs.getValue(i).toString();
-							if(Utils.matchesPattern(str, value)) vr.set(i);
-						}
+						Result vr = matchValues(searcher, tableDef.getTableName(), field, vs, BinaryQuery.EQUALS, value);
 						if(LinkQuery.ALL.equals(mvs.quantifier)) vr.not();
 						FieldSearcher field_searcher = searcher.getFieldSearcher(tableDef.getTableName(), field);
 						field_searcher.fillDocs(vr, r);
@@ -308,11 +316,7 @@ public class ResultBuilder {
 					}
 				}
 				else if(bq.operation.equals(BinaryQuery.CONTAINS)) {
-					Result vr = new Result(vs.size());
-					for(int i = 0; i < vs.size(); i++) {
-						String str = vs.getValue(i).toString();
-						if(FilterContains.compare(str, value)) vr.set(i);
-					}
+					Result vr = matchValues(searcher, tableDef.getTableName(), field, vs, BinaryQuery.CONTAINS, value);
 					if(LinkQuery.ALL.equals(mvs.quantifier)) vr.not();
 					FieldSearcher field_searcher = searcher.getFieldSearcher(tableDef.getTableName(), field);
 					field_searcher.fillDocs(vr, r);
@@ -323,11 +327,7 @@ public class ResultBuilder {
 					}
 				}
 				else if(bq.operation.equals(BinaryQuery.REGEXP)) {
-					Result vr = new Result(vs.size());
-					for(int i = 0; i < vs.size(); i++) {
-						String str = vs.getValue(i).toString();
-						if(Pattern.matches(value, str)) vr.set(i);
-					}
+					Result vr = matchValues(searcher, tableDef.getTableName(), field, vs, BinaryQuery.REGEXP, value);
 					if(LinkQuery.ALL.equals(mvs.quantifier)) vr.not();
 					FieldSearcher field_searcher = searcher.getFieldSearcher(tableDef.getTableName(), field);
 					field_searcher.fillDocs(vr, r);
@@ -608,6 +608,33 @@ public class ResultBuilder {
 		return r;
 	}
 
+	// values of a text field matching an infix wildcard (EQUALS), CONTAINS or REGEXP query.
+	// If the field has a term index, only the values containing the literals of the query are checked
+	private static Result matchValues(CubeSearcher searcher, String table, String field, ValueSearcher vs, String operation, String value) {
+		Result vr = new Result(vs.size());
+		Pattern pattern = BinaryQuery.REGEXP.equals(operation) ? Pattern.compile(value) : null;
+		int[] candidates = null;
+		TrigramSearcher trigrams = searcher.getTrigramSearcher(table, field);
+		if(trigrams != null) {
+			List<String> literals;
+			if(BinaryQuery.CONTAINS.equals(operation)) literals = TrigramSearcher.containsLiterals(value);
+			else if(pattern != null) literals = TrigramSearcher.regexpLiterals(value);
+			else literals = TrigramSearcher.wildcardLiterals(value);
+			candidates = trigrams.candidates(literals);
+		}
+		int count = candidates == null ? vs.size() : candidates.length;
+		for(int j = 0; j < count; j++) {
+			int i = candidates == null ? j : candidates[j];
+			String str = vs.getValue(i).toString();
+			boolean match;
+			if(pattern != null) match = pattern.matcher(str).matches();
+			else if(BinaryQuery.CONTAINS.equals(operation)) match = FilterContains.compare(str, value);
+			else match = Utils.matchesPattern(str, value);
+			if(match) vr.set(i);
+		}
+		return vr;
+	}
+
 }
 
 
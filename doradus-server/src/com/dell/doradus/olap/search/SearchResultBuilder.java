@@ -43,7 +43,7 @@ public class SearchResultBuilder {
 		fieldSet.limit = size;
 		FieldSetCreator fieldSetCreator = new FieldSetCreator(searcher, fieldSet, order);
 		FVS fvs = new FVS();
-		IntIterator documents_iter = SearchResultComparer.sort(searcher, documents, order, size);
+		IntIterator documents_iter = SearchResultComparer.sort(searcher, documents, order, size, fieldSetCreator);
 		IntIterator iter = new IntIterator();
 		fill(searcher, documents_iter, fvs, fieldSetCreator, iter);
 		fvs.resolve(searcher);
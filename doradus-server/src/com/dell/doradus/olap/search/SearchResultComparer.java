@@ -16,6 +16,12 @@
 
 package com.dell.doradus.olap.search;
 
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import com.dell.doradus.common.FieldDefinition;
+import com.dell.doradus.common.FieldType;
 import com.dell.doradus.olap.store.CubeSearcher;
 import com.dell.doradus.olap.store.FieldSearcher;
 import com.dell.doradus.olap.store.IntIterator;
@@ -25,15 +31,19 @@ import com.dell.doradus.search.aggregate.AggregationGroupItem;
 import com.dell.doradus.search.aggregate.SortOrder;
 import com.dell.doradus.search.util.HeapList;
 
+/**
+ * Selects the first 'size' documents of the result in the sort order, so that only them are
+ * built as SearchResults and sorted. Every document is given the sorted set of the values that
+ * the sort path reaches, as longs: term numbers of text fields, which are in the order of the
+ * lower-cased values, numbers of linked documents, which are in the order of their ids, and
+ * numeric values. These sets compare like the sort keys of SearchResult.compareTo, so the
+ * selected documents are the ones that the full sort would put first.
+ */
 public class SearchResultComparer {
-	public static IntIterator sort(CubeSearcher searcher, Result result, SortOrder order, int size) {
+	public static IntIterator sort(CubeSearcher searcher, Result result, SortOrder order, int size, FieldSetCreator fieldSetCreator) {
 		//will sort later
 		if(size >= result.countSet()) return result.iterate();
-		//link paths will be sorted after all values are retrieved
-		if(order != null && order.items.size() > 1) return result.iterate();
-		//sort by multivalued values is not optimized as well 
-		if(order != null && order.items.size() == 1 && order.items.get(0).fieldDef.isCollection()) return result.iterate();
-		if(order == null) {
+		if(order == null || order.items.size() == 0) {
 			int[] res = new int[size];
 			int num = 0;
 			for(int i = 0; i < result.size(); i++) {
@@ -43,37 +53,20 @@ public class SearchResultComparer {
 			}
 			return new IntIterator(res, 0, res.length);
 		}
-		//if(order.items.size() != 1) throw new IllegalArgumentException("Paths are not supported in the sort order");
-		AggregationGroupItem item = order.items.get(0);
-		
-		HeapList<DocAndField> heap = new HeapList<DocAndField>(size);
-		DocAndField cur = new DocAndField();
 		
-		if(NumSearcher.isNumericType(item.fieldDef.getType())) {
-			NumSearcherMV s = searcher.getNumSearcher(item.fieldDef.getTableName(), item.fieldDef.getName());
-			for(int i = 0; i < result.size(); i++) {
-				if(!result.get(i)) continue;
-				if(cur == null) cur = new DocAndField();
-				cur.doc = i;
-				cur.field = s.isNull(i) ? Long.MIN_VALUE : s.get(i, 0);
-				if(!order.ascending) cur.field = -cur.field;
-				cur = heap.AddEx(cur);
-			}
-		}
-		else {
-			FieldSearcher s = searcher.getFieldSearcher(item.fieldDef.getTableName(), item.fieldDef.getName());
-			IntIterator ii = new IntIterator();
-			for(int i = 0; i < result.size(); i++) {
-				if(!result.get(i)) continue;
-				if(cur == null) cur = new DocAndField();
-				cur.doc = i;
-				s.fields(i, ii);
-				if(ii.count() != 0) cur.field = ii.get(0);
-				if(!order.ascending) cur.field = -cur.field;
-				cur = heap.AddEx(cur);
-			}
+		SortPath path = new SortPath(searcher, order.items, fieldSetCreator);
+		HeapList<DocAndKeys> heap = new HeapList<DocAndKeys>(size, new KeysComparer(order.ascending));
+		DocAndKeys cur = new DocAndKeys();
+		for(int i = 0; i < result.size(); i++) {
+			if(!result.get(i)) continue;
+			if(cur == null) cur = new DocAndKeys();
+			cur.doc = i;
+			cur.count = 0;
+			path.collect(0, i, cur);
+			cur.normalize();
+			cur = heap.AddEx(cur);
 		}
-		DocAndField[] arr = heap.GetValues(DocAndField.class);
+		DocAndKeys[] arr = heap.GetValues(DocAndKeys.class);
 		int[] res = new int[arr.length];
 		for(int i = 0; i < arr.length; i++) {
 			res[i] = arr[i].doc;
@@ -81,12 +74,130 @@ public class SearchResultComparer {
 		return new IntIterator(res, 0, res.length);
 	}
 	
-	public static class DocAndField implements Comparable<DocAndField> {
+	// searchers of the fields of the sort path
+	private static class SortPath {
+		private int m_last;
+		// link fields of the path, including the last item if it is a link
+		private FieldSearcher[] m_links;
+		// field sets of the linked documents that are built, which restrict the linked documents
+		// taken by SearchResult; null if the link is not in the field set
+		private FieldSetCreator[] m_linkSets;
+		private IntIterator[] m_iters;
+		private FieldType m_type;
+		private FieldSearcher m_text;
+		private NumSearcherMV m_num;
+		
+		SortPath(CubeSearcher searcher, List<AggregationGroupItem> items, FieldSetCreator fieldSetCreator) {
+			m_last = items.size() - 1;
+			m_links = new FieldSearcher[items.size()];
+			m_linkSets = new FieldSetCreator[items.size()];
+			m_iters = new IntIterator[items.size()];
+			FieldSetCreator set = fieldSetCreator;
+			for(int i = 0; i < items.size(); i++) {
+				FieldDefinition fieldDef = items.get(i).fieldDef;
+				m_iters[i] = new IntIterator();
+				if(fieldDef.isLinkField()) {
+					m_links[i] = searcher.getFieldSearcher(fieldDef.getTableName(), fieldDef.getName());
+					List<FieldSetCreator> sets = set == null ? null : set.links.get(fieldDef.getName());
+					set = sets == null || sets.size() == 0 ? null : sets.get(0);
+					m_linkSets[i] = set;
+				} else if(i != m_last) {
+					throw new IllegalArgumentException("in sort order " + fieldDef.getName() + " should be a link field");
+				} else {
+					m_type = fieldDef.getType();
+					if(NumSearcher.isNumericType(m_type)) m_num = searcher.getNumSearcher(fieldDef.getTableName(), fieldDef.getName());
+					else m_text = searcher.getFieldSearcher(fieldDef.getTableName(), fieldDef.getName());
+				}
+			}
+		}
+		
+		void collect(int index, int doc, DocAndKeys keys) {
+			if(m_links[index] == null) {
+				collectValues(doc, keys);
+				return;
+			}
+			IntIterator iter = m_iters[index];
+			m_links[index].fields(doc, iter);
+			FieldSetCreator set = m_linkSets[index];
+			int num = 0;
+			for(int i = 0; i < iter.count(); i++) {
+				if(set != null && num >= set.limit) break;
+				int linked = iter.get(i);
+				if(set != null && set.filter != null && !set.filter.get(linked)) continue;
+				num++;
+				if(index == m_last) keys.add(linked);
+				else collect(index + 1, linked, keys);
+			}
+		}
+		
+		private void collectValues(int doc, DocAndKeys keys) {
+			if(m_num != null) {
+				int count = m_num.size(doc);
+				// a missing value is an empty key in SearchResult, before all the others
+				if(count == 0) keys.add(Long.MIN_VALUE);
+				for(int i = 0; i < count; i++) {
+					long value = m_num.get(doc, i);
+					if(m_type == FieldType.DOUBLE) value = NumSearcher.sortableBits(Double.longBitsToDouble(value));
+					else if(m_type == FieldType.FLOAT) value = NumSearcher.sortableBits(Float.intBitsToFloat((int)value));
+					keys.add(value);
+				}
+			} else {
+				IntIterator iter = m_iters[m_last];
+				m_text.fields(doc, iter);
+				if(iter.count() == 0) keys.add(-1);
+				for(int i = 0; i < iter.count(); i++) keys.add(iter.get(i));
+			}
+		}
+	}
+	
+	public static class DocAndKeys {
 		public int doc;
-		public long field;
-		@Override public int compareTo(DocAndField o) {
-			if(field != o.field) return field > o.field ? 1 : -1;
-			else return doc - o.doc;
+		public long[] keys = new long[4];
+		public int count;
+		
+		void add(long key) {
+			if(count == keys.length) keys = Arrays.copyOf(keys, count * 2);
+			keys[count++] = key;
+		}
+		
+		// sorts the keys and removes the duplicates
+		void normalize() {
+			if(count < 2) return;
+			Arrays.sort(keys, 0, count);
+			int n = 1;
+			for(int i = 1; i < count; i++) {
+				if(keys[i] != keys[n - 1]) keys[n++] = keys[i];
+			}
+			count = n;
+		}
+	}
+	
+	// same order as SearchResult.compareTo; documents with equal keys are kept in the order of the result
+	private static class KeysComparer implements Comparator<DocAndKeys> {
+		private boolean m_ascending;
+		
+		KeysComparer(boolean ascending) { m_ascending = ascending; }
+		
+		@Override public int compare(DocAndKeys x, DocAndKeys y) {
+			int c = compareKeys(x, y);
+			return c != 0 ? c : Integer.compare(x.doc, y.doc);
+		}
+		
+		private int compareKeys(DocAndKeys x, DocAndKeys y) {
+			int minK = Math.min(x.count, y.count);
+			if(m_ascending) {
+				for(int i = 0; i < minK; i++) {
+					if(x.keys[i] != y.keys[i]) return x.keys[i] < y.keys[i] ? -1 : 1;
+				}
+				return Integer.compare(x.count, y.count);
+			} else {
+				for(int i = 1; i <= minK; i++) {
+					long kx = x.keys[x.count - i];
+					long ky = y.keys[y.count - i];
+					if(kx != ky) return kx < ky ? 1 : -1;
+				}
+				return -Integer.compare(x.count, y.count);
+			}
 		}
 	}
 }
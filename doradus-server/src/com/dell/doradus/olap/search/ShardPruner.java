@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2014 Dell, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dell.doradus.olap.search;
+
+import com.dell.doradus.common.FieldDefinition;
+import com.dell.doradus.common.FieldType;
+import com.dell.doradus.common.TableDefinition;
+import com.dell.doradus.olap.io.BSTR;
+import com.dell.doradus.olap.store.BloomFilter;
+import com.dell.doradus.olap.store.CubeSearcher;
+import com.dell.doradus.olap.store.NumSearcher;
+import com.dell.doradus.olap.store.SegmentStats;
+import com.dell.doradus.search.query.AllQuery;
+import com.dell.doradus.search.query.AndQuery;
+import com.dell.doradus.search.query.BinaryQuery;
+import com.dell.doradus.search.query.LinkQuery;
+import com.dell.doradus.search.query.MVSBinaryQuery;
+import com.dell.doradus.search.query.NoneQuery;
+import com.dell.doradus.search.query.OrQuery;
+import com.dell.doradus.search.query.Query;
+import com.dell.doradus.search.query.RangeQuery;
+
+/**
+ * Tells from the statistics of a segment, without loading its fields, whether a query
+ * cannot match any document of the segment, so that the shard can be skipped.
+ * Numeric equalities and ranges are checked against the minimum and maximum values
+ * of the field, with the same comparisons as ResultBuilder; text equalities without
+ * wildcards are checked against the Bloom filter of the field, if it has one.
+ * Other queries are assumed to match.
+ */
+public class ShardPruner {
+
+	// returns false if no document of the table in the segment matches the query
+	public static boolean mayMatch(CubeSearcher searcher, TableDefinition tableDef, Query query) {
+		SegmentStats.Table table = searcher.getStats().getTable(tableDef.getTableName());
+		if(table == null || table.documents == 0) return false;
+		return mayMatch(searcher, tableDef, table, query);
+	}
+	
+	private static boolean mayMatch(CubeSearcher searcher, TableDefinition tableDef, SegmentStats.Table table, Query query) {
+		if(query instanceof AllQuery) return true;
+		if(query instanceof NoneQuery) return false;
+		if(query instanceof AndQuery) {
+			for(Query q : ((AndQuery)query).subqueries) {
+				if(!mayMatch(searcher, tableDef, table, q)) return false;
+			}
+			return true;
+		}
+		if(query instanceof OrQuery) {
+			for(Query q : ((OrQuery)query).subqueries) {
+				if(mayMatch(searcher, tableDef, table, q)) return true;
+			}
+			return false;
+		}
+		if(query instanceof BinaryQuery) return mayMatch(searcher, tableDef, table, (BinaryQuery)query);
+		if(query instanceof MVSBinaryQuery) {
+			// some value of the field matches
+			MVSBinaryQuery mvs = (MVSBinaryQuery)query;
+			if(!LinkQuery.ANY.equals(mvs.quantifier)) return true;
+			return mayMatch(searcher, tableDef, table, mvs.innerQuery);
+		}
+		if(query instanceof RangeQuery) return mayMatch(tableDef, table, (RangeQuery)query);
+		return true;
+	}
+	
+	private static boolean mayMatch(CubeSearcher searcher, TableDefinition tableDef, SegmentStats.Table table, BinaryQuery query) {
+		if(query.field == null || query.value == null || "*".equals(query.value)) return true;
+		if(!BinaryQuery.EQUALS.equals(query.operation)) return true;
+		FieldDefinition fieldDef = tableDef.getFieldDef(query.field);
+		if(fieldDef == null) return true;
+		if(fieldDef.getType() == FieldType.TEXT) {
+			if(query.value.indexOf('*') >= 0 || query.value.indexOf('?') >= 0) return true;
+			SegmentStats.Table.TextField field = table.textFields.get(query.field);
+			if(field == null) return true;
+			if(field.valuesCount == 0) return false;
+			BloomFilter bloom = searcher.getBloomFilter(table.name, query.field);
+			return bloom == null || bloom.mightContain(new BSTR(query.value.toLowerCase()));
+		}
+		if(NumSearcher.isNumericType(fieldDef.getType())) {
+			SegmentStats.Table.NumField field = table.numFields.get(query.field);
+			if(field == null) return true;
+			long value;
+			try {
+				value = NumSearcher.parse(query.value, fieldDef.getType());
+			} catch(RuntimeException e) {
+				// invalid values are reported by the search
+				return true;
+			}
+			return field.min <= value && value <= field.max;
+		}
+		return true;
+	}
+	
+	private static boolean mayMatch(TableDefinition tableDef, SegmentStats.Table table, RangeQuery query) {
+		FieldDefinition fieldDef = tableDef.getFieldDef(query.field);
+		if(fieldDef == null || !NumSearcher.isNumericType(fieldDef.getType())) return true;
+		SegmentStats.Table.NumField field = table.numFields.get(query.field);
+		if(field == null) return true;
+		// matched values are in [min, max), as in ResultBuilder
+		long min = Long.MIN_VALUE;
+		long max = Long.MAX_VALUE;
+		try {
+			if(query.min != null) min = NumSearcher.parse(query.min, fieldDef.getType());
+			if(query.max != null) max = NumSearcher.parse(query.max, fieldDef.getType());
+		} catch(RuntimeException e) {
+			return true;
+		}
+		if(!query.minInclusive) min++;
+		if(query.maxInclusive) max++;
+		return field.max >= min && field.min < max;
+	}
+	
+}
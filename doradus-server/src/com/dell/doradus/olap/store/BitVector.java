@@ -16,94 +16,121 @@
 
 package com.dell.doradus.olap.store;
 
+import java.util.Arrays;
+
+import com.dell.doradus.olap.io.VInputStream;
+import com.dell.doradus.olap.io.VOutputStream;
+
+/**
+ * Bit set over 64-bit words. Bit i is bit (i % 64) of word (i / 64); bits past size are always 0.
+ * <p>
+ * Serialized form is (size + 7) / 8 bytes with bit i in bit (i % 8) of byte (i / 8),
+ * which is the little-endian byte order of the words.
+ */
 public class BitVector {
-	private static final int[] COUNTS = new int[256]; 
-	
-	static {
-		for(int b = 0; b < 256; b++) {
-			int cnt = 0;
-			if((b & 1) != 0) cnt++;
-			if((b & 2) != 0) cnt++;
-			if((b & 4) != 0) cnt++;
-			if((b & 8) != 0) cnt++;
-			if((b & 16) != 0) cnt++;
-			if((b & 32) != 0) cnt++;
-			if((b & 64) != 0) cnt++;
-			if((b & 128) != 0) cnt++;
-			COUNTS[b] = cnt;
-		}
-	}
-	
 	private int m_size;
-	private byte[] m_buffer;
-	private byte m_lastMask;
-	
+	private long[] m_words;
 	
 	public BitVector(int size) {
 		m_size = size;
-		m_buffer = new byte[(size + 7) / 8];
-		m_lastMask = (byte)((1 << (size % 8)) - 1); 
+		m_words = new long[(size + 63) >>> 6];
 	}
 
+	public BitVector(BitVector other) {
+		m_size = other.m_size;
+		m_words = other.m_words.clone();
+	}
+	
 	public int size() { return m_size; }
-	public byte[] getBuffer() { return m_buffer; }
+	public long[] getWords() { return m_words; }
 	
 	public void set(int i) {
-		m_buffer[i / 8] |= (1 << (i % 8));
+		m_words[i >>> 6] |= 1L << i;
 	}
 
 	public void clear(int i) {
-		m_buffer[i / 8] &= ~(1 << (i % 8));
+		m_words[i >>> 6] &= ~(1L << i);
 	}
 	
 	public boolean get(int i) {
-		return (m_buffer[i / 8] & (1 << (i % 8))) != 0;
+		return (m_words[i >>> 6] & (1L << i)) != 0;
 	}
 	
 	public int bitsSet() {
 		int cnt = 0;
-		for(int i = 0; i < m_buffer.length; i++) {
-			cnt += COUNTS[m_buffer[i] & 0xFF];
+		for(int i = 0; i < m_words.length; i++) {
+			cnt += Long.bitCount(m_words[i]);
 		}
 		return cnt;
 	}
 	
+	// index of the first set bit starting from 'from', or -1 if there is none
+	public int nextSetBit(int from) {
+		if(from >= m_size) return -1;
+		int w = from >>> 6;
+		long word = m_words[w] & (-1L << from);
+		while(word == 0) {
+			if(++w == m_words.length) return -1;
+			word = m_words[w];
+		}
+		return (w << 6) + Long.numberOfTrailingZeros(word);
+	}
+	
 	public void and(BitVector bv) {
-		for(int i = 0; i < m_buffer.length; i++) m_buffer[i] &= bv.m_buffer[i];
+		for(int i = 0; i < m_words.length; i++) m_words[i] &= bv.m_words[i];
 	}
 	public void or(BitVector bv) {
-		for(int i = 0; i < m_buffer.length; i++) m_buffer[i] |= bv.m_buffer[i];
+		for(int i = 0; i < m_words.length; i++) m_words[i] |= bv.m_words[i];
 	}
 	public void andNot(BitVector bv) {
-		for(int i = 0; i < m_buffer.length; i++) m_buffer[i] &= ~bv.m_buffer[i];
+		for(int i = 0; i < m_words.length; i++) m_words[i] &= ~bv.m_words[i];
 	}
 	public void not() {
-		for(int i = 0; i < m_buffer.length; i++) m_buffer[i] = (byte)~m_buffer[i];
-		if(m_lastMask != 0) m_buffer[m_buffer.length - 1] &= m_lastMask;
+		for(int i = 0; i < m_words.length; i++) m_words[i] = ~m_words[i];
+		clearTail();
 	}
 	public void clearAll() {
-		for(int i = 0; i < m_buffer.length; i++) m_buffer[i] = 0;
+		Arrays.fill(m_words, 0);
 	}
 	public void setAll() {
-		for(int i = 0; i < m_buffer.length; i++) m_buffer[i] = -1;
+		Arrays.fill(m_words, -1L);
+		clearTail();
 	}
 	
 	public IntList getList() {
-		IntList list = new IntList();
-		for(int i = 0; i < m_buffer.length; i++) {
-			int j = (i * 8);
-			byte b = m_buffer[i];
-			if(b == 0) continue;
-			if((b & 1) != 0) list.add(j + 0);
-			if((b & 2) != 0) list.add(j + 1);
-			if((b & 4) != 0) list.add(j + 2);
-			if((b & 8) != 0) list.add(j + 3);
-			if((b & 16) != 0) list.add(j + 4);
-			if((b & 32) != 0) list.add(j + 5);
-			if((b & 64) != 0) list.add(j + 6);
-			if((b & 128) != 0) list.add(j + 7);
+		IntList list = new IntList(Math.max(bitsSet(), 1));
+		for(int w = 0; w < m_words.length; w++) {
+			long word = m_words[w];
+			while(word != 0) {
+				list.add((w << 6) + Long.numberOfTrailingZeros(word));
+				word &= word - 1;
+			}
 		}
-		list.shrinkToSize();
 		return list;
 	}
+	
+	public int getByteLength() { return (m_size + 7) / 8; }
+	
+	public void read(VInputStream stream) {
+		int bytes = getByteLength();
+		int words = bytes / 8;
+		stream.readLongs(m_words, 0, words);
+		for(int i = words * 8; i < bytes; i++) {
+			m_words[words] |= (long)stream.readByte() << ((i % 8) * 8);
+		}
+		clearTail();
+	}
+
+	public void write(VOutputStream stream) {
+		int bytes = getByteLength();
+		int words = bytes / 8;
+		stream.writeLongs(m_words, 0, words);
+		for(int i = words * 8; i < bytes; i++) {
+			stream.writeByte((byte)(m_words[words] >>> ((i % 8) * 8)));
+		}
+	}
+	
+	private void clearTail() {
+		if((m_size & 63) != 0) m_words[m_words.length - 1] &= (1L << m_size) - 1;
+	}
 }
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2014 Dell, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dell.doradus.olap.store;
+
+import com.dell.doradus.olap.io.BSTR;
+import com.dell.doradus.olap.io.VDirectory;
+import com.dell.doradus.olap.io.VInputStream;
+import com.dell.doradus.olap.io.VOutputStream;
+
+/**
+ * Bloom filter of the terms of a text field, written by ValueWriter for fields with few
+ * distinct values, so that an equality query can skip a segment that does not contain
+ * the value without reading the values of the field. Ten bits per term and seven hashes
+ * give about one false positive per hundred absent values.
+ * <ul>
+ * <li>.bloom: number of hashes (VInt), number of words (VInt), words (Long)</li>
+ * </ul>
+ */
+public class BloomFilter {
+	private static final int HASHES = 7;
+	private static final int BITS_PER_VALUE = 10;
+	private int m_hashes;
+	private long[] m_words;
+	
+	public BloomFilter(int values) {
+		m_hashes = HASHES;
+		m_words = new long[Math.max(1, (values * BITS_PER_VALUE + 63) / 64)];
+	}
+	
+	private BloomFilter(int hashes, long[] words) {
+		m_hashes = hashes;
+		m_words = words;
+	}
+	
+	// 64-bit hash of the term: FNV-1a followed by a mix of the bits
+	public static long hash(BSTR term) {
+		long h = 0xcbf29ce484222325L;
+		for(int i = 0; i < term.length; i++) {
+			h ^= term.buffer[i] & 0xFF;
+			h *= 0x100000001b3L;
+		}
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		return h;
+	}
+	
+	public void add(long hash) {
+		long bits = 64L * m_words.length;
+		int h1 = (int)hash;
+		int h2 = (int)(hash >>> 32);
+		for(int i = 0; i < m_hashes; i++) {
+			long bit = ((h1 + i * h2) & 0x7FFFFFFFL) % bits;
+			m_words[(int)(bit >>> 6)] |= 1L << bit;
+		}
+	}
+	
+	public boolean mightContain(long hash) {
+		long bits = 64L * m_words.length;
+		int h1 = (int)hash;
+		int h2 = (int)(hash >>> 32);
+		for(int i = 0; i < m_hashes; i++) {
+			long bit = ((h1 + i * h2) & 0x7FFFFFFFL) % bits;
+			if((m_words[(int)(bit >>> 6)] & (1L << bit)) == 0) return false;
+		}
+		return true;
+	}
+	
+	public boolean mightContain(BSTR term) { return mightContain(hash(term)); }
+	
+	public void write(VDirectory dir, String table, String field) {
+		VOutputStream stream = dir.create(table + "." + field + ".bloom");
+		stream.writeVInt(m_hashes);
+		stream.writeVInt(m_words.length);
+		for(long word : m_words) stream.writeLong(word);
+		stream.close();
+	}
+	
+	// returns null if the field has no Bloom filter in the segment
+	public static BloomFilter load(VDirectory dir, String table, String field) {
+		if(!dir.fileExists(table + "." + field + ".bloom")) return null;
+		VInputStream stream = dir.open(table + "." + field + ".bloom");
+		int hashes = stream.readVInt();
+		long[] words = new long[stream.readVInt()];
+		for(int i = 0; i < words.length; i++) words[i] = stream.readLong();
+		return new BloomFilter(hashes, words);
+	}
+	
+	public long cacheSize() {
+		return 32 + 8L * m_words.length;
+	}
+	
+}
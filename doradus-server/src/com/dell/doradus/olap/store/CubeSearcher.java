@@ -16,18 +16,24 @@
 
 package com.dell.doradus.olap.store;
 
+import com.dell.doradus.common.Utils;
 import com.dell.doradus.olap.FieldsCache;
 import com.dell.doradus.olap.io.VDirectory;
+import com.dell.doradus.search.util.ConcurrentSizeCache;
 
 public class CubeSearcher {
 	private VDirectory m_directory;
 	private SegmentStats m_stats;
 	private FieldsCache m_fieldsCache;
+	// requests of fields are counted by shard, so that the fields hot in a cube can be
+	// warmed up in the cube that replaces it
+	private String m_shard;
 	
 	public CubeSearcher(VDirectory directory, FieldsCache fieldsCache) {
 		m_directory = directory;
 		m_stats = SegmentStats.load(directory);
 		m_fieldsCache = fieldsCache;
+		m_shard = directory.getParent() == null ? "" : directory.getParent().getRow();
 	}
 
 	public String getId() { return m_directory.getRow(); }
@@ -39,52 +45,146 @@ public class CubeSearcher {
 		return t == null ? 0 : t.documents;
 	}
 	
+	// Searchers are loaded once in the fields cache: concurrent requests of the same field
+	// wait for its load, while other fields are loaded or read in parallel.
+	
 	public IdSearcher getIdSearcher(String table) {
-		String key = getId() + "/id/" + table;
-		synchronized(this) {
-			IdSearcher s = (IdSearcher)m_fieldsCache.get(key);
-			if(s == null) {
-				s = new IdSearcher(m_directory, m_stats.getTable(table));
-				m_fieldsCache.put(key, s, s.cacheSize() + 2 * key.length());
-			}
-			return new IdSearcher(s);
-		}
+		m_fieldsCache.addRequest(m_shard, "id/" + table);
+		return new IdSearcher(loadIdSearcher(table, 0));
 	}
 	
 	public FieldSearcher getFieldSearcher(String table, String field) {
-		String key = getId() + "/fld/" + table + "/" + field;
-		synchronized(this) {
-			FieldSearcher s = (FieldSearcher)m_fieldsCache.get(key);
-			if(s == null) {
-				s = new FieldSearcher(m_directory, table, field);
-				m_fieldsCache.put(key, s, s.cacheSize() + 2 * key.length());
-			}
-			return s;
-		}
+		m_fieldsCache.addRequest(m_shard, "fld/" + table + "/" + field);
+		return loadFieldSearcher(table, field, 0);
 	}
 
 	public NumSearcherMV getNumSearcher(String table, String field) {
-		String key = getId() + "/num/" + table + "/" + field;
-		synchronized(this) {
-			NumSearcherMV s = (NumSearcherMV)m_fieldsCache.get(key);
-			if(s == null) {
-				s = new NumSearcherMV(m_directory, table, field);
-				m_fieldsCache.put(key, s, s.cacheSize() + 2 * key.length());
-			}
-			return s;
-		}
+		m_fieldsCache.addRequest(m_shard, "num/" + table + "/" + field);
+		return loadNumSearcher(table, field, 0);
 	}
 
 	public ValueSearcher getValueSearcher(String table, String field) {
-		String key = getId() + "/val/" + table + "/" + field;
-		synchronized(this) {
-			ValueSearcher s = (ValueSearcher)m_fieldsCache.get(key);
-			if(s == null) {
-				s = new ValueSearcher(m_directory, m_stats.getTextField(table, field));
-				m_fieldsCache.put(key, s, s.cacheSize() + 2 * key.length());
-			}
-			return new ValueSearcher(s);
+		m_fieldsCache.addRequest(m_shard, "val/" + table + "/" + field);
+		return new ValueSearcher(loadValueSearcher(table, field, 0));
+	}
+	
+	// returns null if the field has no term index in this segment
+	public TrigramSearcher getTrigramSearcher(String table, String field) {
+		m_fieldsCache.addRequest(m_shard, "tri/" + table + "/" + field);
+		return loadTrigramSearcher(table, field, 0);
+	}
+	
+	// returns null if the field has no Bloom filter in this segment
+	public BloomFilter getBloomFilter(String table, String field) {
+		m_fieldsCache.addRequest(m_shard, "blm/" + table + "/" + field);
+		return loadBloomFilter(table, field, 0);
+	}
+	
+	/**
+	 * Loads a field in the fields cache before it is requested. The field is named by the kind
+	 * of its searcher, its table and its name: "id/table", "fld/table/field", "num/table/field",
+	 * "val/table/field", "tri/table/field" or "blm/table/field". The field is cached as if it had been requested
+	 * the given number of times. Returns the size of the field in the cache, or 0 if the name is not valid.
+	 */
+	public long warmUp(String field, int expectedRequests) {
+		String[] parts = Utils.split(field, '/').toArray(new String[0]);
+		if(parts.length == 2 && parts[0].equals("id")) {
+			return loadIdSearcher(parts[1], expectedRequests).cacheSize();
+		}
+		if(parts.length != 3) return 0;
+		String table = parts[1];
+		String name = parts[2];
+		switch(parts[0]) {
+		case "fld": return loadFieldSearcher(table, name, expectedRequests).cacheSize();
+		case "num": return loadNumSearcher(table, name, expectedRequests).cacheSize();
+		case "val": return loadValueSearcher(table, name, expectedRequests).cacheSize();
+		case "tri":
+			TrigramSearcher searcher = loadTrigramSearcher(table, name, expectedRequests);
+			return searcher == null ? 0 : searcher.cacheSize();
+		case "blm":
+			BloomFilter bloom = loadBloomFilter(table, name, expectedRequests);
+			return bloom == null ? 0 : bloom.cacheSize();
+		default: return 0;
 		}
 	}
 	
+	private IdSearcher loadIdSearcher(final String table, int requests) {
+		final String key = getId() + "/id/" + table;
+		return (IdSearcher)m_fieldsCache.get(key, new ConcurrentSizeCache.Loader<Object>() {
+			@Override public Object load() {
+				return new IdSearcher(m_directory, m_stats.getTable(table));
+			}
+			@Override public long sizeOf(Object value) {
+				return ((IdSearcher)value).cacheSize() + 2 * key.length();
+			}
+		}, requests);
+	}
+	
+	private FieldSearcher loadFieldSearcher(final String table, final String field, int requests) {
+		final String key = getId() + "/fld/" + table + "/" + field;
+		return (FieldSearcher)m_fieldsCache.get(key, new ConcurrentSizeCache.Loader<Object>() {
+			@Override public Object load() {
+				return new FieldSearcher(m_directory, table, field);
+			}
+			@Override public long sizeOf(Object value) {
+				return ((FieldSearcher)value).cacheSize() + 2 * key.length();
+			}
+		}, requests);
+	}
+
+	private NumSearcherMV loadNumSearcher(final String table, final String field, int requests) {
+		final String key = getId() + "/num/" + table + "/" + field;
+		return (NumSearcherMV)m_fieldsCache.get(key, new ConcurrentSizeCache.Loader<Object>() {
+			@Override public Object load() {
+				return new NumSearcherMV(m_directory, table, field);
+			}
+			@Override public long sizeOf(Object value) {
+				return ((NumSearcherMV)value).cacheSize() + 2 * key.length();
+			}
+		}, requests);
+	}
+
+	private ValueSearcher loadValueSearcher(final String table, final String field, int requests) {
+		final String key = getId() + "/val/" + table + "/" + field;
+		return (ValueSearcher)m_fieldsCache.get(key, new ConcurrentSizeCache.Loader<Object>() {
+			@Override public Object load() {
+				return new ValueSearcher(m_directory, m_stats.getTextField(table, field));
+			}
+			@Override public long sizeOf(Object value) {
+				return ((ValueSearcher)value).cacheSize() + 2 * key.length();
+			}
+		}, requests);
+	}
+	
+	private TrigramSearcher loadTrigramSearcher(final String table, final String field, int requests) {
+		final String key = getId() + "/tri/" + table + "/" + field;
+		Object s = m_fieldsCache.get(key, new ConcurrentSizeCache.Loader<Object>() {
+			@Override public Object load() {
+				TrigramSearcher t = TrigramSearcher.load(m_directory, table, field);
+				// remember fields without term index as well
+				return t == null ? Boolean.FALSE : t;
+			}
+			@Override public long sizeOf(Object value) {
+				long size = value instanceof TrigramSearcher ? ((TrigramSearcher)value).cacheSize() : 0;
+				return size + 2 * key.length();
+			}
+		}, requests);
+		return s instanceof TrigramSearcher ? (TrigramSearcher)s : null;
+	}
+	
+	private BloomFilter loadBloomFilter(final String table, final String field, int requests) {
+		final String key = getId() + "/blm/" + table + "/" + field;
+		Object s = m_fieldsCache.get(key, new ConcurrentSizeCache.Loader<Object>() {
+			@Override public Object load() {
+				BloomFilter b = BloomFilter.load(m_directory, table, field);
+				return b == null ? Boolean.FALSE : b;
+			}
+			@Override public long sizeOf(Object value) {
+				long size = value instanceof BloomFilter ? ((BloomFilter)value).cacheSize() : 0;
+				return size + 2 * key.length();
+			}
+		}, requests);
+		return s instanceof BloomFilter ? (BloomFilter)s : null;
+	}
+	
 }
@@ -35,30 +35,52 @@ public class FieldSearcher {
 			m_bSingleValued = false;
 			VInputStream inp_pos = dir.open(table + "." + field + ".pos");
 			VInputStream inp_doc = dir.open(table + "." + field + ".doc");
+			if(FixedLayout.isFixed(inp_doc)) {
+				if(!FixedLayout.isFixed(inp_pos)) throw new RuntimeException("Inconsistent layout of " + table + "." + field);
+				int docsSize = inp_doc.readInt();
+				m_fields = inp_doc.readInt();
+				inp_doc.readInt();
+				m_documents = inp_pos.readInt();
+				inp_pos.readInt();
+				inp_pos.readInt();
+				m_positions = new int[m_documents + 1];
+				inp_pos.readInts(m_positions, 0, m_positions.length);
+				m_docterms = new int[docsSize];
+				inp_doc.readInts(m_docterms, 0, docsSize);
+				return;
+			}
 			m_documents = inp_pos.readVInt();
 			m_positions = new int[m_documents + 1];
 			int docsSize = inp_doc.readVInt();
 			m_docterms = new int[docsSize];
 			
+			// sizes of the documents, then their positions
+			inp_pos.readVInts(m_positions, 1, m_documents);
 			m_positions[0] = 0;
 			for(int i = 0; i < m_documents; i++) {
-				int sz = inp_pos.readVInt();
-				m_positions[i + 1] = m_positions[i] + sz;
-				int term = 0;
-				for(int j = 0; j < sz; j++) {
-					term += inp_doc.readVInt();
-					if(m_fields < term + 1) m_fields = term + 1;
-					m_docterms[m_positions[i] + j] = term;
-				}
+				m_positions[i + 1] += m_positions[i];
+				int sz = m_positions[i + 1] - m_positions[i];
+				if(sz == 0) continue;
+				inp_doc.readVIntDeltas(m_docterms, m_positions[i], sz);
+				int term = m_docterms[m_positions[i + 1] - 1];
+				if(m_fields < term + 1) m_fields = term + 1;
 			}
 		} else {
 			m_bSingleValued = true;
 			VInputStream inp_doc = dir.open(table + "." + field + ".doc");
+			if(FixedLayout.isFixed(inp_doc)) {
+				m_documents = inp_doc.readInt();
+				m_fields = inp_doc.readInt();
+				inp_doc.readInt();
+				m_docterms = new int[m_documents];
+				inp_doc.readInts(m_docterms, 0, m_documents);
+				return;
+			}
 			m_documents = inp_doc.readVInt();
 			m_docterms = new int[m_documents];
+			inp_doc.readVInts(m_docterms, 0, m_documents);
 			for(int i = 0; i < m_documents; i++) {
-				int term = inp_doc.readVInt() - 1;
-				m_docterms[i] = term;
+				int term = --m_docterms[i];
 				if(m_fields < term + 1) m_fields = term + 1;
 			}
 		}
@@ -102,13 +124,11 @@ public class FieldSearcher {
 		if(m_docterms == null) return;
 		
 		if(m_bSingleValued) {
-			for(int i = 0; i < m_documents; i++) {
-				if(!src.get(i)) continue;
+			for(int i = src.nextSetBit(0); i >= 0 && i < m_documents; i = src.nextSetBit(i + 1)) {
 				if(m_docterms[i] != -1) dst.set(m_docterms[i]);
 			}
 		} else {
-			for(int i = 0; i < m_documents; i++) {
-				if(!src.get(i)) continue;
+			for(int i = src.nextSetBit(0); i >= 0 && i < m_documents; i = src.nextSetBit(i + 1)) {
 				int st = m_positions[i];
 				int fn = m_positions[i + 1];
 				for(int j = st; j < fn; j++) {
@@ -144,14 +164,12 @@ public class FieldSearcher {
 	public void fillValues(Result docsSet, Result valuesSet) {
 		if(m_docterms == null) return;
 		if(m_bSingleValued) {
-			for(int i = 0; i < m_documents; i++) {
-				if(!docsSet.get(i)) continue;
+			for(int i = docsSet.nextSetBit(0); i >= 0 && i < m_documents; i = docsSet.nextSetBit(i + 1)) {
 				int value = m_docterms[i];
 				if(value != -1) valuesSet.set(value);
 			}
 		} else {
-			for(int i = 0; i < m_documents; i++) {
-				if(!docsSet.get(i)) continue;
+			for(int i = docsSet.nextSetBit(0); i >= 0 && i < m_documents; i = docsSet.nextSetBit(i + 1)) {
 				int st = m_positions[i];
 				int fn = m_positions[i + 1];
 				for(int j = st; j < fn; j++) {
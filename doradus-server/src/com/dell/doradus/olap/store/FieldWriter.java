@@ -56,19 +56,20 @@ public class FieldWriter {
 	}
 	
 	public void close(VDirectory dir, String table, String field) {
+		if(FixedLayout.isEnabled()) {
+			closeFixed(dir, table, field);
+			return;
+		}
 		if(m_isSingleValued) {
 			VOutputStream out_doc = dir.create(table + "." + field + ".doc");
 			out_doc.writeVInt(m_len.length);
+			// term + 1 of every document, 0 for documents without value
+			int[] terms = new int[m_len.length];
 			int start = 0;
 			for(int i = 0; i < m_len.length; i++) {
-				int len = m_len[i];
-				if(len == 0) out_doc.writeVInt(0);
-				else {
-					for(int j = 0; j < len; j++) {
-						out_doc.writeVInt(m_doc.get(start++) + 1);
-					}
-				}
+				if(m_len[i] != 0) terms[i] = m_doc.get(start++) + 1;
 			}
+			out_doc.writeVInts(terms, 0, terms.length);
 			out_doc.close();
 			if(start != m_doc.size()) throw new RuntimeException("FieldWriter: inconsistency in sv mode");
 		}else {
@@ -76,16 +77,42 @@ public class FieldWriter {
 			VOutputStream out_pos = dir.create(table + "." + field + ".pos");
 			out_pos.writeVInt(m_len.length);
 			out_doc.writeVInt(m_doc.size());
+			// sizes of the documents, then the terms of each document as deltas
+			out_pos.writeVInts(m_len, 0, m_len.length);
+			int[] terms = m_doc.getArray();
+			int start = 0;
+			for(int i = 0; i < m_len.length; i++) {
+				out_doc.writeVIntDeltas(terms, start, m_len[i]);
+				start += m_len[i];
+			}
+			out_doc.close();
+			out_pos.close();
+			if(start != m_doc.size()) throw new RuntimeException("FieldWriter: inconsistency in mv mode");
+		}
+	}
+
+	private void closeFixed(VDirectory dir, String table, String field) {
+		VOutputStream out_doc = dir.create(table + "." + field + ".doc");
+		if(m_isSingleValued) {
+			FixedLayout.writeHeader(out_doc, m_len.length, getValuesCount());
 			int start = 0;
 			for(int i = 0; i < m_len.length; i++) {
-				int len = m_len[i];
-				out_pos.writeVInt(len);
-				int doc = 0;
-				for(int  j = 0; j < len; j++) {
-					int next_doc = m_doc.get(start++);
-					out_doc.writeVInt(next_doc - doc);
-					doc = next_doc;
-				}
+				out_doc.writeInt(m_len[i] == 0 ? -1 : m_doc.get(start++));
+			}
+			out_doc.close();
+			if(start != m_doc.size()) throw new RuntimeException("FieldWriter: inconsistency in sv mode");
+		} else {
+			VOutputStream out_pos = dir.create(table + "." + field + ".pos");
+			FixedLayout.writeHeader(out_pos, m_len.length, 0);
+			FixedLayout.writeHeader(out_doc, m_doc.size(), getValuesCount());
+			int start = 0;
+			out_pos.writeInt(0);
+			for(int i = 0; i < m_len.length; i++) {
+				start += m_len[i];
+				out_pos.writeInt(start);
+			}
+			for(int i = 0; i < m_doc.size(); i++) {
+				out_doc.writeInt(m_doc.get(i));
 			}
 			out_doc.close();
 			out_pos.close();
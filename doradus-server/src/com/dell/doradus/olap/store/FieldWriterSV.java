@@ -42,6 +42,12 @@ public class FieldWriterSV {
 	public void close(VDirectory dir, String table, String field) {
 		if(m_maxTerm == -1) return;
 		VOutputStream out_doc = dir.create(table + "." + field + ".doc");
+		if(FixedLayout.isEnabled()) {
+			FixedLayout.writeHeader(out_doc, m_docsCount, m_maxTerm + 1);
+			out_doc.writeInts(m_docs, 0, m_docs.length);
+			out_doc.close();
+			return;
+		}
 		out_doc.writeVInt(m_docsCount);
 		for(int i = 0; i < m_docs.length; i++) {
 			out_doc.writeVInt(m_docs[i] + 1);
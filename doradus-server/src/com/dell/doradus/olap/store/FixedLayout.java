@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2014 Dell, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dell.doradus.olap.store;
+
+import com.dell.doradus.core.ServerConfig;
+import com.dell.doradus.olap.io.VInputStream;
+import com.dell.doradus.olap.io.VOutputStream;
+
+/**
+ * Fixed-width layout of .doc and .pos files, which are otherwise written as VInts.
+ * <p>
+ * The file starts with a 16-byte header: the magic, the count of values and two
+ * file-specific ints. Then follow the values as little-endian ints, aligned to 4 bytes,
+ * so they are loaded by bulk copies from buffer views instead of being decoded one by one.
+ * <ul>
+ * <li>.doc, single-valued: header (documents, fields); term of each document, -1 if none</li>
+ * <li>.doc, multi-valued: header (entries, fields); terms of all documents, in order</li>
+ * <li>.pos: header (documents, 0); documents + 1 positions, starting with 0</li>
+ * </ul>
+ * The magic starts with bytes 0x80, 0x00, which is never written by writeVInt,
+ * so the layout of old files is recognized by their first bytes.
+ */
+public class FixedLayout {
+	private static final byte[] MAGIC = new byte[] { (byte)0x80, 0x00, 'F', 0x01 };
+	public static final int HEADER_SIZE = 16;
+
+	public static boolean isEnabled() {
+		return ServerConfig.getInstance().olap_fixed_width_layout;
+	}
+
+	public static void writeHeader(VOutputStream stream, int count, int param) {
+		stream.write(MAGIC, 0, MAGIC.length);
+		stream.writeInt(count);
+		stream.writeInt(param);
+		stream.writeInt(0);
+	}
+
+	// returns true, and skips the magic, if the stream is in the fixed-width layout;
+	// otherwise the stream stays at the beginning
+	public static boolean isFixed(VInputStream stream) {
+		if(stream.length() < HEADER_SIZE) return false;
+		byte[] magic = new byte[MAGIC.length];
+		stream.read(magic, 0, magic.length);
+		for(int i = 0; i < magic.length; i++) {
+			if(magic[i] != MAGIC[i]) {
+				stream.seek(0);
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
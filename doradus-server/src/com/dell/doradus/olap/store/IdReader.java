@@ -34,7 +34,7 @@ public class IdReader {
 			VInputStream del_stream = dir.open(table + "._id.deleted");
 			int size = del_stream.readVInt();
 			m_deleted = new BitVector(size);
-			del_stream.read(m_deleted.getBuffer(), 0, m_deleted.getBuffer().length);  
+			m_deleted.read(del_stream);  
 		}
 		
 		m_stream_id = dir.open(table + "._id");
@@ -68,7 +68,7 @@ public class IdWriter {
 	public void setDeletedVector(BitVector bvDeleted) {
 		VOutputStream del_stream = m_dir.create(m_table + "._id.deleted");
 		del_stream.writeVInt(bvDeleted.size());
-		del_stream.write(bvDeleted.getBuffer(), 0, bvDeleted.getBuffer().length);
+		bvDeleted.write(del_stream);
 		del_stream.close();
 	}
 	
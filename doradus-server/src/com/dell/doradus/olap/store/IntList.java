@@ -41,6 +41,9 @@ public class IntList {
 	public void set(int index, int value) { m_array[index] = value; }
 	
 	public int size() { return m_position; }
+	
+	// backing array, for bulk writes; only the first size() values are set
+	public int[] getArray() { return m_array; }
 
 	public void set(IntIterator iter) {
 		iter.setup(m_array, 0, m_position);
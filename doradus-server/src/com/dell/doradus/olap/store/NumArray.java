@@ -73,19 +73,19 @@ public class NumArray {
 		switch(m_bits) {
 		case 0 : break;
 		case 1 :
-			input.read(m_bitArray.getBuffer(), 0, m_bitArray.getBuffer().length);  
+			m_bitArray.read(input);  
 			break; 
 		case 8 :
-			for(int i = 0; i < m_size; i++) m_byteArray[i] = (byte)input.readByte();
+			input.read(m_byteArray, 0, m_size);
 			break;
 		case 16 :
-			for(int i = 0; i < m_size; i++) m_shortArray[i] = input.readShort();
+			input.readShorts(m_shortArray, 0, m_size);
 			break;
 		case 32 :
-			for(int i = 0; i < m_size; i++) m_intArray[i] = input.readInt();
+			input.readInts(m_intArray, 0, m_size);
 			break;
 		case 64 :
-			for(int i = 0; i < m_size; i++) m_longArray[i] = input.readLong();
+			input.readLongs(m_longArray, 0, m_size);
 			break;
 		default: throw new RuntimeException("Unknown bits: " + m_bits);
 		}
@@ -103,7 +103,7 @@ public class NumArray {
 				if(values[i] != 0) bv.set(i);
 				else bv.clear(i);
 			}
-			stream.write(bv.getBuffer(), 0, bv.getBuffer().length);
+			bv.write(stream);
 		}
 		else if(max <= Byte.MAX_VALUE && min >= Byte.MIN_VALUE) { // 1 byte
 			bits = 8;
@@ -140,7 +140,7 @@ public class NumArray {
 	public long cacheSize()
 	{
 		long size = 16;
-		if(m_bitArray != null) size += m_bitArray.getBuffer().length * 4;
+		if(m_bitArray != null) size += m_bitArray.getByteLength();
 		if(m_byteArray != null) size += m_byteArray.length * 1;
 		if(m_shortArray != null) size += m_shortArray.length * 2;
 		if(m_intArray != null) size += m_intArray.length * 4;
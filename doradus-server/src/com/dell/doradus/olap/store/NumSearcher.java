@@ -49,7 +49,7 @@ public class NumSearcher {
 		if(dir.fileExists(table + "." + field + ".num.mask")) {
 			m_mask = new BitVector(m_values.size());
 			VInputStream mask_stream = dir.open(table + "." + field + ".num.mask");
-			mask_stream.read(m_mask.getBuffer(), 0, m_mask.getBuffer().length);  
+			m_mask.read(mask_stream);  
 		}
 		
 		if(dir.fileExists(table + "." + field + ".pos")) throw new RuntimeException("Cannot open mv num field in sv mode");
@@ -111,6 +111,12 @@ public class NumSearcher {
 		else throw new RuntimeException("Invalid numeric type: " + type);
 	}
 
+	// long that compares like the double value: bits of negative values are inverted
+	public static long sortableBits(double value) {
+		long bits = Double.doubleToLongBits(value);
+		return bits < 0 ? bits ^ Long.MAX_VALUE : bits;
+	}
+	
 	public static String format(long value, FieldType type) {
 		if(type == FieldType.BOOLEAN) return value == 1 ? "True" : "False";
 		else if(type == FieldType.INTEGER || type == FieldType.LONG) return "" + value;
@@ -122,7 +128,7 @@ public class NumSearcher {
 	
 	public long cacheSize()
 	{
-		return 16L + (m_values == null ? 0 : m_values.cacheSize()) + (m_mask == null ? 0 : m_mask.getBuffer().length);
+		return 16L + (m_values == null ? 0 : m_values.cacheSize()) + (m_mask == null ? 0 : m_mask.getByteLength());
 	}
 	
 }
@@ -35,6 +35,7 @@ public class NumSearcherMV {
 	private long m_min = Long.MAX_VALUE;
 	private long m_min_pos = Long.MAX_VALUE;
 	private long m_max = Long.MIN_VALUE;
+	private NumZones m_zones;
 	
 	public NumSearcherMV(VDirectory dir, String table, String field) {
 		if(!dir.fileExists(table + "." + field + ".dat")) return;
@@ -43,31 +44,54 @@ public class NumSearcherMV {
 		int bits = stream.readByte();
 		m_values = new NumArray(size, bits);
 		m_values.load(stream);
-		for(int i = 0; i < m_values.size(); i++) {
-			long val = m_values.get(i);
-			if(m_min > val) m_min = val;
-			if(m_max < val) m_max = val;
-			if(val > 0 && m_min_pos > val) m_min_pos = val;
-		}
 		
 		if(dir.fileExists(table + "." + field + ".num.mask")) {
 			m_mask = new BitVector(m_values.size());
 			VInputStream mask_stream = dir.open(table + "." + field + ".num.mask");
-			mask_stream.read(m_mask.getBuffer(), 0, m_mask.getBuffer().length);
+			m_mask.read(mask_stream);
 		}
 		
 		if(dir.fileExists(table + "." + field + ".pos")) {
 			m_bSingleValued = false;
 			VInputStream inp_pos = dir.open(table + "." + field + ".pos");
-			m_documents = inp_pos.readVInt();
-			m_positions = new int[m_documents + 1];
-			m_positions[0] = 0;
-			for(int i = 0; i < m_documents; i++) {
-				int sz = inp_pos.readVInt();
-				m_positions[i + 1] = m_positions[i] + sz;
+			if(FixedLayout.isFixed(inp_pos)) {
+				m_documents = inp_pos.readInt();
+				inp_pos.readInt();
+				inp_pos.readInt();
+				m_positions = new int[m_documents + 1];
+				inp_pos.readInts(m_positions, 0, m_positions.length);
+			} else {
+				m_documents = inp_pos.readVInt();
+				m_positions = new int[m_documents + 1];
+				// positions, stored as the sizes of the documents
+				inp_pos.readVIntDeltas(m_positions, 1, m_documents);
 			}
 		} else m_documents = size;
 		
+		m_zones = NumZones.load(dir, table, field);
+		if(m_zones != null) {
+			m_min = m_zones.min();
+			m_max = m_zones.max();
+			m_min_pos = m_zones.minPos();
+			// undefined documents of single-valued fields are stored as 0
+			if(m_bSingleValued && m_mask != null) {
+				m_min = Math.min(m_min, 0);
+				m_max = Math.max(m_max, 0);
+			}
+		} else {
+			// segments written without zone maps
+			for(int i = 0; i < m_values.size(); i++) {
+				long val = m_values.get(i);
+				if(m_min > val) m_min = val;
+				if(m_max < val) m_max = val;
+				if(val > 0 && m_min_pos > val) m_min_pos = val;
+			}
+			m_zones = new NumZones(m_documents);
+			for(int i = 0; i < m_documents; i++) {
+				int sz = size(i);
+				for(int j = 0; j < sz; j++) m_zones.add(i, get(i, j));
+			}
+		}
 	}
 
 	
@@ -103,21 +127,30 @@ public class NumSearcherMV {
 	
 	public void fill(long value, Result r) {
 		if(m_values == null) return;
-		if(m_bSingleValued) {
-			for(int i = 0; i < m_values.size(); i++) {
-				if(sv_isNull(i)) continue;
-				if(m_values.get(i) != value) continue; 
-				r.set(i);
+		for(int block = 0; block < m_zones.blocks(); block++) {
+			if(m_zones.min(block) > value || m_zones.max(block) < value) continue;
+			int from = block * NumZones.BLOCK_SIZE;
+			int to = Math.min(from + NumZones.BLOCK_SIZE, m_documents);
+			if(m_zones.min(block) == value && m_zones.max(block) == value) {
+				fillDefined(from, to, r);
+				continue;
 			}
-		}
-		else {
-			for(int i = 0; i < size(); i++) {
-				int sz = size(i);
-				for(int j = 0; j < sz; j++) {
-					if(get(i, j) != value) continue;
+			if(m_bSingleValued) {
+				for(int i = from; i < to; i++) {
+					if(sv_isNull(i)) continue;
+					if(m_values.get(i) != value) continue; 
 					r.set(i);
 				}
 			}
+			else {
+				for(int i = from; i < to; i++) {
+					int sz = size(i);
+					for(int j = 0; j < sz; j++) {
+						if(get(i, j) != value) continue;
+						r.set(i);
+					}
+				}
+			}
 		}
 	}
 
@@ -134,25 +167,41 @@ public class NumSearcherMV {
 	
 	public void fill(long start, long finish, Result r) {
 		if(m_values == null) return;
-		if(m_bSingleValued) {
-			for(int i = 0; i < m_values.size(); i++) {
-				if(sv_isNull(i)) continue;
-				if(m_values.get(i) < start) continue; 
-				if(m_values.get(i) >= finish) continue; 
-				r.set(i);
+		for(int block = 0; block < m_zones.blocks(); block++) {
+			if(m_zones.isOutside(block, start, finish)) continue;
+			int from = block * NumZones.BLOCK_SIZE;
+			int to = Math.min(from + NumZones.BLOCK_SIZE, m_documents);
+			if(m_zones.isInside(block, start, finish)) {
+				fillDefined(from, to, r);
+				continue;
 			}
-		} else {
-			for(int i = 0; i < size(); i++) {
-				int sz = size(i);
-				for(int j = 0; j < sz; j++) {
-					if(get(i, j) < start) continue;
-					if(get(i, j) >= finish) continue;
+			if(m_bSingleValued) {
+				for(int i = from; i < to; i++) {
+					if(sv_isNull(i)) continue;
+					if(m_values.get(i) < start) continue; 
+					if(m_values.get(i) >= finish) continue; 
 					r.set(i);
-					break;
+				}
+			} else {
+				for(int i = from; i < to; i++) {
+					int sz = size(i);
+					for(int j = 0; j < sz; j++) {
+						if(get(i, j) < start) continue;
+						if(get(i, j) >= finish) continue;
+						r.set(i);
+						break;
+					}
 				}
 			}
 		}
 	}
+	
+	// sets documents [from, to) that have values
+	private void fillDefined(int from, int to, Result r) {
+		for(int i = from; i < to; i++) {
+			if(!isNull(i)) r.set(i);
+		}
+	}
 
 	
 	public void fillCount(int min, int max, Result r) {
@@ -194,7 +243,8 @@ public class NumSearcherMV {
 	
 	public long cacheSize()
 	{
-		return 16L + (m_values == null ? 0 : m_values.cacheSize()) + (m_mask == null ? 0 : m_mask.getBuffer().length);
+		return 16L + (m_values == null ? 0 : m_values.cacheSize()) + (m_mask == null ? 0 : m_mask.getByteLength()) +
+				(m_zones == null ? 0 : m_zones.cacheSize());
 	}
 	
 }
@@ -22,6 +22,7 @@ import com.dell.doradus.olap.io.VOutputStream;
 public class NumWriter {
 	private long[] m_values;
 	private BitVector m_mask;
+	private NumZones m_zones;
 	
 	public long min = Long.MAX_VALUE;
 	public long max = Long.MIN_VALUE;
@@ -31,11 +32,13 @@ public class NumWriter {
 	public NumWriter(int docsCount) {
 		m_values = new long[docsCount];
 		m_mask = new BitVector(docsCount);
+		m_zones = new NumZones(docsCount);
 	}
 	
 	public void add(int doc, long number) {
 		m_values[doc] = number;
 		m_mask.set(doc);
+		m_zones.add(doc, number);
 		if(min > number) min = number;
 		if(max < number) max = number;
 		if(number > 0 && min_pos > number) min_pos = number;
@@ -46,9 +49,10 @@ public class NumWriter {
 		if(setCount == 0) return;
 		else if(setCount != m_values.length) {
 			VOutputStream mask_stream = dir.create(table + "." + field + ".num.mask");
-			mask_stream.write(m_mask.getBuffer(), 0, m_mask.getBuffer().length);
+			m_mask.write(mask_stream);
 			mask_stream.close();
 		}
+		m_zones.write(dir, table, field);
 		if(min_pos > max) min_pos = 0;
 		int size = m_values.length;
 		if(size == 0) return;
@@ -62,7 +66,7 @@ public class NumWriter {
 				if(m_values[i] != 0) bv.set(i);
 				else bv.clear(i);
 			}
-			stream.write(bv.getBuffer(), 0, bv.getBuffer().length);
+			bv.write(stream);
 		}
 		else if(max <= Byte.MAX_VALUE && min >= Byte.MIN_VALUE) { // 1 byte
 			bits = 8;
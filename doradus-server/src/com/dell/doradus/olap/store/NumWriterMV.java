@@ -24,6 +24,7 @@ public class NumWriterMV {
 	private IntList m_pos;
 	private boolean m_isSingleValued = true;
 	private BitVector m_mask;
+	private NumZones m_zones;
 	
 	public long min = Long.MAX_VALUE;
 	public long max = Long.MIN_VALUE;
@@ -39,6 +40,7 @@ public class NumWriterMV {
 		m_docsCount = docsCount;
 		m_pos = new IntList(docsCount + 1);
 		m_mask = new BitVector(docsCount);
+		m_zones = new NumZones(docsCount);
 	}
 	
 	public int getDocListSize() { return m_doc.size(); }
@@ -53,6 +55,7 @@ public class NumWriterMV {
 		if(m_lastDoc == doc && m_lastNum == num) return;
 		if(m_lastDoc > doc) throw new RuntimeException("Invalid doc order");
 		m_mask.set(doc);
+		m_zones.add(doc, num);
 		if(m_maxNum < num) m_maxNum = num;
 		if(m_lastDoc == doc) {
 			m_isSingleValued = false;
@@ -75,13 +78,14 @@ public class NumWriterMV {
 		
 		while(m_pos.size() != m_docsCount + 1) m_pos.add(m_doc.size());
 		if(min_pos > max) min_pos = 0;
+		if(m_doc.size() > 0) m_zones.write(dir, table, field);
 		
 		if(m_isSingleValued) {
 			int setCount = m_mask.bitsSet();
 			if(setCount == 0) return;
 			else if(setCount != m_docsCount) {
 				VOutputStream mask_stream = dir.create(table + "." + field + ".num.mask");
-				mask_stream.write(m_mask.getBuffer(), 0, m_mask.getBuffer().length);
+				m_mask.write(mask_stream);
 				mask_stream.close();
 			}
 			
@@ -105,12 +109,17 @@ public class NumWriterMV {
 			}
 			bits = NumArray.writeArray(values, min, max, out_dat);
 			
-			out_pos.writeVInt(m_pos.size() - 1);
-			for(int i = 1; i < m_pos.size(); i++) {
-				int start = m_pos.get(i - 1);
-				int end = m_pos.get(i);
-				out_pos.writeVInt(end - start);
+			if(FixedLayout.isEnabled()) {
+				FixedLayout.writeHeader(out_pos, m_pos.size() - 1, 0);
+				for(int i = 0; i < m_pos.size(); i++) {
+					out_pos.writeInt(m_pos.get(i));
+				}
+				out_pos.close();
+				return;
 			}
+			out_pos.writeVInt(m_pos.size() - 1);
+			// positions as deltas, that is the sizes of the documents; the first position is 0
+			out_pos.writeVIntDeltas(m_pos.getArray(), 1, m_pos.size() - 1);
 			out_pos.close();
 		}
 		
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2014 Dell, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dell.doradus.olap.store;
+
+import java.util.Arrays;
+
+import com.dell.doradus.olap.io.VDirectory;
+import com.dell.doradus.olap.io.VInputStream;
+import com.dell.doradus.olap.io.VOutputStream;
+
+/**
+ * Zone map of a numeric field: minimum and maximum of the values of every block of
+ * BLOCK_SIZE documents, so that range and equality searches skip blocks that cannot match
+ * and set whole blocks that match entirely. A block without values has min > max.
+ * <p>
+ * Stored in the .num.zones file by NumWriter and NumWriterMV; segments written before
+ * have no such file, and their zone maps are built when the field is loaded.
+ */
+public class NumZones {
+	public static final int BLOCK_SIZE = 4096;
+
+	private long[] m_min;
+	private long[] m_max;
+	private long m_minPos = Long.MAX_VALUE;
+
+	public NumZones(int docsCount) {
+		int blocks = (docsCount + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		m_min = new long[blocks];
+		m_max = new long[blocks];
+		Arrays.fill(m_min, Long.MAX_VALUE);
+		Arrays.fill(m_max, Long.MIN_VALUE);
+	}
+
+	public void add(int doc, long value) {
+		int block = doc / BLOCK_SIZE;
+		if(m_min[block] > value) m_min[block] = value;
+		if(m_max[block] < value) m_max[block] = value;
+		if(value > 0 && m_minPos > value) m_minPos = value;
+	}
+
+	public int blocks() { return m_min.length; }
+	public long min(int block) { return m_min[block]; }
+	public long max(int block) { return m_max[block]; }
+
+	// minimum, maximum and minimum positive of all values
+	public long min() {
+		long min = Long.MAX_VALUE;
+		for(long v : m_min) if(min > v) min = v;
+		return min;
+	}
+	public long max() {
+		long max = Long.MIN_VALUE;
+		for(long v : m_max) if(max < v) max = v;
+		return max;
+	}
+	public long minPos() { return m_minPos; }
+
+	// true if no value of the block can be in [start, finish)
+	public boolean isOutside(int block, long start, long finish) {
+		return m_min[block] > m_max[block] || m_max[block] < start || m_min[block] >= finish;
+	}
+
+	// true if all values of the block are in [start, finish)
+	public boolean isInside(int block, long start, long finish) {
+		return m_min[block] >= start && m_max[block] < finish;
+	}
+
+	public void write(VDirectory dir, String table, String field) {
+		VOutputStream stream = dir.create(table + "." + field + ".num.zones");
+		stream.writeVInt(BLOCK_SIZE);
+		stream.writeVInt(m_min.length);
+		stream.writeLong(m_minPos);
+		stream.writeLongs(m_min, 0, m_min.length);
+		stream.writeLongs(m_max, 0, m_max.length);
+		stream.close();
+	}
+
+	// returns null if the segment has no zone map for the field
+	public static NumZones load(VDirectory dir, String table, String field) {
+		if(!dir.fileExists(table + "." + field + ".num.zones")) return null;
+		VInputStream stream = dir.open(table + "." + field + ".num.zones");
+		int blockSize = stream.readVInt();
+		if(blockSize != BLOCK_SIZE) return null;
+		int blocks = stream.readVInt();
+		NumZones zones = new NumZones(blocks * BLOCK_SIZE);
+		zones.m_minPos = stream.readLong();
+		stream.readLongs(zones.m_min, 0, blocks);
+		stream.readLongs(zones.m_max, 0, blocks);
+		return zones;
+	}
+
+	public long cacheSize() { return 16L + 16L * m_min.length; }
+}
@@ -53,7 +53,7 @@ public class SegmentStats {
 		tables.put(name, t);
 	}
 
-	public void addNumField(FieldDefinition fieldDef, NumWriter writer) {
+	public synchronized void addNumField(FieldDefinition fieldDef, NumWriter writer) {
 		Table t = tables.get(fieldDef.getTableName());
 		Table.NumField field = t.new NumField();
 		field.name = fieldDef.getName();
@@ -65,7 +65,7 @@ public class SegmentStats {
 		t.numFields.put(field.name, field);
 	}
 
-	public void addNumField(FieldDefinition fieldDef, NumWriterMV writer) {
+	public synchronized void addNumField(FieldDefinition fieldDef, NumWriterMV writer) {
 		Table t = tables.get(fieldDef.getTableName());
 		Table.NumField field = t.new NumField();
 		field.name = fieldDef.getName();
@@ -79,7 +79,7 @@ public class SegmentStats {
 		t.numFields.put(field.name, field);
 	}
 	
-	public void addTextField(FieldDefinition fieldDef, FieldWriter writer) {
+	public synchronized void addTextField(FieldDefinition fieldDef, FieldWriter writer) {
 		Table t = tables.get(fieldDef.getTableName());
 		Table.TextField field = t.new TextField();
 		field.name = fieldDef.getName();
@@ -89,7 +89,7 @@ public class SegmentStats {
 		t.textFields.put(field.name, field);
 	}
 
-	public void addTextField(FieldDefinition fieldDef, FieldWriterSV writer) {
+	public synchronized void addTextField(FieldDefinition fieldDef, FieldWriterSV writer) {
 		Table t = tables.get(fieldDef.getTableName());
 		Table.TextField field = t.new TextField();
 		field.name = fieldDef.getName();
@@ -99,7 +99,7 @@ public class SegmentStats {
 		t.textFields.put(field.name, field);
 	}
 	
-	public void addLinkField(FieldDefinition fieldDef, FieldWriter writer) {
+	public synchronized void addLinkField(FieldDefinition fieldDef, FieldWriter writer) {
 		Table t = tables.get(fieldDef.getTableName());
 		Table.LinkField field = t.new LinkField();
 		field.name = fieldDef.getName();
@@ -0,0 +1,241 @@
+/*
+ * Copyright (C) 2014 Dell, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dell.doradus.olap.store;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import com.dell.doradus.olap.io.VDirectory;
+import com.dell.doradus.olap.io.VInputStream;
+import com.dell.doradus.search.analyzer.SimpleText;
+
+/**
+ * Reads the term index written by TrigramWriter, and finds the candidate values
+ * that contain given literal substrings. Candidates must still be verified against
+ * the query, since a value containing all the trigrams of a literal does not always
+ * contain the literal itself.
+ */
+public class TrigramSearcher {
+	private VInputStream m_stream;
+	private long[] m_trigrams;
+	private int[] m_counts;
+	private long[] m_offsets;
+
+	private TrigramSearcher() {}
+
+	// returns null if the field has no term index in the segment
+	public static TrigramSearcher load(VDirectory dir, String table, String field) {
+		if(!dir.fileExists(table + "." + field + ".trigrams.idx")) return null;
+		TrigramSearcher searcher = new TrigramSearcher();
+		VInputStream stream_idx = dir.open(table + "." + field + ".trigrams.idx");
+		int count = stream_idx.readVInt();
+		searcher.m_trigrams = new long[count];
+		searcher.m_counts = new int[count];
+		searcher.m_offsets = new long[count];
+		long last_trigram = 0;
+		long last_offset = 0;
+		for(int i = 0; i < count; i++) {
+			last_trigram = searcher.m_trigrams[i] = last_trigram + stream_idx.readVLong();
+			searcher.m_counts[i] = stream_idx.readVInt();
+			last_offset = searcher.m_offsets[i] = last_offset + stream_idx.readVLong();
+		}
+		searcher.m_stream = dir.open(table + "." + field + ".trigrams");
+		return searcher;
+	}
+
+	/**
+	 * Returns the increasing numbers of the values that contain the trigrams of all the literals,
+	 * or null if the literals have no trigrams, in which case all values are candidates.
+	 */
+	public int[] candidates(List<String> literals) {
+		List<Integer> indexes = new ArrayList<Integer>();
+		for(String literal : literals) {
+			String upper = literal.toUpperCase();
+			for(int i = 0; i + 3 <= upper.length(); i++) {
+				int index = Arrays.binarySearch(m_trigrams, TrigramWriter.trigram(upper, i));
+				if(index < 0) return new int[0];
+				if(!indexes.contains(index)) indexes.add(index);
+			}
+		}
+		if(indexes.size() == 0) return null;
+		// intersect starting from the shortest lists
+		Integer[] order = indexes.toArray(new Integer[indexes.size()]);
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override public int compare(Integer x, Integer y) {
+				return Integer.compare(m_counts[x], m_counts[y]);
+			}
+		});
+		int[] result = postings(order[0]);
+		for(int i = 1; i < order.length && result.length > 0; i++) {
+			result = intersect(result, postings(order[i]));
+		}
+		return result;
+	}
+
+	private int[] postings(int index) {
+		int[] values = new int[m_counts[index]];
+		VInputStream stream = new VInputStream(m_stream);
+		stream.seek(m_offsets[index]);
+		stream.readVIntDeltas(values, 0, values.length);
+		return values;
+	}
+
+	private static int[] intersect(int[] x, int[] y) {
+		int[] result = new int[Math.min(x.length, y.length)];
+		int count = 0;
+		int i = 0;
+		int j = 0;
+		while(i < x.length && j < y.length) {
+			if(x[i] < y[j]) i++;
+			else if(x[i] > y[j]) j++;
+			else {
+				result[count++] = x[i];
+				i++;
+				j++;
+			}
+		}
+		return count == result.length ? result : Arrays.copyOf(result, count);
+	}
+
+	// substrings that a value matching the wildcard pattern must contain
+	public static List<String> wildcardLiterals(String pattern) {
+		List<String> literals = new ArrayList<String>();
+		int start = 0;
+		for(int i = 0; i <= pattern.length(); i++) {
+			if(i == pattern.length() || pattern.charAt(i) == '*' || pattern.charAt(i) == '?') {
+				if(i > start) literals.add(pattern.substring(start, i));
+				start = i + 1;
+			}
+		}
+		return literals;
+	}
+
+	// substrings that a value matching the contains query must contain, after being lower-cased.
+	// Tokens are split on apostrophes as well, because they are normalized by the tokenizer
+	public static List<String> containsLiterals(String value) {
+		List<String> literals = new ArrayList<String>();
+		if(value == null) return literals;
+		for(String token : new SimpleText().tokenizeWithWildcards(value)) {
+			int start = 0;
+			for(int i = 0; i <= token.length(); i++) {
+				if(i == token.length() || !Character.isLetterOrDigit(token.charAt(i))) {
+					if(i > start) literals.add(token.substring(start, i));
+					start = i + 1;
+				}
+			}
+		}
+		return literals;
+	}
+
+	/**
+	 * Substrings that a value matching the regular expression must contain. Only plain
+	 * characters outside of groups and classes are taken; for alternations, flags,
+	 * quotations and escapes that are not simple characters or classes no literals are returned.
+	 */
+	public static List<String> regexpLiterals(String regexp) {
+		List<String> literals = new ArrayList<String>();
+		StringBuilder run = new StringBuilder();
+		int i = 0;
+		while(i < regexp.length()) {
+			char ch = regexp.charAt(i);
+			if(ch == '|') return new ArrayList<String>();
+			else if(ch == '\\') {
+				if(i + 1 == regexp.length()) return new ArrayList<String>();
+				char next = regexp.charAt(i + 1);
+				if(!Character.isLetterOrDigit(next)) run.append(next);
+				else if("dDwWsSbB".indexOf(next) >= 0) flush(run, literals);
+				else return new ArrayList<String>();
+				i += 2;
+			}
+			else if(ch == '?' || ch == '*' || ch == '{') {
+				// previous character is optional
+				if(run.length() > 0) run.setLength(run.length() - 1);
+				if(run.length() > 0 && Character.isHighSurrogate(run.charAt(run.length() - 1))) run.setLength(run.length() - 1);
+				flush(run, literals);
+				if(ch == '{') {
+					int end = regexp.indexOf('}', i);
+					if(end < 0) return new ArrayList<String>();
+					i = end;
+				}
+				i++;
+			}
+			else if(ch == '+') {
+				flush(run, literals);
+				i++;
+			}
+			else if(ch == '(' || ch == '[') {
+				if(ch == '(' && i + 1 < regexp.length() && regexp.charAt(i + 1) == '?') return new ArrayList<String>();
+				flush(run, literals);
+				i = skipGroup(regexp, i);
+				if(i < 0) return new ArrayList<String>();
+			}
+			else if(ch == '.' || ch == '^' || ch == '$' || ch == ')' || ch == ']' || ch == '}') {
+				flush(run, literals);
+				i++;
+			}
+			else {
+				run.append(ch);
+				i++;
+			}
+		}
+		flush(run, literals);
+		return literals;
+	}
+
+	private static void flush(StringBuilder run, List<String> literals) {
+		if(run.length() > 0) literals.add(run.toString());
+		run.setLength(0);
+	}
+
+	// returns the position after the group or class starting at start, or -1 if it is not closed
+	// or contains nested classes
+	private static int skipGroup(String regexp, int start) {
+		int depth = 0;
+		boolean inClass = false;
+		int i = start;
+		while(i < regexp.length()) {
+			char ch = regexp.charAt(i);
+			if(ch == '\\') {
+				i += 2;
+				continue;
+			}
+			if(inClass) {
+				if(ch == '[') return -1;
+				if(ch == ']') inClass = false;
+			} else if(ch == '[') {
+				inClass = true;
+				// a closing bracket right after the opening one is a character of the class
+				if(i + 1 < regexp.length() && regexp.charAt(i + 1) == ']') i++;
+				else if(i + 2 < regexp.length() && regexp.charAt(i + 1) == '^' && regexp.charAt(i + 2) == ']') i += 2;
+			} else if(ch == '(') {
+				depth++;
+			} else if(ch == ')') {
+				depth--;
+			}
+			i++;
+			if(depth == 0 && !inClass) return i;
+		}
+		return -1;
+	}
+
+	public long cacheSize() {
+		return 1024 + 20L * m_trigrams.length;
+	}
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2014 Dell, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dell.doradus.olap.store;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import com.dell.doradus.olap.io.VDirectory;
+import com.dell.doradus.olap.io.VOutputStream;
+
+/**
+ * Term index of a text field: for every trigram of the values, the increasing list
+ * of the numbers of the values that contain it. Written by ValueWriter for fields
+ * with the 'term_index' option.
+ * <p>
+ * Trigrams are taken from the upper-cased value and from the lower-cased then upper-cased
+ * value, so that any substring matched by the case-insensitive wildcard and contains
+ * comparisons, or literally by a regular expression, has its trigrams in the index.
+ * <ul>
+ * <li>.trigrams: postings of every trigram, as VInt deltas</li>
+ * <li>.trigrams.idx: count of trigrams; then for each one, in increasing order,
+ *     trigram delta (VLong), count of postings (VInt), offset delta of postings (VLong)</li>
+ * </ul>
+ */
+public class TrigramWriter {
+	private HashMap<Long, IntList> m_postings = new HashMap<Long, IntList>();
+
+	public void add(int term, String value) {
+		String upper = value.toUpperCase();
+		addTrigrams(term, upper);
+		String lower = value.toLowerCase().toUpperCase();
+		if(!lower.equals(upper)) addTrigrams(term, lower);
+	}
+
+	private void addTrigrams(int term, String value) {
+		for(int i = 0; i + 3 <= value.length(); i++) {
+			Long trigram = trigram(value, i);
+			IntList list = m_postings.get(trigram);
+			if(list == null) {
+				list = new IntList(4);
+				m_postings.put(trigram, list);
+			}
+			if(list.size() == 0 || list.get(list.size() - 1) != term) list.add(term);
+		}
+	}
+
+	public static long trigram(CharSequence value, int start) {
+		return ((long)value.charAt(start) << 32) | ((long)value.charAt(start + 1) << 16) | value.charAt(start + 2);
+	}
+
+	public void close(VDirectory dir, String table, String field) {
+		long[] trigrams = new long[m_postings.size()];
+		int index = 0;
+		for(Long trigram : m_postings.keySet()) trigrams[index++] = trigram;
+		Arrays.sort(trigrams);
+		VOutputStream stream = dir.create(table + "." + field + ".trigrams");
+		VOutputStream stream_idx = dir.create(table + "." + field + ".trigrams.idx");
+		stream_idx.writeVInt(trigrams.length);
+		long last_trigram = 0;
+		long last_position = 0;
+		for(long trigram : trigrams) {
+			IntList list = m_postings.get(trigram);
+			stream_idx.writeVLong(trigram - last_trigram);
+			stream_idx.writeVInt(list.size());
+			stream_idx.writeVLong(stream.position() - last_position);
+			last_trigram = trigram;
+			last_position = stream.position();
+			stream.writeVIntDeltas(list.getArray(), 0, list.size());
+		}
+		stream.close();
+		stream_idx.close();
+		m_postings = null;
+	}
+
+}
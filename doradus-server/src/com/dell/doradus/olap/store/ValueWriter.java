@@ -31,8 +31,24 @@ public class ValueWriter {
 	private BSTR m_orig = new BSTR();
 	private long m_last_term_position = 0;
 	private long m_last_orig_position = 0;
+	private VDirectory m_dir;
+	private String m_table;
+	private String m_field;
+	private TrigramWriter m_trigrams;
+	// hashes of the terms, kept while there are at most m_bloomMaxValues of them
+	private long[] m_hashes;
+	private int m_bloomMaxValues;
 	
 	public ValueWriter(VDirectory dir, String table, String field) {
+		this(dir, table, field, false);
+	}
+	
+	// termIndex: also write the trigram index of the values
+	public ValueWriter(VDirectory dir, String table, String field, boolean termIndex) {
+		m_dir = dir;
+		m_table = table;
+		m_field = field;
+		if(termIndex) m_trigrams = new TrigramWriter();
 		m_stream_term = dir.create(table + "." + field + ".term");
 		m_stream_orig = dir.create(table + "." + field + ".orig");
 		m_stream_term_idx = dir.create(table + "." + field + ".term.idx");
@@ -41,6 +57,13 @@ public class ValueWriter {
 		m_last.length = -1;
 	}
 	
+	// also write a Bloom filter of the terms if there are at most maxValues of them
+	public void setBloomFilter(int maxValues) {
+		if(maxValues <= 0) return;
+		m_bloomMaxValues = maxValues;
+		m_hashes = new long[Math.min(maxValues, 1024)];
+	}
+	
 	public int add(BSTR term, BSTR orig) {
 		if(BSTR.isEqual(m_last, term)) return m_terms - 1;
 		if(m_terms % SPAN == 0) {
@@ -57,9 +80,24 @@ public class ValueWriter {
 		m_last.set(term);
 		m_stream_orig.writeVString(orig);
 		m_orig.set(orig);
+		if(m_trigrams != null) m_trigrams.add(m_terms, orig.toString());
+		if(m_hashes != null) addHash(term);
 		return m_terms++;
 	}
 	
+	private void addHash(BSTR term) {
+		if(m_terms == m_bloomMaxValues) {
+			m_hashes = null;
+			return;
+		}
+		if(m_terms == m_hashes.length) {
+			long[] hashes = new long[Math.min(m_bloomMaxValues, m_hashes.length * 2)];
+			System.arraycopy(m_hashes, 0, hashes, 0, m_terms);
+			m_hashes = hashes;
+		}
+		m_hashes[m_terms] = BloomFilter.hash(term);
+	}
+	
 	public int size() { return m_terms; }
 	
 	public void close() {
@@ -67,6 +105,13 @@ public class ValueWriter {
 		m_stream_orig.close();
 		m_stream_term_idx.close();
 		m_stream_orig_idx.close();
+		if(m_trigrams != null) m_trigrams.close(m_dir, m_table, m_field);
+		if(m_hashes != null) {
+			BloomFilter bloom = new BloomFilter(m_terms);
+			for(int i = 0; i < m_terms; i++) bloom.add(m_hashes[i]);
+			bloom.write(m_dir, m_table, m_field);
+			m_hashes = null;
+		}
 	}
 	
 }
@@ -16,9 +16,6 @@
 
 package com.dell.doradus.olap.xlink;
 
-import java.util.HashSet;
-import java.util.Set;
-
 import com.dell.doradus.common.FieldDefinition;
 import com.dell.doradus.common.TableDefinition;
 import com.dell.doradus.olap.io.BSTR;
@@ -35,8 +32,8 @@ import com.dell.doradus.search.query.Query;
 public class DirectXLinkQueryAll implements Query, XLinkQuery {
 	private FieldDefinition fieldDef;
 	private Query innerQuery;
-	private Set<BSTR> xresult;
-	private Set<BSTR> xfilter;
+	private XLinkKeys xresult;
+	private XLinkKeys xfilter;
 	
 	public DirectXLinkQueryAll(XLinkContext ctx, TableDefinition tableDef, LinkQuery lq) {
 		fieldDef = tableDef.getFieldDef(lq.link);
@@ -47,19 +44,22 @@ public class DirectXLinkQueryAll implements Query, XLinkQuery {
 		}
 	}
 	
-	private Set<BSTR> search(XLinkContext ctx, TableDefinition tableDef, Query query) {
-		Set<BSTR> set = new HashSet<BSTR>();
+	private XLinkKeys search(XLinkContext ctx, TableDefinition tableDef, Query query) {
+		String key = ctx.getCacheKey("ids", tableDef, null, query);
+		XLinkKeys keys = ctx.getCached(key);
+		if(keys != null) return keys;
+		XLinkKeys.Builder builder = new XLinkKeys.Builder();
 		for(String xshard : ctx.xshards) {
 			CubeSearcher searcher = ctx.olap.getSearcher(ctx.application, xshard);
 			Result r = ResultBuilder.search(tableDef, query, searcher);
 			IdSearcher ids = searcher.getIdSearcher(tableDef.getTableName());
-			for(int i = 0; i < r.size(); i++) {
-				if(!r.get(i)) continue;
-				BSTR id = ids.getId(i);
-				set.add(new BSTR(id));
+			for(int i = r.nextSetBit(0); i >= 0; i = r.nextSetBit(i + 1)) {
+				builder.add(ids.getId(i));
 			}
 		}
-		return set;
+		keys = builder.build();
+		ctx.putCached(key, keys);
+		return keys;
 	}
 	
 
@@ -67,10 +67,12 @@ public class DirectXLinkQueryAll implements Query, XLinkQuery {
 		ValueSearcher vs = searcher.getValueSearcher(fieldDef.getTableName(), fieldDef.getXLinkJunction());
 		Result bvQuery = new Result(vs.size());
 		Result bvFilter = new Result(vs.size());
+		XLinkKeys.Cursor cursorQuery = xresult.cursor();
+		XLinkKeys.Cursor cursorFilter = xfilter == null ? null : xfilter.cursor();
 		for(int i = 0; i < vs.size(); i++) {
 			BSTR val = vs.getValue(i);
-			if(xfilter != null && xfilter.contains(val)) bvFilter.set(i);
-			if(xresult.contains(val)) bvQuery.set(i);
+			if(cursorFilter != null && cursorFilter.find(val) >= 0) bvFilter.set(i);
+			if(cursorQuery.find(val) >= 0) bvQuery.set(i);
 		}
 		if(xfilter == null) bvFilter.not();
 		FieldSearcher fs = searcher.getFieldSearcher(fieldDef.getTableName(), fieldDef.getXLinkJunction());
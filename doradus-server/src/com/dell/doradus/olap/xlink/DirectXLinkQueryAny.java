@@ -16,12 +16,8 @@
 
 package com.dell.doradus.olap.xlink;
 
-import java.util.HashSet;
-import java.util.Set;
-
 import com.dell.doradus.common.FieldDefinition;
 import com.dell.doradus.common.TableDefinition;
-import com.dell.doradus.olap.io.BSTR;
 import com.dell.doradus.olap.search.Result;
 import com.dell.doradus.olap.search.ResultBuilder;
 import com.dell.doradus.olap.store.CubeSearcher;
@@ -34,42 +30,42 @@ import com.dell.doradus.search.query.Query;
 public class DirectXLinkQueryAny implements Query, XLinkQuery {
 	private FieldDefinition fieldDef;
 	private Query innerQuery;
-	private Set<BSTR> xresult;
-	private Set<BSTR> xfilter;
+	private XLinkKeys xresult;
 	
 	public DirectXLinkQueryAny(XLinkContext ctx, TableDefinition tableDef, LinkQuery lq) {
 		fieldDef = tableDef.getFieldDef(lq.link);
 		innerQuery = lq.innerQuery;
 		xresult = search(ctx, fieldDef.getInverseTableDef(), innerQuery);
 		if(lq.filter != null) {
-			xfilter = search(ctx, fieldDef.getInverseTableDef(), lq.filter);
+			xresult = xresult.and(search(ctx, fieldDef.getInverseTableDef(), lq.filter));
 		}
 	}
 	
-	private Set<BSTR> search(XLinkContext ctx, TableDefinition tableDef, Query query) {
-		Set<BSTR> set = new HashSet<BSTR>();
+	private XLinkKeys search(XLinkContext ctx, TableDefinition tableDef, Query query) {
+		String key = ctx.getCacheKey("ids", tableDef, null, query);
+		XLinkKeys keys = ctx.getCached(key);
+		if(keys != null) return keys;
+		XLinkKeys.Builder builder = new XLinkKeys.Builder();
 		for(String xshard : ctx.xshards) {
 			CubeSearcher searcher = ctx.olap.getSearcher(ctx.application, xshard);
 			Result r = ResultBuilder.search(tableDef, query, searcher);
 			IdSearcher ids = searcher.getIdSearcher(tableDef.getTableName());
-			for(int i = 0; i < r.size(); i++) {
-				if(!r.get(i)) continue;
-				BSTR id = ids.getId(i);
-				set.add(new BSTR(id));
+			for(int i = r.nextSetBit(0); i >= 0; i = r.nextSetBit(i + 1)) {
+				builder.add(ids.getId(i));
 			}
 		}
-		return set;
+		keys = builder.build();
+		ctx.putCached(key, keys);
+		return keys;
 	}
 	
 
 	public void search(CubeSearcher searcher, Result result) {
 		ValueSearcher vs = searcher.getValueSearcher(fieldDef.getTableName(), fieldDef.getXLinkJunction());
 		Result r = new Result(vs.size());
+		XLinkKeys.Cursor cursor = xresult.cursor();
 		for(int i = 0; i < r.size(); i++) {
-			BSTR val = vs.getValue(i);
-			if(xfilter != null && !xfilter.contains(val)) continue;
-			if(!xresult.contains(val)) continue;
-			r.set(i);
+			if(cursor.find(vs.getValue(i)) >= 0) r.set(i);
 		}
 		FieldSearcher fs = searcher.getFieldSearcher(fieldDef.getTableName(), fieldDef.getXLinkJunction());
 		fs.fillDocs(r, result);
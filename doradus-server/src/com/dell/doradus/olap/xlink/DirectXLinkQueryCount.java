@@ -16,12 +16,8 @@
 
 package com.dell.doradus.olap.xlink;
 
-import java.util.HashSet;
-import java.util.Set;
-
 import com.dell.doradus.common.FieldDefinition;
 import com.dell.doradus.common.TableDefinition;
-import com.dell.doradus.olap.io.BSTR;
 import com.dell.doradus.olap.search.Result;
 import com.dell.doradus.olap.search.ResultBuilder;
 import com.dell.doradus.olap.store.CubeSearcher;
@@ -34,7 +30,7 @@ import com.dell.doradus.search.query.Query;
 
 public class DirectXLinkQueryCount implements Query, XLinkQuery {
 	private FieldDefinition fieldDef;
-	private Set<BSTR> xfilter;
+	private XLinkKeys xfilter;
 	private int min;
 	private int max;
 	
@@ -58,28 +54,31 @@ public class DirectXLinkQueryCount implements Query, XLinkQuery {
 		if(lq.range.maxInclusive) max++;
 	}
 	
-	private Set<BSTR> search(XLinkContext ctx, TableDefinition tableDef, Query query) {
-		Set<BSTR> set = new HashSet<BSTR>();
+	private XLinkKeys search(XLinkContext ctx, TableDefinition tableDef, Query query) {
+		String key = ctx.getCacheKey("ids", tableDef, null, query);
+		XLinkKeys keys = ctx.getCached(key);
+		if(keys != null) return keys;
+		XLinkKeys.Builder builder = new XLinkKeys.Builder();
 		for(String xshard : ctx.xshards) {
 			CubeSearcher searcher = ctx.olap.getSearcher(ctx.application, xshard);
 			Result r = ResultBuilder.search(tableDef, query, searcher);
 			IdSearcher ids = searcher.getIdSearcher(tableDef.getTableName());
-			for(int i = 0; i < r.size(); i++) {
-				if(!r.get(i)) continue;
-				BSTR id = ids.getId(i);
-				set.add(new BSTR(id));
+			for(int i = r.nextSetBit(0); i >= 0; i = r.nextSetBit(i + 1)) {
+				builder.add(ids.getId(i));
 			}
 		}
-		return set;
+		keys = builder.build();
+		ctx.putCached(key, keys);
+		return keys;
 	}
 	
 
 	public void search(CubeSearcher searcher, Result result) {
 		ValueSearcher vs = searcher.getValueSearcher(fieldDef.getTableName(), fieldDef.getXLinkJunction());
 		Result r = new Result(vs.size());
+		XLinkKeys.Cursor cursor = xfilter == null ? null : xfilter.cursor();
 		for(int i = 0; i < r.size(); i++) {
-			BSTR val = vs.getValue(i);
-			if(xfilter != null && !xfilter.contains(val)) continue;
+			if(cursor != null && cursor.find(vs.getValue(i)) < 0) continue;
 			r.set(i);
 		}
 		FieldSearcher fs = searcher.getFieldSearcher(fieldDef.getTableName(), fieldDef.getXLinkJunction());
@@ -16,12 +16,8 @@
 
 package com.dell.doradus.olap.xlink;
 
-import java.util.HashSet;
-import java.util.Set;
-
 import com.dell.doradus.common.FieldDefinition;
 import com.dell.doradus.common.TableDefinition;
-import com.dell.doradus.olap.io.BSTR;
 import com.dell.doradus.olap.search.Result;
 import com.dell.doradus.olap.search.ResultBuilder;
 import com.dell.doradus.olap.store.CubeSearcher;
@@ -37,8 +33,8 @@ public class InverseXLinkQueryAll implements Query, XLinkQuery {
 	private FieldDefinition fieldDef;
 	private Query innerQuery;
 	private Query filterQuery;
-	private Set<BSTR> xExisting;
-	private Set<BSTR> xHasFalse;
+	// values linked by objects passing the filter, none of which failing the query
+	private XLinkKeys xresult;
 	
 	public InverseXLinkQueryAll(XLinkContext ctx, TableDefinition tableDef, LinkQuery lq) {
 		fieldDef = tableDef.getFieldDef(lq.link);
@@ -49,8 +45,11 @@ public class InverseXLinkQueryAll implements Query, XLinkQuery {
 	}
 	
 	private void setup(XLinkContext ctx, TableDefinition tableDef, String field) {
-		xExisting = new HashSet<BSTR>();
-		xHasFalse = new HashSet<BSTR>();
+		String key = ctx.getCacheKey("all", tableDef, field, innerQuery, filterQuery);
+		xresult = ctx.getCached(key);
+		if(xresult != null) return;
+		XLinkKeys.Builder xExisting = new XLinkKeys.Builder();
+		XLinkKeys.Builder xHasFalse = new XLinkKeys.Builder();
 		for(String xshard : ctx.xshards) {
 			CubeSearcher searcher = ctx.olap.getSearcher(ctx.application, xshard);
 			Result rQuery = ResultBuilder.search(tableDef, innerQuery, searcher);
@@ -71,25 +70,22 @@ public class InverseXLinkQueryAll implements Query, XLinkQuery {
 				
 			}
 			ValueSearcher vs = searcher.getValueSearcher(tableDef.getTableName(), field);
-			for(int i = 0; i < rExisting.size(); i++) {
-				if(rFilter.get(i)) {
-					BSTR val = vs.getValue(i);
-					xExisting.add(new BSTR(val));
-				}
-				if(rHasFalse.get(i)) {
-					BSTR val = vs.getValue(i);
-					xHasFalse.add(new BSTR(val));
-				}
+			for(int i = rExisting.nextSetBit(0); i >= 0; i = rExisting.nextSetBit(i + 1)) {
+				xExisting.add(vs.getValue(i));
+				if(rHasFalse.get(i)) xHasFalse.add(vs.getValue(i));
 			}
 		}
+		xresult = xExisting.build().andNot(xHasFalse.build());
+		ctx.putCached(key, xresult);
 	}
 
-	public void search(CubeSearcher searcher, Result result) {
+	public void search(CubeSearcher searcher, final Result result) {
 		IdSearcher ids = searcher.getIdSearcher(fieldDef.getTableDef().getTableName());
-		for(int i = 0; i < result.size(); i++) {
-			BSTR id = ids.getId(i);
-			if(xExisting.contains(id) && !xHasFalse.contains(id)) result.set(i);
-		}
+		xresult.join(ids, new XLinkKeys.Visitor() {
+			@Override public void visit(int index, int doc) {
+				result.set(doc);
+			}
+		});
 	}
 	
 }
@@ -16,12 +16,8 @@
 
 package com.dell.doradus.olap.xlink;
 
-import java.util.HashSet;
-import java.util.Set;
-
 import com.dell.doradus.common.FieldDefinition;
 import com.dell.doradus.common.TableDefinition;
-import com.dell.doradus.olap.io.BSTR;
 import com.dell.doradus.olap.search.Result;
 import com.dell.doradus.olap.search.ResultBuilder;
 import com.dell.doradus.olap.store.CubeSearcher;
@@ -34,8 +30,7 @@ import com.dell.doradus.search.query.Query;
 public class InverseXLinkQueryAny implements Query, XLinkQuery {
 	private FieldDefinition fieldDef;
 	private Query innerQuery;
-	private Set<BSTR> xresult;
-	private Set<BSTR> xfilter;
+	private XLinkKeys xresult;
 	
 	public InverseXLinkQueryAny(XLinkContext ctx, TableDefinition tableDef, LinkQuery lq) {
 		fieldDef = tableDef.getFieldDef(lq.link);
@@ -43,12 +38,15 @@ public class InverseXLinkQueryAny implements Query, XLinkQuery {
 		innerQuery = lq.innerQuery;
 		xresult = search(ctx, fieldDef.getInverseTableDef(), innerQuery, inv.getXLinkJunction());
 		if(lq.filter != null) {
-			xfilter = search(ctx, fieldDef.getInverseTableDef(), lq.filter, inv.getXLinkJunction());
+			xresult = xresult.and(search(ctx, fieldDef.getInverseTableDef(), lq.filter, inv.getXLinkJunction()));
 		}
 	}
 	
-	private Set<BSTR> search(XLinkContext ctx, TableDefinition tableDef, Query query, String field) {
-		Set<BSTR> set = new HashSet<BSTR>();
+	private XLinkKeys search(XLinkContext ctx, TableDefinition tableDef, Query query, String field) {
+		String key = ctx.getCacheKey("values", tableDef, field, query);
+		XLinkKeys keys = ctx.getCached(key);
+		if(keys != null) return keys;
+		XLinkKeys.Builder builder = new XLinkKeys.Builder();
 		for(String xshard : ctx.xshards) {
 			CubeSearcher searcher = ctx.olap.getSearcher(ctx.application, xshard);
 			Result r = ResultBuilder.search(tableDef, query, searcher);
@@ -56,23 +54,22 @@ public class InverseXLinkQueryAny implements Query, XLinkQuery {
 			Result r2 = new Result(fs.fields());
 			fs.fillValues(r, r2);
 			ValueSearcher vs = searcher.getValueSearcher(tableDef.getTableName(), field);
-			for(int i = 0; i < r2.size(); i++) {
-				if(!r2.get(i)) continue;
-				BSTR val = vs.getValue(i);
-				set.add(new BSTR(val));
+			for(int i = r2.nextSetBit(0); i >= 0; i = r2.nextSetBit(i + 1)) {
+				builder.add(vs.getValue(i));
 			}
 		}
-		return set;
+		keys = builder.build();
+		ctx.putCached(key, keys);
+		return keys;
 	}
 
-	public void search(CubeSearcher searcher, Result result) {
+	public void search(CubeSearcher searcher, final Result result) {
 		IdSearcher ids = searcher.getIdSearcher(fieldDef.getTableDef().getTableName());
-		for(int i = 0; i < result.size(); i++) {
-			BSTR id = ids.getId(i);
-			if(xfilter != null && !xfilter.contains(id)) continue;
-			if(!xresult.contains(id)) continue;
-			result.set(i);
-		}
+		xresult.join(ids, new XLinkKeys.Visitor() {
+			@Override public void visit(int index, int doc) {
+				result.set(doc);
+			}
+		});
 	}
 	
 }
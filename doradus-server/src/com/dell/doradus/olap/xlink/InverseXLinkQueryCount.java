@@ -16,12 +16,8 @@
 
 package com.dell.doradus.olap.xlink;
 
-import java.util.HashMap;
-import java.util.Map;
-
 import com.dell.doradus.common.FieldDefinition;
 import com.dell.doradus.common.TableDefinition;
-import com.dell.doradus.olap.io.BSTR;
 import com.dell.doradus.olap.search.Result;
 import com.dell.doradus.olap.search.ResultBuilder;
 import com.dell.doradus.olap.store.CubeSearcher;
@@ -35,14 +31,8 @@ import com.dell.doradus.search.query.LinkCountRangeQuery;
 import com.dell.doradus.search.query.Query;
 
 public class InverseXLinkQueryCount implements Query, XLinkQuery {
-	static class IntVal
-	{
-		public int val = 0;
-		@Override public String toString() { return "" + val; }
-	}
-	
 	private FieldDefinition fieldDef;
-	private Map<BSTR, IntVal> xcount;
+	private XLinkKeys xcount;
 	private int min;
 	private int max;
 	
@@ -64,17 +54,19 @@ public class InverseXLinkQueryCount implements Query, XLinkQuery {
 		if(lq.range.maxInclusive) max++;
 	}
 	
-	private Map<BSTR, IntVal> search(XLinkContext ctx, TableDefinition tableDef, Query query, String field) {
+	private XLinkKeys search(XLinkContext ctx, TableDefinition tableDef, Query query, String field) {
 		if(query == null) query = new AllQuery();
-		Map<BSTR, IntVal> map = new HashMap<BSTR, IntVal>();
+		String key = ctx.getCacheKey("count", tableDef, field, query);
+		XLinkKeys keys = ctx.getCached(key);
+		if(keys != null) return keys;
+		XLinkKeys.Builder builder = new XLinkKeys.Builder(true);
 		for(String xshard : ctx.xshards) {
 			CubeSearcher searcher = ctx.olap.getSearcher(ctx.application, xshard);
 			Result r = ResultBuilder.search(tableDef, query, searcher);
 			FieldSearcher fs = searcher.getFieldSearcher(tableDef.getTableName(), field);
 			int[] counts = new int[fs.fields()];
 			IntIterator iter = new IntIterator();
-			for(int i=0; i<r.size(); i++) {
-				if(!r.get(i)) continue;
+			for(int i = r.nextSetBit(0); i >= 0; i = r.nextSetBit(i + 1)) {
 				fs.fields(i, iter);
 				for(int j=0; j<iter.count(); j++) {
 					counts[iter.get(j)]++;
@@ -83,28 +75,26 @@ public class InverseXLinkQueryCount implements Query, XLinkQuery {
 			ValueSearcher vs = searcher.getValueSearcher(tableDef.getTableName(), field);
 			for(int i = 0; i < vs.size(); i++) {
 				if(counts[i] == 0) continue;
-				BSTR val = vs.getValue(i);
-				IntVal cnt = map.get(val);
-				if(cnt == null) {
-					cnt = new IntVal();
-					map.put(new BSTR(val), cnt);
-				}
-				cnt.val += counts[i];
+				builder.add(vs.getValue(i), counts[i]);
 			}
 		}
-		return map;
+		keys = builder.build();
+		ctx.putCached(key, keys);
+		return keys;
 	}
 
-	public void search(CubeSearcher searcher, Result result) {
+	public void search(CubeSearcher searcher, final Result result) {
 		IdSearcher ids = searcher.getIdSearcher(fieldDef.getTableDef().getTableName());
-		for(int i = 0; i < result.size(); i++) {
-			BSTR id = ids.getId(i);
-			IntVal cnt = xcount.get(id);
-			int c = cnt == null ? 0 : cnt.val;
-			if(c >= min && c < max) {
-				result.set(i);
+		// objects without linked values have count 0: if 0 is in the range, the objects
+		// out of the range are found and the result is inverted
+		final boolean zeroMatches = 0 >= min && 0 < max;
+		xcount.join(ids, new XLinkKeys.Visitor() {
+			@Override public void visit(int index, int doc) {
+				int c = xcount.count(index);
+				if((c >= min && c < max) != zeroMatches) result.set(doc);
 			}
-		}
+		});
+		if(zeroMatches) result.not();
 	}
 	
 }
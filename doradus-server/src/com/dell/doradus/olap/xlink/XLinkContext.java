@@ -21,6 +21,7 @@ import java.util.List;
 import com.dell.doradus.common.FieldDefinition;
 import com.dell.doradus.common.TableDefinition;
 import com.dell.doradus.common.Utils;
+import com.dell.doradus.core.ServerConfig;
 import com.dell.doradus.olap.Olap;
 import com.dell.doradus.search.query.AndQuery;
 import com.dell.doradus.search.query.IdQuery;
@@ -31,9 +32,14 @@ import com.dell.doradus.search.query.LinkQuery;
 import com.dell.doradus.search.query.NotQuery;
 import com.dell.doradus.search.query.OrQuery;
 import com.dell.doradus.search.query.Query;
+import com.dell.doradus.search.util.ConcurrentSizeCache;
 
 // class representing structures needed during the search/aggregate, if external links are present 
 public class XLinkContext {
+	private static int xlinkCache = -1;
+	// keys found in the xshards, by kind, table, field, queries and current segments of the xshards
+	private static ConcurrentSizeCache<String, XLinkKeys> m_cache;
+	
 	public String application;
 	public Olap olap;
 	public List<String> xshards;
@@ -43,6 +49,35 @@ public class XLinkContext {
 		this.olap = olap;
 		this.xshards = xshards;
 	}
+	
+	// cache key of the keys of the given kind, computed from the given queries over the current segments
+	// of the xshards, or null if the cache is disabled
+	public String getCacheKey(String kind, TableDefinition tableDef, String field, Query... queries) {
+		synchronized(XLinkContext.class) {
+			if(xlinkCache == -1) {
+				xlinkCache = ServerConfig.getInstance().olap_xlink_cache_size_mb;
+				if(xlinkCache > 0) {
+					m_cache = new ConcurrentSizeCache<String, XLinkKeys>(xlinkCache * 1024L * 1024);
+				}
+			}
+		}
+		if(m_cache == null) return null;
+		StringBuilder key = new StringBuilder();
+		key.append(kind).append('/').append(application).append('/').append(tableDef.getTableName());
+		key.append('/').append(field);
+		for(Query query : queries) key.append('/').append(query == null ? "" : query.toString());
+		for(String xshard : xshards) key.append('/').append(olap.getSearcher(application, xshard).getId());
+		return key.toString();
+	}
+	
+	public XLinkKeys getCached(String key) {
+		return key == null ? null : m_cache.get(key);
+	}
+	
+	public void putCached(String key, XLinkKeys keys) {
+		if(key == null) return;
+		m_cache.put(key, keys, keys.cacheSize() + 2 * key.length());
+	}
 
 	public static boolean isXLinkQuery(TableDefinition tableDef, Query query) {
 		if(query instanceof AndQuery) {
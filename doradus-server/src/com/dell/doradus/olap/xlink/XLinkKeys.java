@@ -0,0 +1,267 @@
+/*
+ * Copyright (C) 2014 Dell, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dell.doradus.olap.xlink;
+
+import com.dell.doradus.olap.io.BSTR;
+import com.dell.doradus.olap.store.IdSearcher;
+import com.dell.doradus.olap.store.IntList;
+
+/**
+ * Sorted set of the keys (ids or junction values) found in the xshards by an xlink query,
+ * with an optional count per key. Keys are packed into one byte array, in the order of BSTR.compare,
+ * so that they are joined with the sorted id column of a shard by a merge, and with the value
+ * dictionary of the junction field by a cursor, without allocating a BSTR per key.
+ */
+public class XLinkKeys {
+	private byte[] m_data;
+	private int[] m_offsets;
+	private int[] m_counts;
+	private int m_size;
+
+	private XLinkKeys(byte[] data, int[] offsets, int[] counts, int size) {
+		m_data = data;
+		m_offsets = offsets;
+		m_counts = counts;
+		m_size = size;
+	}
+
+	public int size() { return m_size; }
+
+	public int count(int index) { return m_counts == null ? 1 : m_counts[index]; }
+
+	public void get(int index, BSTR key) {
+		int length = m_offsets[index + 1] - m_offsets[index];
+		key.assertLength(length);
+		System.arraycopy(m_data, m_offsets[index], key.buffer, 0, length);
+		key.length = length;
+	}
+
+	// same order as BSTR.compare
+	private int compare(int index, BSTR key) {
+		int offset = m_offsets[index];
+		int length = m_offsets[index + 1] - offset;
+		int l = Math.min(length, key.length);
+		for(int i = 0; i < l; i++) {
+			int bx = m_data[offset + i] & 0xFF;
+			int by = key.buffer[i] & 0xFF;
+			if(bx != by) return bx < by ? -1 : 1;
+		}
+		return length < key.length ? -1 : length > key.length ? 1 : 0;
+	}
+
+	private static int compare(byte[] data, int[] offsets, int x, int y) {
+		int ox = offsets[x];
+		int lx = offsets[x + 1] - ox;
+		int oy = offsets[y];
+		int ly = offsets[y + 1] - oy;
+		int l = Math.min(lx, ly);
+		for(int i = 0; i < l; i++) {
+			int bx = data[ox + i] & 0xFF;
+			int by = data[oy + i] & 0xFF;
+			if(bx != by) return bx < by ? -1 : 1;
+		}
+		return lx < ly ? -1 : lx > ly ? 1 : 0;
+	}
+
+	// first index in [from, to) whose key is not less than the given key, or to if none
+	private int lowerBound(BSTR key, int from, int to) {
+		while(from < to) {
+			int mid = (from + to) >>> 1;
+			if(compare(mid, key) < 0) from = mid + 1;
+			else to = mid;
+		}
+		return from;
+	}
+
+	public int indexOf(BSTR key) {
+		int index = lowerBound(key, 0, m_size);
+		return index < m_size && compare(index, key) == 0 ? index : -1;
+	}
+
+	public boolean contains(BSTR key) { return indexOf(key) >= 0; }
+
+	/**
+	 * Calls the visitor for every document of the sorted id column whose id is in the set:
+	 * keys are walked in order and ids are skipped with IdSearcher.findNext.
+	 */
+	public void join(IdSearcher ids, Visitor visitor) {
+		ids.reset();
+		BSTR key = new BSTR();
+		for(int i = 0; i < m_size; i++) {
+			get(i, key);
+			int doc = ids.findNext(key);
+			if(doc >= 0) visitor.visit(i, doc);
+		}
+	}
+
+	public interface Visitor {
+		public void visit(int index, int doc);
+	}
+
+	// keys of this set that are also in the other one
+	public XLinkKeys and(XLinkKeys other) { return merge(other, true); }
+
+	// keys of this set that are not in the other one
+	public XLinkKeys andNot(XLinkKeys other) { return merge(other, false); }
+
+	private XLinkKeys merge(XLinkKeys other, boolean and) {
+		Builder builder = new Builder(m_counts != null);
+		BSTR key = new BSTR();
+		int j = 0;
+		for(int i = 0; i < m_size; i++) {
+			get(i, key);
+			while(j < other.m_size && other.compare(j, key) < 0) j++;
+			boolean found = j < other.m_size && other.compare(j, key) == 0;
+			if(found == and) builder.add(key, count(i));
+		}
+		return builder.build();
+	}
+
+	public long cacheSize() {
+		return 64 + m_data.length + 4L * m_offsets.length + (m_counts == null ? 0 : 4L * m_counts.length);
+	}
+
+	/**
+	 * Finds keys probed mostly in increasing order, such as the values of the junction field:
+	 * the search gallops forward from the position of the last key found, and falls back
+	 * to a binary search if the probed key is before it.
+	 */
+	public class Cursor {
+		private int m_position = 0;
+
+		// returns the index of the key, or -1 if it is not in the set
+		public int find(BSTR key) {
+			int c = m_position < m_size ? compare(m_position, key) : 1;
+			if(c == 0) return m_position;
+			if(c > 0) {
+				if(m_position == 0 || compare(m_position - 1, key) < 0) return -1;
+				m_position = lowerBound(key, 0, m_position - 1);
+			} else {
+				int from = m_position + 1;
+				int step = 1;
+				while(from + step - 1 < m_size && compare(from + step - 1, key) < 0) {
+					from += step;
+					step *= 2;
+				}
+				m_position = lowerBound(key, from, Math.min(from + step - 1, m_size));
+			}
+			return m_position < m_size && compare(m_position, key) == 0 ? m_position : -1;
+		}
+	}
+
+	public Cursor cursor() { return new Cursor(); }
+
+	/**
+	 * Collects keys in any order; build() sorts them, merging runs of already sorted keys
+	 * such as the ids of one shard, and sums the counts of equal keys.
+	 */
+	public static class Builder {
+		private byte[] m_data = new byte[1024];
+		private IntList m_offsets = new IntList(256);
+		private IntList m_counts;
+		private int m_length = 0;
+
+		public Builder() { this(false); }
+
+		// withCounts: keep the sum of the counts of every key
+		public Builder(boolean withCounts) {
+			m_offsets.add(0);
+			if(withCounts) m_counts = new IntList(256);
+		}
+
+		public void add(BSTR key) { add(key, 1); }
+
+		public void add(BSTR key, int count) {
+			if(m_length + key.length > m_data.length) {
+				byte[] data = new byte[Math.max(m_data.length * 2, m_length + key.length)];
+				System.arraycopy(m_data, 0, data, 0, m_length);
+				m_data = data;
+			}
+			System.arraycopy(key.buffer, 0, m_data, m_length, key.length);
+			m_length += key.length;
+			m_offsets.add(m_length);
+			if(m_counts != null) m_counts.add(count);
+		}
+
+		public XLinkKeys build() {
+			int size = m_offsets.size() - 1;
+			int[] offsets = new int[size + 1];
+			for(int i = 0; i <= size; i++) offsets[i] = m_offsets.get(i);
+			int[] order = sort(offsets, size);
+			byte[] data = new byte[m_length];
+			int[] newOffsets = new int[size + 1];
+			int[] counts = m_counts != null ? new int[size] : null;
+			int count = 0;
+			int length = 0;
+			for(int i = 0; i < size; i++) {
+				int index = order[i];
+				if(count > 0 && compare(m_data, offsets, order[i - 1], index) == 0) {
+					if(counts != null) counts[count - 1] += m_counts.get(index);
+					continue;
+				}
+				int keyLength = offsets[index + 1] - offsets[index];
+				System.arraycopy(m_data, offsets[index], data, length, keyLength);
+				length += keyLength;
+				if(counts != null) counts[count] = m_counts.get(index);
+				newOffsets[++count] = length;
+			}
+			return new XLinkKeys(data, newOffsets, counts, count);
+		}
+
+		// natural merge sort of the key indexes
+		private int[] sort(int[] offsets, int size) {
+			int[] order = new int[size];
+			for(int i = 0; i < size; i++) order[i] = i;
+			IntList runs = new IntList(16);
+			runs.add(0);
+			for(int i = 1; i < size; i++) {
+				if(compare(m_data, offsets, i - 1, i) > 0) runs.add(i);
+			}
+			runs.add(size);
+			int[] tmp = new int[size];
+			while(runs.size() > 2) {
+				IntList merged = new IntList(runs.size() / 2 + 2);
+				for(int r = 0; r + 1 < runs.size(); r += 2) {
+					int start = runs.get(r);
+					int mid = runs.get(r + 1);
+					int end = r + 2 < runs.size() ? runs.get(r + 2) : mid;
+					merge(offsets, order, tmp, start, mid, end);
+					merged.add(start);
+				}
+				merged.add(size);
+				int[] t = order;
+				order = tmp;
+				tmp = t;
+				runs = merged;
+			}
+			return order;
+		}
+
+		private void merge(int[] offsets, int[] src, int[] dst, int start, int mid, int end) {
+			int i = start;
+			int j = mid;
+			int k = start;
+			while(i < mid && j < end) {
+				if(compare(m_data, offsets, src[j], src[i]) < 0) dst[k++] = src[j++];
+				else dst[k++] = src[i++];
+			}
+			while(i < mid) dst[k++] = src[i++];
+			while(j < end) dst[k++] = src[j++];
+		}
+	}
+
+}
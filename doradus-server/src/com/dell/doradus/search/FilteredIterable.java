@@ -23,8 +23,9 @@ import com.dell.doradus.common.TableDefinition;
 import com.dell.doradus.core.ObjectID;
 import com.dell.doradus.search.aggregate.EntitySequence;
 import com.dell.doradus.search.filter.Filter;
+import com.dell.doradus.search.iterator.EstimatedIterable;
 
-public class FilteredIterable implements Iterable<ObjectID> {
+public class FilteredIterable implements EstimatedIterable {
     private Filter m_filter;
     private Iterable<ObjectID> m_sequence;
     private Searcher m_searcher;
@@ -47,6 +48,9 @@ public class FilteredIterable implements Iterable<ObjectID> {
         return new FilteredIterator(m_filter, sequence.iterator());
     }
     
+    // the filter can only lower the estimate of the sequence
+    @Override public long estimatedCount() { return QueryPlanner.estimatedCount(m_sequence); }
+    
     public Filter filter() { return m_filter; }
     public Iterable<ObjectID> sequence() { return m_sequence; }
     
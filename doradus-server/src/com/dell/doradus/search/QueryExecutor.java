@@ -70,6 +70,11 @@ public class QueryExecutor {
         m_parameters.l2r = l2rEnabled;
     }
     
+    // records the plan of the query, returned with its results
+    public void setExplain(boolean explain) {
+        m_parameters.plan = explain ? new QueryPlan() : null;
+    }
+    
     public SearchResultList search(String query, String fields, String sortOrder) {
     	if(sortOrder != null && m_parameters.continuation != null) {
     		throw new IllegalArgumentException("Cannot use &g or &e parameters with &o parameter. " +
@@ -100,6 +105,7 @@ public class QueryExecutor {
             FieldSetCreator fieldSetCreator = new FieldSetCreator(fieldSet, order);
             EntitySequence sequence = factory.getSequence(m_table, iter, fieldSetCreator.loadedFields);
             SearchResultList searchResultList = fieldSetCreator.create(sequence, m_skip);
+            searchResultList.plan = m_parameters.plan;
             return searchResultList;
         }catch(Exception ex) {
         	LOG.error("Search error: {}", ex);
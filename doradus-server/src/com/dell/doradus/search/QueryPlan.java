@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2014 Dell, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.dell.doradus.search;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.dell.doradus.common.UNode;
+import com.dell.doradus.search.iterator.AllIterable;
+import com.dell.doradus.search.iterator.EstimatedIterable;
+import com.dell.doradus.search.iterator.NoneIterable;
+import com.dell.doradus.search.query.Query;
+
+/**
+ * Plan chosen for a query, returned by queries with the explain option: for every
+ * clause searched, how its objects are found (index, scan or none), whether they are
+ * filtered, their estimated number and the role given to the clause by the planner.
+ */
+public class QueryPlan {
+	private List<Step> m_steps = new ArrayList<Step>();
+	private ArrayDeque<Step> m_stack = new ArrayDeque<Step>();
+
+	public static class Step {
+		private String m_query;
+		private String m_access;
+		private boolean m_filtered;
+		private long m_estimate;
+		private String m_role;
+		private List<Step> m_steps = new ArrayList<Step>();
+
+		private Step(Query query) {
+			m_query = query.toString();
+		}
+
+		public void setRole(String role) { m_role = role; }
+
+		private UNode toDoc() {
+			UNode node = UNode.createMapNode("step");
+			node.addValueNode("query", m_query);
+			if(m_access != null) node.addValueNode("access", m_access);
+			node.addValueNode("filtered", Boolean.toString(m_filtered));
+			if(m_estimate == EstimatedIterable.SCAN) node.addValueNode("estimate", "all");
+			else if(m_estimate != EstimatedIterable.UNKNOWN) node.addValueNode("estimate", Long.toString(m_estimate));
+			if(m_role != null) node.addValueNode("role", m_role);
+			addSteps(node, m_steps);
+			return node;
+		}
+	}
+
+	// starts the step of a query, nested in the step of the query being searched
+	public Step enter(Query query) {
+		Step step = new Step(query);
+		if(m_stack.isEmpty()) m_steps.add(step);
+		else m_stack.peek().m_steps.add(step);
+		m_stack.push(step);
+		return step;
+	}
+
+	// completes the step with the sequence found for its query
+	public void exit(Step step, FilteredIterable result) {
+		Iterable<?> sequence = result.sequence();
+		if(sequence instanceof AllIterable) step.m_access = "scan";
+		else if(sequence instanceof NoneIterable) step.m_access = "none";
+		else step.m_access = "index";
+		step.m_filtered = result.filter() != null;
+		step.m_estimate = result.estimatedCount();
+		m_stack.remove(step);
+	}
+
+	// the step of the last query searched within the current one
+	public Step lastStep() {
+		List<Step> steps = m_stack.isEmpty() ? m_steps : m_stack.peek().m_steps;
+		return steps.size() == 0 ? null : steps.get(steps.size() - 1);
+	}
+
+	public UNode toDoc() {
+		UNode node = UNode.createMapNode("plan");
+		addSteps(node, m_steps);
+		return node;
+	}
+
+	private static void addSteps(UNode node, List<Step> steps) {
+		if(steps.size() == 0) return;
+		UNode stepsNode = node.addArrayNode("steps");
+		for(Step step : steps) stepsNode.addChildNode(step.toDoc());
+	}
+
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2014 Dell, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.dell.doradus.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import com.dell.doradus.core.ObjectID;
+import com.dell.doradus.core.ServerConfig;
+import com.dell.doradus.search.iterator.EstimatedIterable;
+
+/**
+ * Cost estimates used to plan AND queries: the clauses are ordered by the estimated
+ * number of objects of their sequences, from the term statistics (see TermStatistics),
+ * so that the smallest one drives the query and the others are skipped to its objects
+ * or checked as filters.
+ */
+public class QueryPlanner {
+
+	// estimate of the sequence, or UNKNOWN if it cannot be estimated
+	public static long estimatedCount(Iterable<ObjectID> sequence) {
+		if(sequence instanceof EstimatedIterable) return ((EstimatedIterable)sequence).estimatedCount();
+		return EstimatedIterable.UNKNOWN;
+	}
+
+	// sum of two estimates; UNKNOWN and SCAN absorb any count
+	public static long sum(long x, long y) {
+		if(x >= EstimatedIterable.UNKNOWN || y >= EstimatedIterable.UNKNOWN) return Math.max(x, y);
+		long sum = x + y;
+		return sum < 0 || sum >= EstimatedIterable.UNKNOWN ? EstimatedIterable.UNKNOWN - 1 : sum;
+	}
+
+	// indexes of the estimates from the smallest to the largest; equal ones keep their order
+	public static List<Integer> order(final long[] estimates) {
+		List<Integer> order = new ArrayList<Integer>(estimates.length);
+		for(int i = 0; i < estimates.length; i++) order.add(i);
+		Collections.sort(order, new Comparator<Integer>() {
+			@Override public int compare(Integer x, Integer y) {
+				return Long.compare(estimates[x], estimates[y]);
+			}
+		});
+		return order;
+	}
+
+	// true if a clause of the given estimate is cheaper to check as a filter on the objects
+	// of the driving clause than to intersect with it
+	public static boolean isFilter(long estimate, long driverEstimate) {
+		int ratio = ServerConfig.getInstance().search_planner_filter_ratio;
+		if(ratio <= 0 || driverEstimate >= EstimatedIterable.UNKNOWN) return false;
+		return estimate / ratio >= Math.max(1, driverEstimate);
+	}
+
+}
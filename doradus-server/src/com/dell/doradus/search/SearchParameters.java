@@ -17,9 +17,15 @@
 package com.dell.doradus.search;
 
 import com.dell.doradus.core.ObjectID;
+import com.dell.doradus.search.iterator.PagedIterator;
 
 public class SearchParameters {
 	public ObjectID continuation = null;
 	public boolean inclusive = true;
 	public boolean l2r = true;
+	// plan of the query, recorded if the explain option is set
+	public QueryPlan plan = null;
+	// limits the pages read ahead by all the term and link iterators of the query;
+	// shared with the parameters of its link sub-queries
+	public PagedIterator.Prefetches prefetches = new PagedIterator.Prefetches();
 }
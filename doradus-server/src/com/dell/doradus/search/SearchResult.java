@@ -31,6 +31,7 @@ import com.dell.doradus.common.UNode;
 import com.dell.doradus.common.Utils;
 import com.dell.doradus.core.ObjectID;
 import com.dell.doradus.olap.io.BSTR;
+import com.dell.doradus.olap.store.NumSearcher;
 import com.dell.doradus.search.aggregate.AggregationGroupItem;
 import com.dell.doradus.search.aggregate.SortOrder;
 
@@ -123,8 +124,9 @@ public class SearchResult implements Comparable<SearchResult> {
 					for(String str: values) {
 						if(str == null) sortedSet.add(new BSTR());
 						else {
+							// BSTRs compare as unsigned bytes: the sign bit is flipped so that negative values come first
 							long l = Long.parseLong(str);
-							sortedSet.add(new BSTR(l));
+							sortedSet.add(new BSTR(l ^ Long.MIN_VALUE));
 						}
 					}
 				}
@@ -133,8 +135,8 @@ public class SearchResult implements Comparable<SearchResult> {
 						if(str == null) sortedSet.add(new BSTR());
 						else {
 							double d = Double.parseDouble(str);
-							long l = Double.doubleToRawLongBits(d);
-							sortedSet.add(new BSTR(l));
+							long l = NumSearcher.sortableBits(d);
+							sortedSet.add(new BSTR(l ^ Long.MIN_VALUE));
 						}
 					}
 				}
@@ -169,8 +171,9 @@ public class SearchResult implements Comparable<SearchResult> {
 			c = Integer.compare(sortKey.size(), o.sortKey.size());
 			return c;
 		} else {
-			for(int i = minK - 1; i >= 0; i--) {
-				c = sortKey.get(i).compareTo(o.sortKey.get(i));
+			// largest values first
+			for(int i = 1; i <= minK; i++) {
+				c = sortKey.get(sortKey.size() - i).compareTo(o.sortKey.get(o.sortKey.size() - i));
 				if(c != 0) return -c;
 			}
 			c = Integer.compare(sortKey.size(), o.sortKey.size());
@@ -24,6 +24,7 @@ public class SearchResultList {
 	public int documentsCount = -1;
 	public ArrayList<SearchResult> results = new ArrayList<SearchResult>();
 	public String continuation_token;
+	public QueryPlan plan;
 	
 	public SearchResultList() { }
 
@@ -39,6 +40,9 @@ public class SearchResultList {
         if(continuation_token != null) {
             rootNode.addValueNode("continue", continuation_token);
         }
+        if(plan != null) {
+        	rootNode.addChildNode(plan.toDoc());
+        }
         return rootNode;
     }
     
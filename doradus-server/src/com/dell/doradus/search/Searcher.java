@@ -112,12 +112,14 @@ public class Searcher {
 		}
     	builder.set(this, params, tableDef);
     	builder.set(shards);
+    	QueryPlan.Step step = params.plan == null ? null : params.plan.enter(query);
     	FilteredIterable iter = builder.search(query);
     	if(iter == null) {
-    		AllIterable allIter = new AllIterable(tableDef, shards, params.continuation, params.inclusive);
+    		AllIterable allIter = new AllIterable(tableDef, shards, params.continuation, params.inclusive, params.prefetches);
     		Filter filter = builder.filter(query);
     		iter = new FilteredIterable(this, filter, allIter, tableDef);
     	}
+    	if(step != null) params.plan.exit(step, iter);
     	return iter;
     }
 
@@ -32,7 +32,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.dell.doradus.common.AggregateResult;
-import com.dell.doradus.common.CommonDefs;
 import com.dell.doradus.common.FieldDefinition;
 import com.dell.doradus.common.FieldType;
 import com.dell.doradus.common.TableDefinition;
@@ -313,17 +312,18 @@ public class Aggregate {
 		}
 		else {
 			if(entry.name == PathEntry.ANY) {
-				updateMetric(obj.id().toString(), groupSetEntry, groupKeys);
+				updateMetric(new MetricValue(obj.id().toString()), groupSetEntry, groupKeys);
 			}
 			else {
-				String value = obj.get(entry.name);
-				String[] values = value == null ? new String[] { value } : value.split(CommonDefs.MV_SCALAR_SEP_CHAR);
-				for (String collectionValue : values) {
+				String[] values = obj.getValues(entry.name);
+				if(values == null) values = new String[] { null };
+				for (int i = 0; i < values.length; i++) {
+					String collectionValue = values[i];
 					for(Integer groupIndex: entry.matchingGroupIndexes) {
 					    groupKeys[groupIndex].clear();
 					    groupSetEntry.m_groupPaths[groupIndex].addValueKeys(groupKeys[groupIndex], collectionValue);
 					}
-					updateMetric(collectionValue, groupSetEntry, groupKeys);
+					updateMetric(new MetricValue(collectionValue, obj, entry.name, i), groupSetEntry, groupKeys);
 				}
 			}
 		}
@@ -345,12 +345,11 @@ public class Aggregate {
 			    groupSetEntry.m_groupPaths[groupIndex].addValueKeys(groupKeys[groupIndex], obj.id().toString());
 			}
 			else {
-				String value = obj.get(fieldName);
-				if(value == null || value.indexOf(CommonDefs.MV_SCALAR_SEP_CHAR) == -1) {
-				    groupSetEntry.m_groupPaths[groupIndex].addValueKeys(groupKeys[groupIndex], value);
+				String[] values = obj.getValues(fieldName);
+				if(values == null) {
+				    groupSetEntry.m_groupPaths[groupIndex].addValueKeys(groupKeys[groupIndex], null);
 				}
 				else {
-					String[] values = value.split(CommonDefs.MV_SCALAR_SEP_CHAR);
 					for(String collectionValue : values) {
 					    groupSetEntry.m_groupPaths[groupIndex].addValueKeys(groupKeys[groupIndex], collectionValue);
 					}
@@ -390,7 +389,7 @@ public class Aggregate {
 	}
 
 	// add value to the aggregation groups
-	private void updateMetric(String value, GroupSetEntry groupSetEntry, Set<String>[] groupKeys){
+	private void updateMetric(MetricValue value, GroupSetEntry groupSetEntry, Set<String>[] groupKeys){
 		updateMetric(value, groupSetEntry.m_totalGroup, groupKeys, 0);
 		if (groupSetEntry.m_isComposite){
 			updateMetric(value, groupSetEntry.m_compositeGroup, groupKeys, groupKeys.length - 1);
@@ -398,7 +397,7 @@ public class Aggregate {
 	}
 
 	// add value to the aggregation group and all subgroups in accordance with the groupKeys paths.
-	private synchronized void updateMetric(String value, Group group, Set<String>[] groupKeys, int index){
+	private synchronized void updateMetric(MetricValue value, Group group, Set<String>[] groupKeys, int index){
 		group.update(value);
 		if (index < groupKeys.length){
 			for (String key : groupKeys[index]){
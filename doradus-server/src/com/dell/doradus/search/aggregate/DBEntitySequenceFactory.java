@@ -36,6 +36,7 @@ import com.dell.doradus.common.DBObject;
 import com.dell.doradus.common.FieldDefinition;
 import com.dell.doradus.common.TableDefinition;
 import com.dell.doradus.core.ObjectID;
+import com.dell.doradus.core.ServerConfig;
 import com.dell.doradus.search.IDHelper;
 import com.dell.doradus.search.util.LRUCache;
 import com.dell.doradus.service.spider.SpiderHelper;
@@ -67,7 +68,8 @@ public class DBEntitySequenceFactory implements EntitySequenceFactory {
 
 	/**
 	 * Creates the factory with default {@link DBEntitySequenceOptions} options,
-	 * the scalar and link caches for 10000 entries of every category.
+	 * the scalar cache filled 10000 entries at a time and the link caches for 10000 entries
+	 * of every category.
 	 */
 	public DBEntitySequenceFactory() {
 	    this(10000, 10000, 10000, DBEntitySequenceOptions.defaultOptions);
@@ -76,7 +78,8 @@ public class DBEntitySequenceFactory implements EntitySequenceFactory {
 	/**
 	 * Creates the factory.
 	 *
-	 * @param scalarCacheCapacity scalar cache capacity for every category
+	 * @param scalarCacheCapacity maximum number of entries fetched at once into the scalar cache of every category;
+	 *                            the cache itself is bounded by search_scalar_cache_size_mb
 	 * @param linkCacheCapacity link cache capacity for every category
 	 * @param options pre-fetch buffers settings
 	 */
@@ -147,12 +150,13 @@ public class DBEntitySequenceFactory implements EntitySequenceFactory {
 			cache.put(entry.getKey(), entry.getValue());
 		}
 
-        // Initialize the entities with the cached scalar values
+        // Initialize the entities with the fetched scalar values, which the cache,
+        // bounded by size, may not hold any more
         for (DBEntity entity : entities) {
             ObjectID key = entity.id();
-            Map<String, String> values = cache.get(key);
+            Map<String, String> values = fetchResult.get(key);
             if(values == null) {
-                values = new HashMap<String, String>();
+                values = new ScalarValues();
             }
             entity.initialize(values);
         }
@@ -200,12 +204,15 @@ public class DBEntitySequenceFactory implements EntitySequenceFactory {
             	if (continuationField == null)
             		cache.put(entityid, newvalues);
             }
-            else
+            else {
                 cachedvalues.putAll(newvalues);
-            // remove continuation sign if needed
-            if (!newvalues.containsKey(DBEntity.CONTINUATIONMARK) &&
-                    (cachedvalues != null && cachedvalues.containsKey(DBEntity.CONTINUATIONMARK))) {
-                cachedvalues.remove(DBEntity.CONTINUATIONMARK);
+                // remove continuation sign if needed
+                if (!newvalues.containsKey(DBEntity.CONTINUATIONMARK) &&
+                        cachedvalues.containsKey(DBEntity.CONTINUATIONMARK)) {
+                    cachedvalues.remove(DBEntity.CONTINUATIONMARK);
+                }
+                // put the values again, so that the cache accounts for their new size
+                cache.put(entityid, cachedvalues);
             }
         }
         
@@ -389,7 +396,12 @@ public class DBEntitySequenceFactory implements EntitySequenceFactory {
 	}
 
 	public LRUCache<ObjectID, Map<String, String>> getScalarCache(String category) {
-		return getCache(m_scalarCache, m_scalarCacheCapacity, category);
+		LRUCache<ObjectID, Map<String, String>> cache = m_scalarCache.get(category);
+		if (cache == null) {
+			cache = new ScalarCache(m_scalarCacheCapacity, ServerConfig.getInstance().search_scalar_cache_size_mb * 1024L * 1024L);
+			m_scalarCache.put(category, cache);
+		}
+		return cache;
 	}
 	
 	public LRUCache<ObjectID, LinkList> getLinkCache(String category) {
@@ -407,7 +419,7 @@ public class DBEntitySequenceFactory implements EntitySequenceFactory {
         Map<ObjectID, Map<String, String>> map = SpiderHelper.getScalarValues(tableDef, ids, continuationField, count);
         long time = timers.stop(timerInfo[0], timerInfo[1], ids.size());
         log.debug("fetch {} {}, {} fields from {} ({})", new Object[] {ids.size(), category, count, continuationField, Timer.toString(time)});
-        return map;
+        return toScalarValues(map);
     }
 
 	/**
@@ -424,6 +436,14 @@ public class DBEntitySequenceFactory implements EntitySequenceFactory {
 		Map<ObjectID, Map<String, String>> map = SpiderHelper.getScalarValues(tableDef, ids, fields);
 		long time = timers.stop(category, "Init Fields", ids.size());
        	log.debug("fetch {} {} ({})", new Object[] {ids.size(), category, Timer.toString(time)});
+		return toScalarValues(map);
+	}
+
+	// wraps the fetched values so that they are decoded once for all the entities of the object
+	private static Map<ObjectID, Map<String, String>> toScalarValues(Map<ObjectID, Map<String, String>> map) {
+		for (Map.Entry<ObjectID, Map<String, String>> entry : map.entrySet()) {
+			entry.setValue(new ScalarValues(entry.getValue()));
+		}
 		return map;
 	}
 
@@ -941,6 +961,34 @@ class DBEntity implements Entity {
 		return m_tableDef;
 	}
 
+	public String[] getValues(String field) {
+		String value = get(field);
+		if (value != null && m_scalarMap instanceof ScalarValues && value == m_scalarMap.get(field))
+			return ((ScalarValues)m_scalarMap).getValues(field);
+		return ScalarValues.decodeValues(value);
+	}
+
+	public long[] getLongs(String field) {
+		String value = get(field);
+		if (value != null && m_scalarMap instanceof ScalarValues && value == m_scalarMap.get(field))
+			return ((ScalarValues)m_scalarMap).getLongs(field);
+		return ScalarValues.decodeLongs(value);
+	}
+
+	public double[] getDoubles(String field) {
+		String value = get(field);
+		if (value != null && m_scalarMap instanceof ScalarValues && value == m_scalarMap.get(field))
+			return ((ScalarValues)m_scalarMap).getDoubles(field);
+		return ScalarValues.decodeDoubles(value);
+	}
+
+	public long[] getTimestamps(String field) {
+		String value = get(field);
+		if (value != null && m_scalarMap instanceof ScalarValues && value == m_scalarMap.get(field))
+			return ((ScalarValues)m_scalarMap).getTimestamps(field);
+		return ScalarValues.decodeTimestamps(value);
+	}
+
 	public String get(String field) {
         if (!initialized())
             return null;
@@ -1028,10 +1076,14 @@ class DBEntity implements Entity {
 	    if (m_scalarMap == null) {
 	        m_scalarMap = values;
 	    } else {
-	        m_scalarMap.putAll(values);
-	        if (m_scalarMap.containsKey(DBEntity.CONTINUATIONMARK) && !values.containsKey(DBEntity.CONTINUATIONMARK)) {
-	        	m_scalarMap.remove(DBEntity.CONTINUATIONMARK);
+	        // the values may be shared with a scalar cache, which measures them when they are put,
+	        // so they are copied rather than changed in place
+	        Map<String, String> merged = new ScalarValues(m_scalarMap);
+	        merged.putAll(values);
+	        if (merged.containsKey(DBEntity.CONTINUATIONMARK) && !values.containsKey(DBEntity.CONTINUATIONMARK)) {
+	        	merged.remove(DBEntity.CONTINUATIONMARK);
 	        }
+	        m_scalarMap = merged;
 	    }
 	}
 }
@@ -1154,3 +1206,60 @@ class LinkList {
 	}
 	
 }
+
+/**
+ * Scalar cache of one category, bounded by the estimated size of its values rather than
+ * by their number. The capacity only bounds the number of entries fetched at once.
+ */
+@SuppressWarnings("serial")
+class ScalarCache extends LRUCache<ObjectID, Map<String, String>> {
+	private final long m_maxSize;
+	private long m_size;
+	// sizes of the entries when they were put, since the values may change afterwards
+	private final Map<ObjectID, Long> m_sizes = new HashMap<ObjectID, Long>();
+
+	ScalarCache(int capacity, long maxSize) {
+		super(capacity);
+		m_maxSize = maxSize;
+	}
+
+	@Override
+	public Map<String, String> put(ObjectID key, Map<String, String> value) {
+		Map<String, String> old = super.put(key, value);
+		long size = sizeOf(value);
+		Long oldSize = m_sizes.put(key, size);
+		if (oldSize != null) m_size -= oldSize;
+		m_size += size;
+		Iterator<Map.Entry<ObjectID, Map<String, String>>> iterator = entrySet().iterator();
+		while (m_size > m_maxSize && size() > 1 && iterator.hasNext()) {
+			ObjectID eldest = iterator.next().getKey();
+			iterator.remove();
+			m_size -= m_sizes.remove(eldest);
+		}
+		return old;
+	}
+
+	@Override
+	public Map<String, String> remove(Object key) {
+		Long size = m_sizes.remove(key);
+		if (size != null) m_size -= size;
+		return super.remove(key);
+	}
+
+	@Override
+	public void clear() {
+		m_sizes.clear();
+		m_size = 0;
+		super.clear();
+	}
+
+	@Override
+	protected boolean removeEldestEntry(Map.Entry<ObjectID, Map<String, String>> eldest) {
+		return false;
+	}
+
+	private static long sizeOf(Map<String, String> value) {
+		if (value instanceof ScalarValues) return ((ScalarValues)value).sizeInBytes();
+		return new ScalarValues(value).sizeInBytes();
+	}
+}
@@ -28,6 +28,17 @@ public interface Entity {
 
 	public String get(String field);
 
+	// values of the field decoded once per object: multi-valued fields split,
+	// numbers and timestamps (in milliseconds) parsed; null if the field has no value
+	// or, for numbers and timestamps, if one of its values cannot be parsed
+	public String[] getValues(String field);
+
+	public long[] getLongs(String field);
+
+	public double[] getDoubles(String field);
+
+	public long[] getTimestamps(String field);
+
 	public Iterable<String> getAllFields();
 
 	public EntitySequence getLinkedEntities(String link, List<String> fields);
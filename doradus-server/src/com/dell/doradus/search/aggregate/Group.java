@@ -46,6 +46,11 @@ abstract class Group {
 	}
 
 	abstract void update(String value);	
+
+	// groups that parse their values override this method to parse them once for all groups
+	void update(MetricValue value) {
+		update(value.text);
+	}
 	abstract Object getMetric();
 	
 	Group subgroup(String key) {
@@ -248,10 +253,14 @@ abstract class MathGroup extends Group {
 		super(key);
 	}
 	long m_count;
-	abstract void doUpdate(String value);
+	abstract void doUpdate(MetricValue value);
 	abstract Object getResult();
 	@Override
 	void update(String value) {
+		update(new MetricValue(value));
+	}
+	@Override
+	void update(MetricValue value) {
 		try {
 			doUpdate(value);
 			m_count++;
@@ -274,8 +283,8 @@ class LongMinGroup extends MathGroup {
 	}
 	private long m_value;
 	@Override
-	void doUpdate(String value) {
-		long longValue = Long.parseLong(value);
+	void doUpdate(MetricValue value) {
+		long longValue = value.longValue();
 		if (m_count == 0 || longValue < m_value) {
 			m_value = longValue;
 		}
@@ -292,8 +301,8 @@ class DoubleMinGroup extends MathGroup{
 	}
 	private double m_value;
 	@Override
-	void doUpdate(String value) {
-		double doubleValue = Double.parseDouble(value);
+	void doUpdate(MetricValue value) {
+		double doubleValue = value.doubleValue();
 		if (m_count == 0 || doubleValue < m_value) {
 			m_value = doubleValue;
 		}
@@ -310,7 +319,8 @@ class StringMinGroup extends MathGroup {
 	}
 	private String m_value;
 	@Override
-	void doUpdate(String value) {
+	void doUpdate(MetricValue metricValue) {
+		String value = metricValue.text;
 		if (value != null) {
 			if (m_value == null || m_value.compareTo(value) > 0) {
 				m_value = value;
@@ -329,8 +339,8 @@ class LongMaxGroup extends MathGroup {
 	}
 	private long m_value;
 	@Override
-	void doUpdate(String value) {
-		long longValue = Long.parseLong(value);
+	void doUpdate(MetricValue value) {
+		long longValue = value.longValue();
 		if (m_count == 0 || longValue > m_value) {
 			m_value = longValue;
 		}
@@ -347,8 +357,8 @@ class DoubleMaxGroup extends MathGroup{
 	}
 	private double m_value;
 	@Override
-	void doUpdate(String value) {
-		double doubleValue = Double.parseDouble(value);
+	void doUpdate(MetricValue value) {
+		double doubleValue = value.doubleValue();
 		if (m_count == 0 || doubleValue > m_value) {
 			m_value = doubleValue;
 		}
@@ -365,7 +375,8 @@ class StringMaxGroup extends MathGroup {
 	}
 	private String m_value;
 	@Override
-	void doUpdate(String value) {
+	void doUpdate(MetricValue metricValue) {
+		String value = metricValue.text;
 		if (value != null) {
 			if (m_value == null || m_value.compareTo(value) < 0) {
 				m_value = value;
@@ -393,8 +404,8 @@ class LongAverageGroup extends AverageGroup {
 	}
 	private long m_value;
 	@Override
-	void doUpdate(String value) {
-		m_value += Long.parseLong(value);
+	void doUpdate(MetricValue value) {
+		m_value += value.longValue();
 	}
 	@Override
 	Object getResult() {
@@ -412,8 +423,8 @@ class BigIntegerAverageGroup extends AverageGroup {
 	}
 	private BigInteger m_value = BigInteger.ZERO;
 	@Override
-	void doUpdate(String value) {
-		m_value = m_value.add(new BigInteger(value));
+	void doUpdate(MetricValue value) {
+		m_value = m_value.add(new BigInteger(value.text));
 	}
 	@Override
 	Object getResult() {
@@ -434,8 +445,8 @@ class DoubleAverageGroup extends AverageGroup {
 	}
 	private double m_value;
 	@Override
-	void doUpdate(String value) {
-		m_value += Double.parseDouble(value);
+	void doUpdate(MetricValue value) {
+		m_value += value.doubleValue();
 	}
 	@Override
 	Object getResult() {
@@ -453,8 +464,8 @@ class DateAverageGroup extends AverageGroup {
 	}
 	private long m_value;
 	@Override
-	void doUpdate(String value) {
-		m_value += Utils.dateFromString(value).getTime();
+	void doUpdate(MetricValue value) {
+		m_value += value.timestampValue();
 	}
 	@Override
 	Object getResult() {
@@ -472,8 +483,8 @@ class LongSumGroup extends MathGroup {
 		super(key);
 	}
 	@Override
-	void doUpdate(String value) {
-		m_value += Long.parseLong(value);
+	void doUpdate(MetricValue value) {
+		m_value += value.longValue();
 	}
 	@Override
 	Object getResult() {
@@ -487,8 +498,8 @@ class BigIntegerSumGroup extends MathGroup {
 		super(key);
 	}
 	@Override
-	void doUpdate(String value) {
-		m_value = m_value.add( new BigInteger(value));
+	void doUpdate(MetricValue value) {
+		m_value = m_value.add( new BigInteger(value.text));
 	}
 	@Override
 	Object getResult() {
@@ -502,8 +513,8 @@ class DoubleSumGroup extends MathGroup {
 		super(key);
 	}
 	@Override
-	void doUpdate(String value) {
-		m_value += Double.parseDouble(value);
+	void doUpdate(MetricValue value) {
+		m_value += value.doubleValue();
 	}
 	@Override
 	Object getResult() {
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2014 Dell, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.dell.doradus.search.aggregate;
+
+import com.dell.doradus.common.Utils;
+
+/**
+ * Value of a metric field, passed to the total group and to all the subgroups it updates.
+ * The value is parsed at most once: from the typed values of its entity if it comes from
+ * one (see Entity.getLongs), else from its text.
+ */
+class MetricValue {
+	final String text;
+	private final Entity m_entity;
+	private final String m_field;
+	private final int m_index;
+	private boolean m_hasLong;
+	private long m_long;
+	private boolean m_hasDouble;
+	private double m_double;
+	private boolean m_hasTimestamp;
+	private long m_timestamp;
+
+	MetricValue(String text) {
+		this(text, null, null, 0);
+	}
+
+	// index: position of the value among the values of the field of the entity
+	MetricValue(String text, Entity entity, String field, int index) {
+		this.text = text;
+		m_entity = entity;
+		m_field = field;
+		m_index = index;
+	}
+
+	long longValue() {
+		if (!m_hasLong) {
+			long[] values = m_entity == null ? null : m_entity.getLongs(m_field);
+			m_long = values != null ? values[m_index] : Long.parseLong(text);
+			m_hasLong = true;
+		}
+		return m_long;
+	}
+
+	double doubleValue() {
+		if (!m_hasDouble) {
+			double[] values = m_entity == null ? null : m_entity.getDoubles(m_field);
+			m_double = values != null ? values[m_index] : Double.parseDouble(text);
+			m_hasDouble = true;
+		}
+		return m_double;
+	}
+
+	// milliseconds of the timestamp
+	long timestampValue() {
+		if (!m_hasTimestamp) {
+			long[] values = m_entity == null ? null : m_entity.getTimestamps(m_field);
+			m_timestamp = values != null ? values[m_index] : Utils.dateFromString(text).getTime();
+			m_hasTimestamp = true;
+		}
+		return m_timestamp;
+	}
+}
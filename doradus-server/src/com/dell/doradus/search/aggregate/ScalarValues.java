@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2014 Dell, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.dell.doradus.search.aggregate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.dell.doradus.common.CommonDefs;
+import com.dell.doradus.common.Utils;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+/**
+ * Scalar values of one object, as fetched by DBEntitySequenceFactory, together with the
+ * values of the fields decoded once on first use: multi-valued fields split into interned
+ * strings, numbers and timestamps parsed into primitive arrays. The map is shared by the
+ * scalar cache and by the entities of the object, so an object visited many times by
+ * filters and aggregates is decoded only once. Changing the map drops the decoded values.
+ */
+@SuppressWarnings("serial")
+public class ScalarValues extends HashMap<String, String> {
+	private static final char SEPARATOR = CommonDefs.MV_SCALAR_SEP_CHAR.charAt(0);
+	private static final Interner<String> INTERNER = Interners.newWeakInterner();
+	// decoded value of a field that cannot be parsed
+	private static final Object INVALID = new Object();
+
+	private static final int VALUES = 0;
+	private static final int LONGS = 1;
+	private static final int DOUBLES = 2;
+	private static final int TIMESTAMPS = 3;
+
+	// decoded values of the fields, by kind
+	private static class Decoded {
+		final HashMap<String, Object> values = new HashMap<String, Object>();
+		final HashMap<String, Object> longs = new HashMap<String, Object>();
+		final HashMap<String, Object> doubles = new HashMap<String, Object>();
+		final HashMap<String, Object> timestamps = new HashMap<String, Object>();
+
+		HashMap<String, Object> get(int kind) {
+			switch(kind) {
+			case VALUES: return values;
+			case LONGS: return longs;
+			case DOUBLES: return doubles;
+			default: return timestamps;
+			}
+		}
+	}
+
+	private Decoded m_decoded;
+
+	public ScalarValues() { }
+
+	public ScalarValues(Map<String, String> values) {
+		super(values);
+	}
+
+	// values of the field, multi-valued fields split; null if the field has no value
+	public String[] getValues(String field) { return (String[])get(field, VALUES); }
+
+	// values of the field as numbers; null if the field has no value or one of them is not a number
+	public long[] getLongs(String field) { return (long[])get(field, LONGS); }
+
+	public double[] getDoubles(String field) { return (double[])get(field, DOUBLES); }
+
+	// values of the field as timestamps in milliseconds; null if the field has no value or one
+	// of them is not a timestamp
+	public long[] getTimestamps(String field) { return (long[])get(field, TIMESTAMPS); }
+
+	private Object get(String field, int kind) {
+		if(m_decoded == null) m_decoded = new Decoded();
+		HashMap<String, Object> decoded = m_decoded.get(kind);
+		Object value = decoded.get(field);
+		if(value == null) {
+			value = decode(get(field), kind, true);
+			decoded.put(field, value == null ? INVALID : value);
+		}
+		return value == INVALID ? null : value;
+	}
+
+	// decodes a value that is not cached
+	public static String[] decodeValues(String value) { return (String[])decode(value, VALUES, false); }
+
+	public static long[] decodeLongs(String value) { return (long[])decode(value, LONGS, false); }
+
+	public static double[] decodeDoubles(String value) { return (double[])decode(value, DOUBLES, false); }
+
+	public static long[] decodeTimestamps(String value) { return (long[])decode(value, TIMESTAMPS, false); }
+
+	private static Object decode(String value, int kind, boolean intern) {
+		if(value == null) return null;
+		String[] values;
+		if(value.indexOf(SEPARATOR) < 0) values = new String[] { value };
+		else {
+			List<String> list = Utils.split(value, SEPARATOR);
+			values = list.toArray(new String[list.size()]);
+		}
+		try {
+			switch(kind) {
+			case VALUES:
+				if(intern) {
+					for(int i = 0; i < values.length; i++) values[i] = INTERNER.intern(values[i]);
+				}
+				return values;
+			case LONGS: {
+				long[] longs = new long[values.length];
+				for(int i = 0; i < values.length; i++) longs[i] = Long.parseLong(values[i]);
+				return longs;
+			}
+			case DOUBLES: {
+				double[] doubles = new double[values.length];
+				for(int i = 0; i < values.length; i++) doubles[i] = Double.parseDouble(values[i]);
+				return doubles;
+			}
+			default: {
+				long[] timestamps = new long[values.length];
+				for(int i = 0; i < values.length; i++) timestamps[i] = Utils.dateFromString(values[i]).getTime();
+				return timestamps;
+			}
+			}
+		} catch(IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	// estimated size in bytes, counting the strings twice to leave room for their decoded values
+	public long sizeInBytes() {
+		long size = 64;
+		for(Map.Entry<String, String> e : entrySet()) {
+			size += 48 + 4L * e.getKey().length();
+			if(e.getValue() != null) size += 4L * e.getValue().length();
+		}
+		return size;
+	}
+
+	@Override public String put(String key, String value) {
+		m_decoded = null;
+		return super.put(key, value);
+	}
+
+	@Override public void putAll(Map<? extends String, ? extends String> values) {
+		m_decoded = null;
+		super.putAll(values);
+	}
+
+	@Override public String remove(Object key) {
+		m_decoded = null;
+		return super.remove(key);
+	}
+
+	@Override public void clear() {
+		m_decoded = null;
+		super.clear();
+	}
+
+}
@@ -21,10 +21,14 @@ import java.util.Date;
 import java.util.List;
 import java.util.Set;
 
+import com.dell.doradus.core.ServerConfig;
 import com.dell.doradus.search.FilteredIterable;
+import com.dell.doradus.search.QueryPlan;
+import com.dell.doradus.search.QueryPlanner;
 import com.dell.doradus.search.analyzer.DateTrie;
 import com.dell.doradus.search.filter.Filter;
 import com.dell.doradus.search.filter.FilterAnd;
+import com.dell.doradus.search.iterator.AllIterable;
 import com.dell.doradus.search.iterator.AndIterable;
 import com.dell.doradus.search.iterator.NoneIterable;
 import com.dell.doradus.search.query.AndQuery;
@@ -38,6 +42,7 @@ public class BuilderAnd extends SearchBuilder {
 		AndQuery qu = (AndQuery)query;
         if(qu.subqueries.size() == 0) return create(NoneIterable.instance, null);
         List<Integer> shards = getShards(qu);
+        if(ServerConfig.getInstance().search_planner_enable && qu.subqueries.size() > 1) return plan(qu, shards);
 		if(m_params.l2r) {
 	        FilteredIterable seq = m_searcher.search(m_params, m_table, qu.subqueries.get(0), shards);
 	        FilterAnd filter = new FilterAnd();
@@ -59,6 +64,53 @@ public class BuilderAnd extends SearchBuilder {
 		}
 	}
 
+	// The subqueries are ordered by their estimated number of objects. Subqueries that are
+	// only scanned are checked as filters; the smallest of the others drives the query.
+	// The next ones are intersected with it, or, with l2r or when they are much larger
+	// (see QueryPlanner.isFilter), checked as filters on its objects.
+	private FilteredIterable plan(AndQuery qu, List<Integer> shards) {
+		int size = qu.subqueries.size();
+		List<FilteredIterable> seqs = new ArrayList<FilteredIterable>(size);
+		List<QueryPlan.Step> steps = new ArrayList<QueryPlan.Step>(size);
+		long[] estimates = new long[size];
+		for(int i = 0; i < size; i++) {
+			FilteredIterable seq = m_searcher.search(m_params, m_table, qu.subqueries.get(i), shards);
+			seqs.add(seq);
+			steps.add(lastStep());
+			estimates[i] = seq.sequence() instanceof AllIterable ? AllIterable.SCAN : seq.estimatedCount();
+		}
+		AndIterable iter = new AndIterable(size);
+		FilterAnd filter = new FilterAnd();
+		long driverEstimate = -1;
+		for(int i : QueryPlanner.order(estimates)) {
+			FilteredIterable seq = seqs.get(i);
+			String role;
+			if(seq.sequence() instanceof AllIterable) {
+				filter.add(seq.filter());
+				role = "filter";
+			} else if(driverEstimate < 0) {
+				iter.add(seq.sequence());
+				filter.add(seq.filter());
+				driverEstimate = estimates[i];
+				role = "driver";
+			} else if(m_params.l2r || QueryPlanner.isFilter(estimates[i], driverEstimate)) {
+				filter.add(m_searcher.filter(m_params, m_table, qu.subqueries.get(i)));
+				role = "filter";
+			} else {
+				iter.add(seq.sequence());
+				filter.add(seq.filter());
+				role = "intersect";
+			}
+			if(steps.get(i) != null) steps.get(i).setRole(role);
+		}
+		if(driverEstimate < 0) return create(all(shards), filter);
+		return create(iter, filter);
+	}
+
+	private AllIterable all(List<Integer> shards) {
+		return new AllIterable(m_table, shards, m_params.continuation, m_params.inclusive, m_params.prefetches);
+	}
+
 	@Override public Filter filter(Query query) {
 		AndQuery qu = (AndQuery)query;
 		FilterAnd filter = new FilterAnd();
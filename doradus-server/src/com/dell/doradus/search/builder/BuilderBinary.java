@@ -147,7 +147,7 @@ public class BuilderBinary extends SearchBuilder {
 	}
    
 	private FilteredIterable getEquals(String field, String value, FieldAnalyzer analyzer, BinaryQuery query) {
-		TermsIterable terms = new TermsIterable(m_table, m_shards, m_params.continuation, m_params.inclusive);
+		TermsIterable terms = new TermsIterable(m_table, m_shards, m_params.continuation, m_params.inclusive, m_params.prefetches);
 		if(analyzer instanceof DateAnalyzer && !value.equals("*")) {
     		DateTrie dt = new DateTrie();
     		Date date = dt.parse(value);
@@ -192,7 +192,7 @@ public class BuilderBinary extends SearchBuilder {
 	    		Date date = dt.parse(value);
 	    		value = dt.format(date);
 			}
-			TermsIterable terms = new TermsIterable(m_table, m_shards, m_params.continuation, m_params.inclusive);
+			TermsIterable terms = new TermsIterable(m_table, m_shards, m_params.continuation, m_params.inclusive, m_params.prefetches);
     		terms.add(FieldAnalyzer.makeTermKey(field, value));
     		return create(terms, null);
 		} else {
@@ -200,7 +200,7 @@ public class BuilderBinary extends SearchBuilder {
             if(tokens.size() == 0) return create(all(), filter(query));
             AndIterable and = new AndIterable(tokens.size());
             for(String token: tokens) {
-    			TermsIterable terms = new TermsIterable(m_table, m_shards, m_params.continuation, m_params.inclusive);
+    			TermsIterable terms = new TermsIterable(m_table, m_shards, m_params.continuation, m_params.inclusive, m_params.prefetches);
 	    		int idx = token.indexOf('?');
 	    		int idx1 = token.indexOf('*');
 	    		if(idx < 0 || (idx > idx1 && idx1 >= 0))idx = idx1;
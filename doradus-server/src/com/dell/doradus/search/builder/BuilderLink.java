@@ -39,15 +39,16 @@ public class BuilderLink extends SearchBuilder {
     	
     	SearchParameters newparams = new SearchParameters();
     	newparams.l2r = m_params.l2r;
+    	newparams.prefetches = m_params.prefetches;
     	FilteredIterable inner = m_searcher.search(newparams, extent, qu.getInnerQuery());
     	// SHARD OPTIMIZATION
     	if(inverse.isSharded()) {
             LinksIterable seq = new LinksIterable(inverse,
-            		m_shards, m_params.continuation, m_params.inclusive, inner);
+            		m_shards, m_params.continuation, m_params.inclusive, inner, m_params.prefetches);
             return create(seq, null);
     	} else {
 	        LinksIterable seq = new LinksIterable(inverse, null,
-	        		m_params.continuation, m_params.inclusive, inner);
+	        		m_params.continuation, m_params.inclusive, inner, m_params.prefetches);
 	        return create(seq, null);
     	}
 	}
@@ -66,6 +67,7 @@ public class BuilderLink extends SearchBuilder {
     	TableDefinition extent = m_table.getAppDef().getTableDef(link.getLinkExtent());
     	SearchParameters newparams = new SearchParameters();
     	newparams.l2r = m_params.l2r;
+    	newparams.prefetches = m_params.prefetches;
     	Filter inner = m_searcher.filter(newparams, extent, qu.getInnerQuery());
     	if(inner == null) inner = new FilterAll();
 		FilterLink condition = new FilterLink(m_searcher, m_table, qu, inner);
@@ -33,6 +33,7 @@ public class BuilderLinkTransitive extends SearchBuilder {
 		TransitiveLinkQuery qu = (TransitiveLinkQuery)query;
     	SearchParameters newparams = new SearchParameters();
     	newparams.l2r = m_params.l2r;
+    	newparams.prefetches = m_params.prefetches;
     	Filter inner = m_searcher.filter(newparams, m_table, qu.getInnerQuery());
         FilterLinkTransitive condition = new FilterLinkTransitive(m_searcher, m_table, qu, inner);
         return condition;
@@ -46,7 +46,7 @@ public class BuilderRange extends SearchBuilder {
 
     	FieldAnalyzer analyzer = analyzer(field);
     	
-    	TermsIterable terms = new TermsIterable(m_table, m_shards, m_params.continuation, m_params.inclusive);
+    	TermsIterable terms = new TermsIterable(m_table, m_shards, m_params.continuation, m_params.inclusive, m_params.prefetches);
     	
 		if(analyzer instanceof DateAnalyzer) {
 	    	DateTrie dateTrie = new DateTrie();
@@ -24,6 +24,7 @@ import com.dell.doradus.core.ObjectID;
 import com.dell.doradus.fieldanalyzer.FieldAnalyzer;
 import com.dell.doradus.fieldanalyzer.TextAnalyzer;
 import com.dell.doradus.search.FilteredIterable;
+import com.dell.doradus.search.QueryPlan;
 import com.dell.doradus.search.SearchParameters;
 import com.dell.doradus.search.Searcher;
 import com.dell.doradus.search.filter.Filter;
@@ -51,7 +52,12 @@ public abstract class SearchBuilder {
 	}
 	
 	public AllIterable all() {
-		return new AllIterable(m_table, m_shards, m_params.continuation, m_params.inclusive);
+		return new AllIterable(m_table, m_shards, m_params.continuation, m_params.inclusive, m_params.prefetches);
+	}
+	
+	// step of the last subquery searched, or null if the plan is not recorded
+	public QueryPlan.Step lastStep() {
+		return m_params.plan == null ? null : m_params.plan.lastStep();
 	}
 	
 	public FieldAnalyzer analyzer(String field) {
@@ -66,8 +66,12 @@ public class FilterContains implements Filter {
     
 
     @Override public boolean check(Entity entity) {
-    	String fieldValue = entity.get(m_field);
-    	return FilterContains.compare(fieldValue, m_value);
+    	String[] fieldValues = entity.getValues(m_field);
+    	if(fieldValues == null) return false;
+    	for(String fieldValue: fieldValues) {
+    		if(FilterContains.compare(fieldValue, m_value)) return true;
+    	}
+    	return false;
     }
 
     @Override public void addFields(Set<String> fields) {
@@ -46,8 +46,12 @@ public class FilterEquals implements Filter {
     
 
     @Override public boolean check(Entity entity) {
-        String fieldValue = entity.get(m_field);
-        return FilterEquals.compare(fieldValue, m_value);
+        String[] fieldValues = entity.getValues(m_field);
+        if(fieldValues == null) return FilterEquals.compare(null, m_value);
+        for(String fieldValue: fieldValues) {
+        	if(FilterEquals.compare(fieldValue, m_value)) return true;
+        }
+        return false;
     }
 
     @Override public void addFields(Set<String> fields) {
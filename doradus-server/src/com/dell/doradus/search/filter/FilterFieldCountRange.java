@@ -18,8 +18,6 @@ package com.dell.doradus.search.filter;
 
 import java.util.Set;
 
-import com.dell.doradus.common.CommonDefs;
-import com.dell.doradus.common.Utils;
 import com.dell.doradus.search.aggregate.Entity;
 import com.dell.doradus.search.query.RangeQuery;
 
@@ -43,13 +41,8 @@ public class FilterFieldCountRange implements Filter {
     }
 
     @Override public boolean check(Entity entity) {
-        String value = entity.get(m_field);
-        
-        int count = 0;
-        if(value != null) {
-        	count =  value.indexOf(CommonDefs.MV_SCALAR_SEP_CHAR) == -1 ?
-        			1 : Utils.split(value, CommonDefs.MV_SCALAR_SEP_CHAR).size();
-        }
+        String[] values = entity.getValues(m_field);
+        int count = values == null ? 0 : values.length;
        	return count >= m_min && count < m_max;
     }
 
@@ -18,8 +18,6 @@ package com.dell.doradus.search.filter;
 
 import java.util.Set;
 
-import com.dell.doradus.common.CommonDefs;
-import com.dell.doradus.common.Utils;
 import com.dell.doradus.search.aggregate.Entity;
 import com.dell.doradus.search.query.LinkQuery;
 
@@ -40,24 +38,24 @@ public class FilterMVSContains implements Filter {
     }
 
     @Override public boolean check(Entity entity) {
-    	String fieldValue = entity.get(m_field);
-    	if(fieldValue == null) return false;
+    	String[] fieldValues = entity.getValues(m_field);
+    	if(fieldValues == null) return false;
         if(m_quantifier == Quantifier.ANY) {
-    		for(String subvalue: Utils.split(fieldValue, CommonDefs.MV_SCALAR_SEP_CHAR)) {
+    		for(String subvalue: fieldValues) {
     			if(FilterContains.compare(subvalue, m_value)) return true;
             }
             return false;
         }
         else if(m_quantifier == Quantifier.ALL) {
             boolean hasValues = false;
-    		for(String subvalue: Utils.split(fieldValue, CommonDefs.MV_SCALAR_SEP_CHAR)) {
+    		for(String subvalue: fieldValues) {
                 hasValues = true;
                 if(!FilterContains.compare(subvalue, m_value)) return false;
             }
             return hasValues;
         } 
         else if(m_quantifier == Quantifier.NONE) {
-    		for(String subvalue: Utils.split(fieldValue, CommonDefs.MV_SCALAR_SEP_CHAR)) {
+    		for(String subvalue: fieldValues) {
                 if(FilterContains.compare(subvalue, m_value)) return false;
             }
             return true;
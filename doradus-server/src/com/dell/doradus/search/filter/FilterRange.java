@@ -18,8 +18,6 @@ package com.dell.doradus.search.filter;
 
 import java.util.Set;
 
-import com.dell.doradus.common.CommonDefs;
-import com.dell.doradus.common.Utils;
 import com.dell.doradus.search.aggregate.Entity;
 import com.dell.doradus.search.query.RangeQuery;
 
@@ -31,16 +29,12 @@ public class FilterRange implements Filter {
     }
     
     @Override public boolean check(Entity entity) {
-        String value = entity.get(m_range.field);
-        if(value == null) return false;
-        char sep = CommonDefs.MV_SCALAR_SEP_CHAR.charAt(0); 
-        if(value.indexOf(sep) < 0) return checkRange(value);
-        else {
-        	for(String val : Utils.split(value, sep)) {
-    			if(checkRange(val)) return true;
-        	}
-        	return false;
+        String[] values = entity.getValues(m_range.field);
+        if(values == null) return false;
+        for(String val : values) {
+        	if(checkRange(val)) return true;
         }
+        return false;
     }
     
     private boolean checkRange(String value) {
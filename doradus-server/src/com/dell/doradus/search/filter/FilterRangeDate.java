@@ -36,21 +36,26 @@ public class FilterRangeDate implements Filter {
     }
     
     @Override public boolean check(Entity entity) {
-        String value = entity.get(m_range.field);
-        if(value == null) return false;
-        Date v;
-        try {
-            v = m_trie.parse(value);
-        }catch(NumberFormatException e) {
-            return false;
+        long[] values = entity.getTimestamps(m_range.field);
+        long v;
+        if(values != null && values.length == 1) v = values[0];
+        else {
+            // reports values that are not timestamps
+            String value = entity.get(m_range.field);
+            if(value == null) return false;
+            try {
+                v = m_trie.parse(value).getTime();
+            }catch(NumberFormatException e) {
+                return false;
+            }
         }
         if(m_min != null) {
-            int c = v.compareTo(m_min);
+            int c = Long.compare(v, m_min.getTime());
             if(c == 0 && m_range.minInclusive) c = 1;
             if(c <= 0) return false;
         }
         if(m_range.max != null) {
-            int c = v.compareTo(m_max);
+            int c = Long.compare(v, m_max.getTime());
             if(c == 0 && m_range.maxInclusive) c = -1;
             if(c >= 0) return false;
         }
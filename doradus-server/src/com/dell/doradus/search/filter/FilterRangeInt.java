@@ -33,21 +33,17 @@ public class FilterRangeInt implements Filter {
     }
     
     @Override public boolean check(Entity entity) {
-        String value = entity.get(m_range.field);
-        if(value == null) return false;
-        Long v;
-        try {
-            v = Long.parseLong(value);
-        }catch(NumberFormatException e) {
-            return false;
-        }
+        long[] values = entity.getLongs(m_range.field);
+        // multi-valued fields are not numbers
+        if(values == null || values.length != 1) return false;
+        long v = values[0];
         if(m_min != null) {
-            int c = v.compareTo(m_min);
+            int c = Long.compare(v, m_min);
             if(c == 0 && m_range.minInclusive) c = 1;
             if(c <= 0) return false;
         }
         if(m_range.max != null) {
-            int c = v.compareTo(m_max);
+            int c = Long.compare(v, m_max);
             if(c == 0 && m_range.maxInclusive) c = -1;
             if(c >= 0) return false;
         }
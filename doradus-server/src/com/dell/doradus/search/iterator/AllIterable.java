@@ -23,21 +23,26 @@ import com.dell.doradus.common.TableDefinition;
 import com.dell.doradus.core.ObjectID;
 import com.dell.doradus.fieldanalyzer.FieldAnalyzer;
 
-public class AllIterable implements Iterable<ObjectID> {
+public class AllIterable implements EstimatedIterable {
 	private TableDefinition m_table;
 	private List<Integer> m_shards;
 	private ObjectID m_continuation;
 	private boolean m_inclusive;
+	private PagedIterator.Prefetches m_prefetches;
 
-    public AllIterable(TableDefinition table, List<Integer> shards, ObjectID continuation, boolean inclusive) {
+    public AllIterable(TableDefinition table, List<Integer> shards, ObjectID continuation, boolean inclusive,
+    		PagedIterator.Prefetches prefetches) {
     	m_table = table;
     	m_shards = shards;
     	m_continuation = continuation;
     	m_inclusive = inclusive;
+    	m_prefetches = prefetches;
     }
     
+	@Override public long estimatedCount() { return SCAN; }
+    
 	@Override public Iterator<ObjectID> iterator() {
-		TermsIterable te = new TermsIterable(m_table, m_shards, m_continuation, m_inclusive);
+		TermsIterable te = new TermsIterable(m_table, m_shards, m_continuation, m_inclusive, m_prefetches);
 		te.add(FieldAnalyzer.makeAllKey());
 		return te.iterator();
 	}
@@ -21,8 +21,9 @@ import java.util.Iterator;
 import java.util.List;
 
 import com.dell.doradus.core.ObjectID;
+import com.dell.doradus.search.QueryPlanner;
 
-public class AndIterable implements Iterable<ObjectID> {
+public class AndIterable implements EstimatedIterable {
 	private List<Iterable<ObjectID>> m_list; 
 
     public AndIterable(int capacity) {
@@ -37,6 +38,13 @@ public class AndIterable implements Iterable<ObjectID> {
     public void add(Iterable<ObjectID> iterable) {
     	m_list.add(iterable);
     }
+    
+	@Override public long estimatedCount() {
+		if(m_list.size() == 0) return 0;
+		long count = SCAN;
+		for(Iterable<ObjectID> i : m_list) count = Math.min(count, QueryPlanner.estimatedCount(i));
+		return count;
+	}
 	
 	@Override public Iterator<ObjectID> iterator() {
 		if(m_list.size() == 0) return NoneIterator.instance;
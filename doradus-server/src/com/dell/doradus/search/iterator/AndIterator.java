@@ -17,21 +17,32 @@
 package com.dell.doradus.search.iterator;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 
 import com.dell.doradus.core.ObjectID;
 
-public class AndIterator implements Iterator<ObjectID> {
-    private List<IxT> m_iterators;
+/**
+ * Intersection of iterators of increasing IDs. Iterators are ordered by their estimated
+ * number of IDs; candidates are taken from the first one, and the others skip to them
+ * with advance(), so that the IDs of a long row between two matches are mostly not read.
+ */
+public class AndIterator implements SkipIterator {
+    private List<Iterator<ObjectID>> m_iterators;
     private ObjectID m_next;
 	
     public AndIterator(List<Iterator<ObjectID>> iterators) {
-    	m_iterators = new ArrayList<IxT>(iterators.size());
-        for(Iterator<ObjectID> i: iterators) {
-        	m_iterators.add(new IxT(i));
-        }
-        move();
+    	m_iterators = new ArrayList<Iterator<ObjectID>>(iterators);
+    	// stable: iterators of unknown size keep their order
+    	Collections.sort(m_iterators, new Comparator<Iterator<ObjectID>>() {
+			@Override public int compare(Iterator<ObjectID> x, Iterator<ObjectID> y) {
+				return Long.compare(estimatedCount(x), estimatedCount(y));
+			}
+    	});
+    	Iterator<ObjectID> first = m_iterators.get(0);
+    	m_next = first.hasNext() ? converge(first.next()) : null;
     }
 
 	@Override public boolean hasNext() {
@@ -41,48 +52,55 @@ public class AndIterator implements Iterator<ObjectID> {
 	@Override public ObjectID next() {
 		ObjectID next = m_next;
 		if(next == null) throw new RuntimeException("Read past the end of the iterator");
-		move();
+		Iterator<ObjectID> first = m_iterators.get(0);
+		m_next = first.hasNext() ? converge(first.next()) : null;
 		return next;
 	}
 
 	@Override public void remove() { throw new RuntimeException("Cannot remove"); }
 
-	private void move() {
-		//1. advance
-		for(IxT v: m_iterators) {
-			do {
-				if(!v.I.hasNext()) {
-					m_next = null;
-					return;
-				}
-				v.C = v.I.next();
-				if(m_next == null) m_next = v.C;
-			} while(v.C == null || m_next.compareTo(v.C) > 0);
-			m_next = v.C;
+	@Override public ObjectID advance(ObjectID target) {
+		if(m_next != null && m_next.compareTo(target) < 0) {
+			m_next = converge(advance(m_iterators.get(0), target));
 		}
-		//2. converge
-		while(!m_next.equals(m_iterators.get(0).C)) {
-			for(IxT v: m_iterators) {
-				while(m_next.compareTo(v.C) > 0) {
-					if(!v.I.hasNext()) {
-						m_next = null;
-						return;
-					}
-					v.C = v.I.next();
-					if(m_next == null) m_next = v.C;
-				}
-				m_next = v.C;
+		return m_next == null ? null : next();
+	}
+
+	@Override public long estimatedCount() {
+		return m_next == null ? 0 : estimatedCount(m_iterators.get(0));
+	}
+
+	// first ID common to all the iterators, starting from the candidate read from the first one;
+	// every iterator skips to the last candidate until they all agree
+	private ObjectID converge(ObjectID candidate) {
+		int agreed = 1;
+		int index = 1;
+		while(candidate != null && agreed < m_iterators.size()) {
+			ObjectID id = advance(m_iterators.get(index), candidate);
+			if(id == null) return null;
+			if(id.equals(candidate)) agreed++;
+			else {
+				candidate = id;
+				agreed = 1;
 			}
+			index = (index + 1) % m_iterators.size();
 		}
+		return candidate;
 	}
-	
-	class IxT {
-		public Iterator<ObjectID> I;
-		public ObjectID C;
-		
-		public IxT(Iterator<ObjectID> i) {
-			I = i;
+
+	// first remaining ID of the iterator not less than the target, or null
+	static ObjectID advance(Iterator<ObjectID> iterator, ObjectID target) {
+		if(target == null) return null;
+		if(iterator instanceof SkipIterator) return ((SkipIterator)iterator).advance(target);
+		while(iterator.hasNext()) {
+			ObjectID id = iterator.next();
+			if(id.compareTo(target) >= 0) return id;
 		}
+		return null;
+	}
+
+	static long estimatedCount(Iterator<ObjectID> iterator) {
+		return iterator instanceof SkipIterator ? ((SkipIterator)iterator).estimatedCount() : Long.MAX_VALUE;
 	}
 	
 }
@@ -19,8 +19,9 @@ package com.dell.doradus.search.iterator;
 import java.util.Iterator;
 
 import com.dell.doradus.core.ObjectID;
+import com.dell.doradus.search.QueryPlanner;
 
-public class AndNotIterable implements Iterable<ObjectID> {
+public class AndNotIterable implements EstimatedIterable {
     private Iterable<ObjectID> m_plus;
     private Iterable<ObjectID> m_minus;
 
@@ -29,6 +30,10 @@ public class AndNotIterable implements Iterable<ObjectID> {
     	m_minus = minus;
     }
     
+	@Override public long estimatedCount() {
+		return QueryPlanner.estimatedCount(m_plus);
+	}
+    
 	@Override public Iterator<ObjectID> iterator() {
 		return new AndNotIterator(m_plus.iterator(), m_minus.iterator());
 	}
@@ -20,7 +20,7 @@ import java.util.Iterator;
 
 import com.dell.doradus.core.ObjectID;
 
-public class AndNotIterator implements Iterator<ObjectID> {
+public class AndNotIterator implements SkipIterator {
     private Iterator<ObjectID> m_plus;
     private Iterator<ObjectID> m_minus;
     private ObjectID m_next_plus;
@@ -30,7 +30,7 @@ public class AndNotIterator implements Iterator<ObjectID> {
     	m_plus = plus;
     	m_minus = minus;
     	m_next_minus = m_minus.hasNext() ? m_minus.next() : null;
-        move();
+    	m_next_plus = m_plus.hasNext() ? exclude(m_plus.next()) : null;
     }
     
 	@Override public boolean hasNext() {
@@ -40,23 +40,34 @@ public class AndNotIterator implements Iterator<ObjectID> {
 	@Override public ObjectID next() {
 		ObjectID next = m_next_plus;
 		if(next == null) throw new RuntimeException("Read past the end of the iterator");
-		move();
+		m_next_plus = m_plus.hasNext() ? exclude(m_plus.next()) : null;
 		return next;
 	}
 
 	@Override public void remove() { throw new RuntimeException("Cannot remove"); }
 
-	private void move() {
-		do {
-			if(!m_plus.hasNext()) {
-				m_next_plus = null;
-				return;
-			}
-			m_next_plus = m_plus.next();
-			while(m_next_minus != null && m_next_minus.compareTo(m_next_plus) < 0) {
-				m_next_minus = m_minus.hasNext() ? m_minus.next() : null;
+	@Override public ObjectID advance(ObjectID target) {
+		if(m_next_plus != null && m_next_plus.compareTo(target) < 0) {
+			m_next_plus = exclude(AndIterator.advance(m_plus, target));
+		}
+		return m_next_plus == null ? null : next();
+	}
+
+	@Override public long estimatedCount() {
+		return m_next_plus == null ? 0 : AndIterator.estimatedCount(m_plus);
+	}
+
+	// first ID of plus, starting from the given one, that is not in minus; minus skips to
+	// every candidate rather than reading all its IDs
+	private ObjectID exclude(ObjectID candidate) {
+		while(candidate != null) {
+			if(m_next_minus != null && m_next_minus.compareTo(candidate) < 0) {
+				m_next_minus = AndIterator.advance(m_minus, candidate);
 			}
-		} while(m_next_plus.equals(m_next_minus));
+			if(!candidate.equals(m_next_minus)) return candidate;
+			candidate = m_plus.hasNext() ? m_plus.next() : null;
+		}
+		return null;
 	}
 	
 }
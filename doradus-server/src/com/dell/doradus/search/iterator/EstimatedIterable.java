@@ -0,0 +1,33 @@
+/*
+ * Copyright (C) 2014 Dell, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.dell.doradus.search.iterator;
+
+import com.dell.doradus.core.ObjectID;
+
+/**
+ * Sequence whose number of objects can be estimated before it is iterated, so that
+ * the query planner can choose the clause that drives an AND query.
+ */
+public interface EstimatedIterable extends Iterable<ObjectID> {
+	// estimate of a sequence that is not indexed by a term or link row
+	public static final long UNKNOWN = Long.MAX_VALUE - 1;
+	// estimate of a sequence that reads all the objects of the table
+	public static final long SCAN = Long.MAX_VALUE;
+
+	public long estimatedCount();
+}
@@ -28,18 +28,25 @@ public class LinkIterable implements Iterable<ObjectID> {
 	private ObjectID m_key;
 	private int m_bufferSize;
 	private List<ObjectID> m_buffer;
+	private PagedIterator.Prefetches m_prefetches;
 	
     public LinkIterable(FieldDefinition link, Integer shard, ObjectID key, int bufferSize, List<ObjectID> buffer) {
+    	this(link, shard, key, bufferSize, buffer, null);
+    }
+    
+    // prefetches: read-ahead permits shared by the iterators of the query
+    public LinkIterable(FieldDefinition link, Integer shard, ObjectID key, int bufferSize, List<ObjectID> buffer,
+    		PagedIterator.Prefetches prefetches) {
     	m_link = link;
     	m_shard = shard;
     	m_key = key;
     	m_bufferSize = bufferSize;
     	m_buffer = buffer;
+    	m_prefetches = prefetches;
     }
     
 	@Override public Iterator<ObjectID> iterator() {
 		if(m_buffer.size() == 0) return NoneIterator.instance;
-		else if(m_buffer.size() < m_bufferSize) return m_buffer.iterator();
-		else return new LinkIterator(m_link, m_shard, m_key, m_bufferSize, m_buffer);
+		else return new LinkIterator(m_link, m_shard, m_key, m_bufferSize, m_buffer, m_prefetches);
 	}
 }
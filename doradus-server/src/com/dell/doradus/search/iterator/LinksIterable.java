@@ -27,6 +27,7 @@ import java.util.Set;
 import com.dell.doradus.common.FieldDefinition;
 import com.dell.doradus.core.ObjectID;
 import com.dell.doradus.core.ServerConfig;
+import com.dell.doradus.olap.ShardExecutor;
 import com.dell.doradus.service.spider.SpiderHelper;
 import com.dell.doradus.service.spider.SpiderService;
 
@@ -36,8 +37,10 @@ public class LinksIterable implements Iterable<ObjectID> {
 	private ObjectID m_continuation;
 	private boolean m_inclusive;
 	private Iterable<ObjectID> m_keys; 
+	private PagedIterator.Prefetches m_prefetches;
 
-    public LinksIterable(FieldDefinition link, List<Integer> shards, ObjectID continuation, boolean inclusive, Iterable<ObjectID> keys) {
+    public LinksIterable(FieldDefinition link, List<Integer> shards, ObjectID continuation, boolean inclusive, Iterable<ObjectID> keys,
+    		PagedIterator.Prefetches prefetches) {
     	m_link = link;
     	m_shards = shards;
     	if(m_shards == null) {
@@ -48,49 +51,76 @@ public class LinksIterable implements Iterable<ObjectID> {
     	m_continuation = continuation;
     	m_inclusive = inclusive;
     	m_keys = keys;
+    	m_prefetches = prefetches;
     }
     
 	@Override public Iterator<ObjectID> iterator() {
 		if(m_shards.size() == 0) return NoneIterator.instance;
 		int maxobjects = 64;
 		int maxmaxobjects = 64 * 1024;
-		int count = ServerConfig.getInstance().dbesoptions_linkBuffer; // 1000
-		List<ObjectID> keys = new ArrayList<ObjectID>();
+		final int count = ServerConfig.getInstance().dbesoptions_linkBuffer; // 1000
+		final List<ObjectID> keys = new ArrayList<ObjectID>();
 		for(ObjectID key : m_keys) {
 			keys.add(key);
 		}
 		if(keys.size() == 0) return NoneIterator.instance;
 		if(keys.size() * m_shards.size() == 1) {
 			List<ObjectID> lst = SpiderHelper.getLinks(m_link, m_shards.get(0), keys.get(0), m_continuation, m_inclusive, count);
-			return new LinkIterator(m_link, m_shards.get(0), keys.get(0), count, lst);
+			return new LinkIterator(m_link, m_shards.get(0), keys.get(0), count, lst, m_prefetches);
 		}
 		if(keys.size() <= maxobjects) {
 			OrIterable or = new OrIterable(m_shards.size() * keys.size());
-			for(Integer shard : m_shards) {
-				Map<ObjectID, List<ObjectID>> map = SpiderHelper.getLinks(m_link, shard, keys, m_continuation, m_inclusive, count);
-				for(Map.Entry<ObjectID, List<ObjectID>> e : map.entrySet()) {
+			// the first pages of all shards are fetched concurrently
+			List<Map<ObjectID, List<ObjectID>>> maps = ShardFetcher.fetch(m_shards, new ShardExecutor.Task<Integer, Map<ObjectID, List<ObjectID>>>() {
+				@Override public Map<ObjectID, List<ObjectID>> execute(Integer shard) {
+					return SpiderHelper.getLinks(m_link, shard, keys, m_continuation, m_inclusive, count);
+				}
+			});
+			for(int i = 0; i < m_shards.size(); i++) {
+				Integer shard = m_shards.get(i);
+				for(Map.Entry<ObjectID, List<ObjectID>> e : maps.get(i).entrySet()) {
 					if(e.getValue().size() == 0) continue;
-					or.add(new LinkIterable(m_link, shard, e.getKey(), count, e.getValue()));
+					or.add(new LinkIterable(m_link, shard, e.getKey(), count, e.getValue(), m_prefetches));
 				}
 			}
 			return or.iterator();
 		}
+		// first page of the key i % keys.size() in the shard i / keys.size()
+		ShardExecutor.Task<Integer, List<ObjectID>> firstPage = new ShardExecutor.Task<Integer, List<ObjectID>>() {
+			@Override public List<ObjectID> execute(Integer item) {
+				Integer shard = m_shards.get(item / keys.size());
+				ObjectID key = keys.get(item % keys.size());
+				return SpiderHelper.getLinks(m_link, shard, key, m_continuation, m_inclusive, count);
+			}
+		};
+		int itemCount = m_shards.size() * keys.size();
 		if(keys.size() <= maxmaxobjects) {
+			// first pages of every key in every shard, fetched concurrently
+			List<Integer> items = new ArrayList<Integer>(itemCount);
+			for(int i = 0; i < itemCount; i++) items.add(i);
+			List<List<ObjectID>> pages = ShardFetcher.fetch(items, firstPage);
 			OrIterable or = new OrIterable(keys.size());
-			for(Integer shard : m_shards) {
-				for(ObjectID key : keys) {
-					List<ObjectID> lst = SpiderHelper.getLinks(m_link, shard, key, m_continuation, m_inclusive, count);
-					or.add(new LinkIterable(m_link, shard, key, count, lst));
-				}
+			for(int i = 0; i < itemCount; i++) {
+				Integer shard = m_shards.get(i / keys.size());
+				ObjectID key = keys.get(i % keys.size());
+				or.add(new LinkIterable(m_link, shard, key, count, pages.get(i), m_prefetches));
 			}
 			return or.iterator();
 		}
 
+		// too many keys to hold all their first pages: they are fetched concurrently
+		// in batches of search_link_thread_count, each read fully before the next one
+		int batchSize = Math.max(1, ServerConfig.getInstance().search_link_thread_count);
 		Set<ObjectID> set = new HashSet<ObjectID>();
-		for(Integer shard : m_shards) {
-			for(ObjectID key : keys) {
-				List<ObjectID> lst = SpiderHelper.getLinks(m_link, shard, key, m_continuation, m_inclusive, count);
-				Iterable<ObjectID> iterator = new LinkIterable(m_link, shard, key, count, lst);
+		for(int start = 0; start < itemCount; start += batchSize) {
+			List<Integer> batch = new ArrayList<Integer>(batchSize);
+			for(int i = start; i < Math.min(start + batchSize, itemCount); i++) batch.add(i);
+			List<List<ObjectID>> pages = ShardFetcher.fetch(batch, firstPage);
+			for(int b = 0; b < batch.size(); b++) {
+				int i = batch.get(b);
+				Integer shard = m_shards.get(i / keys.size());
+				ObjectID key = keys.get(i % keys.size());
+				Iterable<ObjectID> iterator = new LinkIterable(m_link, shard, key, count, pages.get(b), m_prefetches);
 				for(ObjectID obj : iterator) set.add(obj);
 			}
 		}
@@ -20,10 +20,12 @@ import java.util.Iterator;
 
 import com.dell.doradus.core.ObjectID;
 
-public class NoneIterable implements Iterable<ObjectID> {
+public class NoneIterable implements EstimatedIterable {
 	public static NoneIterable instance = new NoneIterable();
 
     public NoneIterable() { }
     
+	@Override public long estimatedCount() { return 0; }
+    
 	@Override public Iterator<ObjectID> iterator() { return NoneIterator.instance; }
 }
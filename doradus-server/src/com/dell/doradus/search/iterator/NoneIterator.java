@@ -16,11 +16,9 @@
 
 package com.dell.doradus.search.iterator;
 
-import java.util.Iterator;
-
 import com.dell.doradus.core.ObjectID;
 
-public class NoneIterator implements Iterator<ObjectID> {
+public class NoneIterator implements SkipIterator {
 	public static NoneIterator instance = new NoneIterator();
 	
     public NoneIterator() { }
@@ -28,4 +26,6 @@ public class NoneIterator implements Iterator<ObjectID> {
 	@Override public boolean hasNext() { return false; }
 	@Override public ObjectID next() { throw new RuntimeException("Attempted to read from an empty iterator"); }
 	@Override public void remove() { throw new RuntimeException("Cannot remove"); }
+	@Override public ObjectID advance(ObjectID target) { return null; }
+	@Override public long estimatedCount() { return 0; }
 }
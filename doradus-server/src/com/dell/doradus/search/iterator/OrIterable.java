@@ -21,8 +21,9 @@ import java.util.Iterator;
 import java.util.List;
 
 import com.dell.doradus.core.ObjectID;
+import com.dell.doradus.search.QueryPlanner;
 
-public class OrIterable implements Iterable<ObjectID> {
+public class OrIterable implements EstimatedIterable {
 	private List<Iterable<ObjectID>> m_list; 
 			
     public OrIterable(int capacity) {
@@ -38,6 +39,12 @@ public class OrIterable implements Iterable<ObjectID> {
     	m_list.add(iterable);
     }
     
+	@Override public long estimatedCount() {
+		long count = 0;
+		for(Iterable<ObjectID> i : m_list) count = QueryPlanner.sum(count, QueryPlanner.estimatedCount(i));
+		return count;
+	}
+    
 	@Override public Iterator<ObjectID> iterator() {
 		if(m_list.size() == 0) return NoneIterator.instance;
 		else if(m_list.size() == 1) return m_list.get(0).iterator();
@@ -23,12 +23,14 @@ import com.dell.doradus.core.ObjectID;
 import com.dell.doradus.search.util.DefaultComparator;
 import com.dell.doradus.search.util.HeapList;
 
-public class OrIterator implements Iterator<ObjectID> {
+public class OrIterator implements SkipIterator {
 	private DefaultComparator<ObjectID> m_comp = new DefaultComparator<ObjectID>();
+	private List<Iterator<ObjectID>> m_iterators;
     private HeapList<IxV> m_heap;
     private IxV m_current;
 	
     public OrIterator(List<Iterator<ObjectID>> iterators) {
+    	m_iterators = iterators;
     	m_heap = new HeapList<IxV>(iterators.size() - 1);
         for(Iterator<ObjectID> i: iterators) {
         	IxV ixv = new IxV(i);
@@ -51,6 +53,28 @@ public class OrIterator implements Iterator<ObjectID> {
 	}
 
 	@Override public void remove() { throw new RuntimeException("Cannot remove"); }
+
+	// every iterator behind the target skips to it; each one is moved at most once,
+	// since the smallest current ID is always moved first
+	@Override public ObjectID advance(ObjectID target) {
+		while(m_current.V != null && m_current.V.compareTo(target) < 0) {
+			m_current.V = AndIterator.advance(m_current.I, target);
+			m_current = m_heap.AddEx(m_current);
+		}
+		return hasNext() ? next() : null;
+	}
+
+	@Override public long estimatedCount() {
+		if(!hasNext()) return 0;
+		long count = 0;
+		for(Iterator<ObjectID> i : m_iterators) {
+			long c = AndIterator.estimatedCount(i);
+			if(c == Long.MAX_VALUE) return c;
+			count += c;
+		}
+		// the current IDs of the iterators are not counted by them
+		return count + m_iterators.size();
+	}
     
     class IxV implements Comparable<IxV> {
         public Iterator<ObjectID> I;
@@ -0,0 +1,266 @@
+/*
+ * Copyright (C) 2014 Dell, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.dell.doradus.search.iterator;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.dell.doradus.core.ObjectID;
+import com.dell.doradus.core.ServerConfig;
+
+/**
+ * Iterates the object IDs of a term or link row, read page by page.
+ * <ul>
+ * <li>When half of a page is consumed, the next one is read ahead by a ShardFetcher pool
+ *     thread, so that it is usually there when the current page runs out.</li>
+ * <li>Read-ahead takes a permit of the Prefetches of the query, shared by all its term and
+ *     link iterators, until the read ends; without a free permit, or without a pool, the next
+ *     page is read when it is needed.</li>
+ * <li>Page size adapts to the consumer: it doubles, up to search_link_column_count, when
+ *     a page is consumed faster than the next one is read, and halves, down to the initial
+ *     size, when a page is consumed much slower. Long rows that are walked quickly are thus
+ *     read with fewer round trips.</li>
+ * <li>advance(target) gallops through the current page; if the target is past it, the page
+ *     read ahead is dropped and a page starting at the target is read instead.</li>
+ * </ul>
+ */
+public abstract class PagedIterator implements SkipIterator {
+
+	/**
+	 * Limits the number of pages read ahead at once by the iterators of one query.
+	 * A permit is held until the read ends, even if its page is dropped.
+	 */
+	public static class Prefetches {
+		private AtomicInteger m_permits;
+
+		public Prefetches(int maxPrefetches) {
+			m_permits = new AtomicInteger(maxPrefetches);
+		}
+
+		public Prefetches() {
+			this(ServerConfig.getInstance().search_max_prefetches_per_query);
+		}
+
+		boolean tryAcquire() {
+			while(true) {
+				int permits = m_permits.get();
+				if(permits <= 0) return false;
+				if(m_permits.compareAndSet(permits, permits - 1)) return true;
+			}
+		}
+
+		void release() { m_permits.incrementAndGet(); }
+	}
+
+	private static class Page {
+		List<ObjectID> ids;
+		long nanos;
+	}
+
+	private int m_minPageSize;
+	private int m_maxPageSize;
+	private int m_pageSize;
+	private List<ObjectID> m_buffer;
+	private boolean m_last;
+	private int m_next;
+	private long m_pageStart;
+	private long m_fetchNanos;
+	private Prefetches m_prefetches;
+	private Future<Page> m_prefetch;
+	private Prefetch m_prefetchTask;
+	private int m_prefetchSize;
+
+	// buffer: first page, read with the given size
+	protected PagedIterator(int bufferSize, List<ObjectID> buffer, Prefetches prefetches) {
+		m_minPageSize = bufferSize;
+		m_maxPageSize = Math.max(bufferSize, ServerConfig.getInstance().search_link_column_count);
+		m_pageSize = bufferSize;
+		m_buffer = buffer;
+		m_last = buffer.size() < bufferSize;
+		m_next = 0;
+		m_pageStart = System.nanoTime();
+		m_prefetches = prefetches;
+	}
+
+	// reads up to count IDs following the given ID, or starting at it if inclusive
+	protected abstract List<ObjectID> fetch(ObjectID from, boolean inclusive, int count);
+
+	@Override
+	public boolean hasNext() {
+		if(m_next == m_buffer.size()) {
+			if(m_last) return false;
+			nextPage();
+		} else if(m_prefetch == null && !m_last && m_next >= m_buffer.size() / 2) {
+			startPrefetch();
+		}
+		return m_next < m_buffer.size();
+	}
+
+	@Override
+	public ObjectID next() {
+		if(!hasNext()) throw new RuntimeException("Read past the end of the iterator");
+		return m_buffer.get(m_next++);
+	}
+
+	@Override public void remove() { throw new RuntimeException("Remove is not supported"); }
+
+	@Override
+	public ObjectID advance(ObjectID target) {
+		while(true) {
+			if(m_buffer.size() > 0 && m_buffer.get(m_buffer.size() - 1).compareTo(target) >= 0) {
+				// the target is in the current page, or before the IDs still to be read
+				if(m_next < m_buffer.size()) m_next = gallop(target);
+				return hasNext() ? next() : null;
+			}
+			if(m_last) {
+				m_next = m_buffer.size();
+				return null;
+			}
+			if(m_prefetch != null && m_prefetch.isDone()) {
+				// the page read ahead may hold the target
+				m_next = m_buffer.size();
+				nextPage();
+				continue;
+			}
+			dropPrefetch();
+			int size = m_pageSize;
+			Page page = read(target, true, size);
+			m_fetchNanos = page.nanos;
+			m_buffer = page.ids;
+			m_last = m_buffer.size() < size;
+			m_next = 0;
+			m_pageStart = System.nanoTime();
+			return hasNext() ? next() : null;
+		}
+	}
+
+	@Override
+	public long estimatedCount() {
+		return m_last ? m_buffer.size() - m_next : Long.MAX_VALUE;
+	}
+
+	// index of the first ID of the current page not less than the target, searched
+	// with growing steps from the current position, then by bisection
+	private int gallop(ObjectID target) {
+		int low = m_next;
+		int step = 1;
+		int high = low;
+		while(high < m_buffer.size() && m_buffer.get(high).compareTo(target) < 0) {
+			low = high + 1;
+			high += step;
+			step *= 2;
+		}
+		high = Math.min(high, m_buffer.size());
+		while(low < high) {
+			int mid = (low + high) >>> 1;
+			if(m_buffer.get(mid).compareTo(target) < 0) low = mid + 1;
+			else high = mid;
+		}
+		return low;
+	}
+
+	private void dropPrefetch() {
+		if(m_prefetch == null) return;
+		m_prefetchTask.cancel();
+		m_prefetch.cancel(false);
+		m_prefetch = null;
+		m_prefetchTask = null;
+	}
+
+	private void startPrefetch() {
+		if(!m_prefetches.tryAcquire()) return;
+		int size = m_pageSize;
+		Prefetch task = new Prefetch(m_buffer.get(m_buffer.size() - 1), size);
+		Future<Page> future = null;
+		try {
+			future = ShardFetcher.submit(task);
+		} finally {
+			if(future == null) task.cancel();
+		}
+		m_prefetch = future;
+		m_prefetchTask = task;
+		m_prefetchSize = size;
+	}
+
+	// reads the page following the continuation and then releases its permit; if it is
+	// cancelled before it starts, the permit is released at once and the page is not read
+	private class Prefetch implements Callable<Page> {
+		private final ObjectID m_continuation;
+		private final int m_size;
+		private final AtomicBoolean m_started = new AtomicBoolean();
+
+		Prefetch(ObjectID continuation, int size) {
+			m_continuation = continuation;
+			m_size = size;
+		}
+
+		@Override public Page call() {
+			if(!m_started.compareAndSet(false, true)) return null;
+			try {
+				return read(m_continuation, false, m_size);
+			} finally {
+				m_prefetches.release();
+			}
+		}
+
+		void cancel() {
+			if(m_started.compareAndSet(false, true)) m_prefetches.release();
+		}
+	}
+
+	private Page read(ObjectID from, boolean inclusive, int size) {
+		long start = System.nanoTime();
+		Page page = new Page();
+		page.ids = fetch(from, inclusive, size);
+		page.nanos = System.nanoTime() - start;
+		return page;
+	}
+
+	private void nextPage() {
+		long consumeNanos = System.nanoTime() - m_pageStart;
+		Page page;
+		int size;
+		if(m_prefetch != null) {
+			try {
+				page = ShardFetcher.get(m_prefetch);
+			} finally {
+				m_prefetch = null;
+				m_prefetchTask = null;
+			}
+			size = m_prefetchSize;
+		} else {
+			size = m_pageSize;
+			page = read(m_buffer.get(m_buffer.size() - 1), false, size);
+		}
+		m_fetchNanos = page.nanos;
+		adaptPageSize(consumeNanos);
+		m_buffer = page.ids;
+		m_last = m_buffer.size() < size;
+		m_next = 0;
+		m_pageStart = System.nanoTime();
+	}
+
+	private void adaptPageSize(long consumeNanos) {
+		if(consumeNanos < m_fetchNanos) m_pageSize = Math.min(m_maxPageSize, m_pageSize * 2);
+		else if(consumeNanos > 4 * m_fetchNanos) m_pageSize = Math.max(m_minPageSize, m_pageSize / 2);
+	}
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2014 Dell, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.dell.doradus.search.iterator;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.dell.doradus.core.ServerConfig;
+import com.dell.doradus.olap.ShardExecutor;
+
+/**
+ * Fetches the first pages of the term and link rows of several shards (or of several
+ * objects in several shards) concurrently, so that a query over a table sharded in
+ * hundreds of shards does not wait for hundreds of sequential reads before its first hit.
+ * <p>
+ * All queries share one pool of <code>search_link_thread_count</code> threads; 0 means the
+ * pages are fetched sequentially on the calling thread. The calling thread fetches pages
+ * too, so a query makes progress even if all pool threads are busy.
+ * Results are returned in the order of the items list.
+ * <p>
+ * The same pool reads the next pages of term and link rows ahead (see PagedIterator).
+ */
+public class ShardFetcher {
+
+	private static ExecutorService m_pool;
+
+	private static synchronized ExecutorService getPool() {
+		if(m_pool == null) {
+			m_pool = ShardExecutor.newPool(ServerConfig.getInstance().search_link_thread_count, "SpiderFetchWorker");
+		}
+		return m_pool;
+	}
+
+	public static <S, T> List<T> fetch(List<S> items, ShardExecutor.Task<S, T> fetch) {
+		int parallelism = Math.min(items.size(), ServerConfig.getInstance().search_link_thread_count + 1);
+		return ShardExecutor.execute(parallelism > 1 ? getPool() : null, parallelism, items, fetch);
+	}
+
+	// runs the task in the pool; returns null if there is no pool
+	public static <T> Future<T> submit(Callable<T> task) {
+		ExecutorService pool = getPool();
+		return pool == null ? null : pool.submit(task);
+	}
+
+	// waits for a task started by submit and returns its result, throwing its failure unchanged
+	public static <T> T get(Future<T> future) {
+		try {
+			return future.get();
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while waiting for a page", e);
+		} catch(ExecutionException e) {
+			Throwable cause = e.getCause();
+			if(cause instanceof RuntimeException) throw (RuntimeException)cause;
+			if(cause instanceof Error) throw (Error)cause;
+			throw new RuntimeException(cause);
+		}
+	}
+
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2014 Dell, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.dell.doradus.search.iterator;
+
+import java.util.Iterator;
+
+import com.dell.doradus.core.ObjectID;
+
+/**
+ * Iterator of increasing object IDs that can skip to a given ID, so that intersections
+ * do not read every ID of a long term or link row that precedes the next match.
+ */
+public interface SkipIterator extends Iterator<ObjectID> {
+	
+	/**
+	 * Skips the IDs less than the target and returns the next ID, as next() would.
+	 * 
+	 * @param target	ID to skip to
+	 * @return			first remaining ID not less than the target, or null if there is none
+	 */
+	public ObjectID advance(ObjectID target);
+	
+	/**
+	 * @return	estimated number of remaining IDs, used to intersect the smallest iterators
+	 *			first; Long.MAX_VALUE if unknown
+	 */
+	public long estimatedCount();
+	
+}
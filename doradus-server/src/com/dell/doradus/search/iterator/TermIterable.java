@@ -28,18 +28,25 @@ public class TermIterable implements Iterable<ObjectID> {
 	private String m_term;
 	private int m_bufferSize;
 	private List<ObjectID> m_buffer;
+	private PagedIterator.Prefetches m_prefetches;
 	
     public TermIterable(TableDefinition table, Integer shard, String term, int bufferSize, List<ObjectID> buffer) {
+    	this(table, shard, term, bufferSize, buffer, null);
+    }
+    
+    // prefetches: read-ahead permits shared by the iterators of the query
+    public TermIterable(TableDefinition table, Integer shard, String term, int bufferSize, List<ObjectID> buffer,
+    		PagedIterator.Prefetches prefetches) {
     	m_table = table;
     	m_shard = shard;
     	m_term = term;
     	m_bufferSize = bufferSize;
     	m_buffer = buffer;
+    	m_prefetches = prefetches;
     }
     
 	@Override public Iterator<ObjectID> iterator() {
 		if(m_buffer.size() == 0) return NoneIterator.instance;
-		else if(m_buffer.size() < m_bufferSize) return m_buffer.iterator();
-		else return new TermIterator(m_table, m_shard, m_term, m_bufferSize, m_buffer);
+		else return new TermIterator(m_table, m_shard, m_term, m_bufferSize, m_buffer, m_prefetches);
 	}
 }
@@ -25,17 +25,22 @@ import java.util.Set;
 import com.dell.doradus.common.TableDefinition;
 import com.dell.doradus.core.ObjectID;
 import com.dell.doradus.core.ServerConfig;
+import com.dell.doradus.olap.ShardExecutor;
+import com.dell.doradus.search.QueryPlanner;
 import com.dell.doradus.service.spider.SpiderHelper;
 import com.dell.doradus.service.spider.SpiderService;
+import com.dell.doradus.service.spider.TermStatistics;
 
-public class TermsIterable implements Iterable<ObjectID> {
+public class TermsIterable implements EstimatedIterable {
 	private TableDefinition m_table;
 	private List<Integer> m_shards;
 	private ObjectID m_continuation;
 	private boolean m_inclusive;
 	private List<String> m_terms = new ArrayList<String>();
+	private PagedIterator.Prefetches m_prefetches;
 
-    public TermsIterable(TableDefinition table, List<Integer> shards, ObjectID continuation, boolean inclusive) {
+    public TermsIterable(TableDefinition table, List<Integer> shards, ObjectID continuation, boolean inclusive,
+    		PagedIterator.Prefetches prefetches) {
     	m_table = table;
     	m_shards = shards;
     	if(m_shards == null) {
@@ -48,11 +53,50 @@ public class TermsIterable implements Iterable<ObjectID> {
     	}
     	m_continuation = continuation;
     	m_inclusive = inclusive;
+    	m_prefetches = prefetches;
     }
     
     public void add(String term) {
     	m_terms.add(term);
     }
+    
+    // sum of the estimates of the term rows of all shards; rows not counted yet are read,
+    // up to TermStatistics.limit() objects, concurrently for all shards
+	@Override public long estimatedCount() {
+		final TermStatistics statistics = TermStatistics.instance();
+		long count = 0;
+		final List<Integer> shards = new ArrayList<Integer>();
+		for(Integer shard : m_shards) {
+			boolean counted = true;
+			for(String term : m_terms) {
+				long termCount = statistics.get(TermStatistics.key(m_table, shard, term));
+				if(termCount < 0) counted = false;
+				else count = QueryPlanner.sum(count, termCount);
+			}
+			if(!counted) shards.add(shard);
+		}
+		if(shards.size() == 0) return count;
+		
+		List<Long> counts = ShardFetcher.fetch(shards, new ShardExecutor.Task<Integer, Long>() {
+			@Override public Long execute(Integer shard) {
+				List<String> terms = new ArrayList<String>();
+				for(String term : m_terms) {
+					if(statistics.get(TermStatistics.key(m_table, shard, term)) < 0) terms.add(term);
+				}
+				Map<String, List<ObjectID>> docs = SpiderHelper.getTermDocs(m_table, shard, terms, null, true, TermStatistics.limit());
+				long shardCount = 0;
+				for(String term : terms) {
+					List<ObjectID> ids = docs.get(term);
+					int termCount = ids == null ? 0 : ids.size();
+					statistics.put(TermStatistics.key(m_table, shard, term), termCount);
+					shardCount += termCount;
+				}
+				return shardCount;
+			}
+		});
+		for(Long shardCount : counts) count = QueryPlanner.sum(count, shardCount);
+		return count;
+	}
 	
 	@Override public Iterator<ObjectID> iterator() {
 		int count = ServerConfig.getInstance().dbesoptions_linkBuffer; // 1000
@@ -61,16 +105,23 @@ public class TermsIterable implements Iterable<ObjectID> {
 		
 		if(m_shards.size() * m_terms.size() == 1) {
 			List<ObjectID> lst = SpiderHelper.getTermDocs(m_table, m_shards.get(0), m_terms.get(0), m_continuation, m_inclusive, count);
-			return new TermIterable(m_table, m_shards.get(0), m_terms.get(0), count, lst).iterator();
+			return new TermIterable(m_table, m_shards.get(0), m_terms.get(0), count, lst, m_prefetches).iterator();
 		}
 		
 		OrIterable or = new OrIterable(m_shards.size() * m_terms.size());
 		
-		for(Integer shard : m_shards) {
-			Map<String, List<ObjectID>> map = SpiderHelper.getTermDocs(m_table, shard, m_terms, m_continuation, m_inclusive, count);
-			for(Map.Entry<String, List<ObjectID>> e : map.entrySet()) {
+		// the first pages of all shards are fetched concurrently
+		final int pageSize = count;
+		List<Map<String, List<ObjectID>>> maps = ShardFetcher.fetch(m_shards, new ShardExecutor.Task<Integer, Map<String, List<ObjectID>>>() {
+			@Override public Map<String, List<ObjectID>> execute(Integer shard) {
+				return SpiderHelper.getTermDocs(m_table, shard, m_terms, m_continuation, m_inclusive, pageSize);
+			}
+		});
+		for(int i = 0; i < m_shards.size(); i++) {
+			Integer shard = m_shards.get(i);
+			for(Map.Entry<String, List<ObjectID>> e : maps.get(i).entrySet()) {
 				if(e.getValue().size() == 0) continue;
-				or.add(new TermIterable(m_table, shard, e.getKey(), count, e.getValue()));
+				or.add(new TermIterable(m_table, shard, e.getKey(), count, e.getValue(), m_prefetches));
 			}
 		}
 		return or.iterator();
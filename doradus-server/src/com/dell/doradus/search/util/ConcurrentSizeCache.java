@@ -0,0 +1,350 @@
+/*
+ * Copyright (C) 2014 Dell, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dell.doradus.search.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of values weighted by their size, safe for concurrent use.
+ * <ul>
+ * <li>Entries are spread over stripes, each with its own lock, so that lookups of different
+ *     keys seldom wait for each other.</li>
+ * <li>New entries go to a window that takes 1% of the size; entries leaving the window enter
+ *     the main part only if they are requested more often than the entry they would evict,
+ *     as estimated by a frequency sketch (W-TinyLFU admission). One-off values, such as the
+ *     chunks read by a scan, thus do not evict frequently used ones.</li>
+ * <li>Both parts evict their least recently used entry, across all stripes.</li>
+ * <li>get(key, loader) loads a missing value once: other threads requesting the same key
+ *     wait for it, while requests of other keys go on.</li>
+ * </ul>
+ */
+public class ConcurrentSizeCache<K, T> {
+	private static final int STRIPES = 16;
+
+	/**
+	 * Loads a value missing from the cache.
+	 */
+	public interface Loader<T> {
+		public T load();
+		// size of the value in the cache, in bytes
+		public long sizeOf(T value);
+	}
+
+	private static class Node<T> {
+		final T value;
+		final long size;
+		volatile long tick;
+
+		Node(T value, long size) {
+			this.value = value;
+			this.size = size;
+			this.tick = System.nanoTime();
+		}
+	}
+
+	private static class Stripe<K, T> {
+		// access-ordered
+		final LinkedHashMap<K, Node<T>> window = new LinkedHashMap<K, Node<T>>(16, 0.75f, true);
+		final LinkedHashMap<K, Node<T>> main = new LinkedHashMap<K, Node<T>>(16, 0.75f, true);
+	}
+
+	// value being loaded by one thread, waited for by the others
+	private static class Loading<T> {
+		private boolean m_done;
+		private T m_value;
+		private Throwable m_error;
+
+		synchronized void complete(T value, Throwable error) {
+			m_value = value;
+			m_error = error;
+			m_done = true;
+			notifyAll();
+		}
+
+		synchronized T await() {
+			try {
+				while(!m_done) wait();
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("Interrupted while waiting for a value being loaded", e);
+			}
+			if(m_error instanceof RuntimeException) throw (RuntimeException)m_error;
+			if(m_error instanceof Error) throw (Error)m_error;
+			return m_value;
+		}
+	}
+
+	private final List<Stripe<K, T>> m_stripes;
+	private final long m_totalSize;
+	private final long m_windowLimit;
+	private final long m_mainLimit;
+	private final AtomicLong m_windowSize = new AtomicLong();
+	private final AtomicLong m_mainSize = new AtomicLong();
+	private final AtomicInteger m_count = new AtomicInteger();
+	private final AtomicLong m_hits = new AtomicLong();
+	private final AtomicLong m_misses = new AtomicLong();
+	private final AtomicLong m_evictions = new AtomicLong();
+	private final FrequencySketch m_sketch = new FrequencySketch();
+	private final Object m_evictionLock = new Object();
+	private final ConcurrentHashMap<K, Loading<T>> m_loading = new ConcurrentHashMap<K, Loading<T>>();
+
+	public ConcurrentSizeCache(long totalSize) {
+		m_totalSize = totalSize;
+		m_windowLimit = Math.max(1, totalSize / 100);
+		m_mainLimit = totalSize - m_windowLimit;
+		m_stripes = new ArrayList<Stripe<K, T>>(STRIPES);
+		for(int i = 0; i < STRIPES; i++) m_stripes.add(new Stripe<K, T>());
+	}
+
+	private Stripe<K, T> stripe(Object key) {
+		int h = key.hashCode();
+		h ^= (h >>> 16);
+		return m_stripes.get(h & (STRIPES - 1));
+	}
+
+	public T get(K key) {
+		m_sketch.increment(key.hashCode());
+		T value = peek(key);
+		if(value == null) m_misses.incrementAndGet();
+		else m_hits.incrementAndGet();
+		return value;
+	}
+
+	/**
+	 * Returns the cached value of the key without counting a request of it,
+	 * for lookups that should not make the key look frequently used.
+	 */
+	public T peek(K key) {
+		Stripe<K, T> stripe = stripe(key);
+		Node<T> node;
+		synchronized(stripe) {
+			node = stripe.window.get(key);
+			if(node == null) node = stripe.main.get(key);
+		}
+		if(node == null) return null;
+		node.tick = System.nanoTime();
+		return node.value;
+	}
+
+	/**
+	 * Tells whether the key is cached, without counting a request nor refreshing the entry.
+	 */
+	public boolean contains(K key) {
+		Stripe<K, T> stripe = stripe(key);
+		synchronized(stripe) {
+			return stripe.window.containsKey(key) || stripe.main.containsKey(key);
+		}
+	}
+
+	/**
+	 * Returns the cached value of the key, or loads it with the given loader and caches it.
+	 * If another thread is loading the same key, waits for its value instead.
+	 * Errors of the loader are thrown to all the threads waiting for the key.
+	 */
+	public T get(K key, Loader<T> loader) {
+		return get(key, loader, 0);
+	}
+
+	/**
+	 * Same as get(key, loader), and counts the given number of requests of the key beforehand,
+	 * so that a value known to be used often, such as a field loaded for a new segment
+	 * in place of a frequently used one, is admitted like the value it replaces.
+	 */
+	public T get(K key, Loader<T> loader, int expectedRequests) {
+		for(int i = 0; i < Math.min(expectedRequests, 15); i++) m_sketch.increment(key.hashCode());
+		T value = get(key);
+		if(value != null) return value;
+		Loading<T> loading = new Loading<T>();
+		Loading<T> other = m_loading.putIfAbsent(key, loading);
+		if(other != null) return other.await();
+		try {
+			// it might have been loaded since the first lookup
+			value = peek(key);
+			if(value == null) {
+				value = loader.load();
+				put(key, value, loader.sizeOf(value));
+			}
+			loading.complete(value, null);
+			return value;
+		} catch(RuntimeException | Error e) {
+			loading.complete(null, e);
+			throw e;
+		} finally {
+			m_loading.remove(key, loading);
+		}
+	}
+
+	public void put(K key, T value, long size) {
+		Stripe<K, T> stripe = stripe(key);
+		synchronized(stripe) {
+			Node<T> old = stripe.window.remove(key);
+			if(old != null) m_windowSize.addAndGet(-old.size);
+			else {
+				old = stripe.main.remove(key);
+				if(old != null) m_mainSize.addAndGet(-old.size);
+			}
+			if(old != null) m_count.decrementAndGet();
+			// values that cannot fit are not cached
+			if(size <= m_mainLimit) {
+				stripe.window.put(key, new Node<T>(value, size));
+				m_windowSize.addAndGet(size);
+				m_count.incrementAndGet();
+			}
+		}
+		evict();
+	}
+
+	private void evict() {
+		if(m_windowSize.get() <= m_windowLimit && m_mainSize.get() <= m_mainLimit) return;
+		synchronized(m_evictionLock) {
+			while(m_windowSize.get() > m_windowLimit) {
+				Eldest<K, T> candidate = eldest(true);
+				if(candidate == null) break;
+				if(remove(candidate, true)) admit(candidate);
+			}
+			while(m_mainSize.get() > m_mainLimit) {
+				Eldest<K, T> victim = eldest(false);
+				if(victim == null) break;
+				if(remove(victim, false)) m_evictions.incrementAndGet();
+			}
+		}
+	}
+
+	// moves the candidate from the window to the main part if it is used more often than
+	// the entries it evicts; otherwise drops it
+	private void admit(Eldest<K, T> candidate) {
+		if(m_mainSize.get() + candidate.node.size > m_mainLimit) {
+			Eldest<K, T> victim = eldest(false);
+			if(victim != null && m_sketch.frequency(candidate.key.hashCode()) <= m_sketch.frequency(victim.key.hashCode())) {
+				m_evictions.incrementAndGet();
+				return;
+			}
+			while(victim != null && m_mainSize.get() + candidate.node.size > m_mainLimit) {
+				if(remove(victim, false)) m_evictions.incrementAndGet();
+				victim = eldest(false);
+			}
+		}
+		Stripe<K, T> stripe = stripe(candidate.key);
+		synchronized(stripe) {
+			// a new value may have been put meanwhile
+			if(stripe.window.containsKey(candidate.key) || stripe.main.containsKey(candidate.key)) return;
+			stripe.main.put(candidate.key, candidate.node);
+			m_mainSize.addAndGet(candidate.node.size);
+			m_count.incrementAndGet();
+		}
+	}
+
+	private static class Eldest<K, T> {
+		final K key;
+		final Node<T> node;
+		final long tick;
+
+		Eldest(K key, Node<T> node) {
+			this.key = key;
+			this.node = node;
+			this.tick = node.tick;
+		}
+	}
+
+	// least recently used entry of the window or of the main part, over all stripes
+	private Eldest<K, T> eldest(boolean window) {
+		Eldest<K, T> eldest = null;
+		for(Stripe<K, T> stripe : m_stripes) {
+			synchronized(stripe) {
+				LinkedHashMap<K, Node<T>> map = window ? stripe.window : stripe.main;
+				if(map.isEmpty()) continue;
+				Map.Entry<K, Node<T>> entry = map.entrySet().iterator().next();
+				if(eldest == null || entry.getValue().tick < eldest.tick) {
+					eldest = new Eldest<K, T>(entry.getKey(), entry.getValue());
+				}
+			}
+		}
+		return eldest;
+	}
+
+	// removes the entry unless it was replaced or used since it was found
+	private boolean remove(Eldest<K, T> eldest, boolean window) {
+		Stripe<K, T> stripe = stripe(eldest.key);
+		synchronized(stripe) {
+			LinkedHashMap<K, Node<T>> map = window ? stripe.window : stripe.main;
+			if(!map.containsKey(eldest.key)) return false;
+			Node<T> node = map.remove(eldest.key);
+			if(node != eldest.node || node.tick != eldest.tick) {
+				map.put(eldest.key, node);
+				return false;
+			}
+			(window ? m_windowSize : m_mainSize).addAndGet(-node.size);
+			m_count.decrementAndGet();
+			return true;
+		}
+	}
+
+	public int size() { return m_count.get(); }
+
+	public long storageSize() { return m_windowSize.get() + m_mainSize.get(); }
+
+	public long totalSize() { return m_totalSize; }
+
+	public long hits() { return m_hits.get(); }
+
+	public long misses() { return m_misses.get(); }
+
+	public long evictions() { return m_evictions.get(); }
+
+	/**
+	 * Count-min sketch of the recent frequency of keys: four 4-bit counters per key, in four rows.
+	 * All counters are halved after a number of increments, so that old requests are forgotten.
+	 * Counters are updated without locking; a lost increment only makes the estimate rougher.
+	 */
+	private static class FrequencySketch {
+		private static final int WIDTH = 1 << 16;
+		private static final int[] SEEDS = { 0x97cb3127, 0x9e3779b9, 0x7f4a7c15, 0x61c88647 };
+		private final byte[] m_counters = new byte[4 * WIDTH];
+		private final AtomicInteger m_additions = new AtomicInteger();
+
+		private static int index(int hash, int row) {
+			int h = (hash ^ (hash >>> 16)) * SEEDS[row];
+			return row * WIDTH + (h >>> 16);
+		}
+
+		void increment(int hash) {
+			for(int row = 0; row < 4; row++) {
+				int i = index(hash, row);
+				if(m_counters[i] < 15) m_counters[i]++;
+			}
+			if(m_additions.incrementAndGet() == 10 * WIDTH) {
+				m_additions.set(0);
+				for(int i = 0; i < m_counters.length; i++) m_counters[i] >>= 1;
+			}
+		}
+
+		int frequency(int hash) {
+			int frequency = 15;
+			for(int row = 0; row < 4; row++) {
+				frequency = Math.min(frequency, m_counters[index(hash, row)]);
+			}
+			return frequency;
+		}
+	}
+
+}
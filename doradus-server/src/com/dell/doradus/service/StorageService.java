@@ -20,6 +20,7 @@ package com.dell.doradus.service;
  * Abstract root class for Doradus StorageService implementations. Defines methods that
  * must be implemented by a subclass to function as a storage service.
  */
+import java.io.Reader;
 import java.util.Map;
 
 import com.dell.doradus.common.AggregateResult;
@@ -158,6 +159,26 @@ public abstract class StorageService extends Service {
     public abstract BatchResult addBatch(ApplicationDefinition appDef, String storeName,
                                          DBObjectBatch batch, Map<String, String> options);
     
+    /**
+     * Add the batch of objects described in JSON by the given reader to the given store
+     * belonging to the given application using the given options. This implementation
+     * parses the whole batch into a {@link DBObjectBatch} and calls
+     * {@link #addBatch(ApplicationDefinition, String, DBObjectBatch, Map)}; services that
+     * can store objects as they are parsed override it.
+     * 
+     * @param appDef    {@link ApplicationDefinition} of application to update.
+     * @param storeName Name of store to which objects should be added.
+     * @param reader    Character reader from which the JSON batch is read.
+     * @param options   Optional map of batch options. Options are service-specific.
+     * @return          {@link BatchResult} representing the results of the update.
+     */
+    public BatchResult addBatchJSON(ApplicationDefinition appDef, String storeName,
+                                    Reader reader, Map<String, String> options) {
+        DBObjectBatch batch = new DBObjectBatch();
+        batch.parseJSON(reader);
+        return addBatch(appDef, storeName, batch, options);
+    }   // addBatchJSON
+    
     /**
      * Delete the given set of objects from the given store belonging to the given
      * application.
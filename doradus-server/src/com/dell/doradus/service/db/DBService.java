@@ -20,11 +20,15 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import com.dell.doradus.core.ServerConfig;
 import com.dell.doradus.service.Service;
 import com.dell.doradus.service.db.cql.CQLService;
 import com.dell.doradus.service.db.thrift.ThriftService;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 
 /**
  * Provides methods that access the physical database. This is currently Cassandra but
@@ -90,6 +94,20 @@ import com.dell.doradus.service.db.thrift.ThriftService;
  *      {@link #getColumn(String, String, String)} - Get a single column from a single row.
  *      {@link #getRowsAllColumns(String, Set)} - Get all columns of a set of row keys.
  * </pre>
+ * 
+ * <h1>Asynchronous access</h1>
+ * 
+ * Some queries and commits have asynchronous variants that return a
+ * {@link ListenableFuture}, so that callers can issue several requests and consume the
+ * results as they arrive. By default they perform the request synchronously and return a
+ * completed future; a DBService that can pipeline requests overrides them:
+ * 
+ * <pre>
+ *      {@link #getColumnAsync(String, String, String)} - Get a single column.
+ *      {@link #getRowsColumnsAsync(String, Collection, Collection)} - Get columns of a set of rows.
+ *      {@link #getRowsColumnSliceAsync(String, Collection, String, String)} - Get a column range of a set of rows.
+ *      {@link #commitAsync(DBTransaction)} - Commit a {@link DBTransaction}.
+ * </pre>
  */
 public abstract class DBService extends Service {
     // Experimental: Choose service based on doradus.yaml setting
@@ -109,6 +127,32 @@ public abstract class DBService extends Service {
         return INSTANCE;
     }   // instance
 
+    /**
+     * Wait for the given future returned by an asynchronous DBService method and return
+     * its value. If the request failed, its exception is thrown unchanged, as the
+     * synchronous method would throw it.
+     * 
+     * @param future    Future returned by an asynchronous DBService method.
+     * @return          Value of the future.
+     */
+    public static <T> T getResult(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for a database request", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw new RuntimeException(cause);
+        }
+    }   // getResult
+
     //----- Public Service methods: implemented by subclass
     
     //----- Public DBService methods: Store management
@@ -288,5 +332,83 @@ public abstract class DBService extends Service {
                                                       String             endCol,
                                                       boolean            reversed);
 
+    //----- Public DBService methods: Asynchronous queries and updates
+
+    /**
+     * Asynchronous version of {@link #getColumn(String, String, String)}. The future's
+     * value is the requested {@link DColumn} or null if the row or column was not found.
+     * The default implementation reads the column synchronously.
+     * 
+     * @param storeName Name of store to query.
+     * @param rowKey    Key of row to read.
+     * @param colName   Name of column to fetch.
+     * @return          Future of the {@link DColumn}, or of null if it was not found.
+     */
+    public ListenableFuture<DColumn> getColumnAsync(String storeName, String rowKey, String colName) {
+        try {
+            return Futures.immediateFuture(getColumn(storeName, rowKey, colName));
+        } catch (RuntimeException e) {
+            return Futures.immediateFailedFuture(e);
+        }
+    }   // getColumnAsync
+
+    /**
+     * Asynchronous version of {@link #getRowsColumns(String, Collection, Collection)}.
+     * The default implementation reads the rows synchronously.
+     * 
+     * @param storeName Name of store to query.
+     * @param rowKeys   Collection of row keys to read.
+     * @param colNames  Collection of column names to read.
+     * @return          Future of an Iterator for {@link DRow} objects.
+     */
+    public ListenableFuture<Iterator<DRow>> getRowsColumnsAsync(String             storeName,
+                                                                Collection<String> rowKeys,
+                                                                Collection<String> colNames) {
+        try {
+            return Futures.immediateFuture(getRowsColumns(storeName, rowKeys, colNames));
+        } catch (RuntimeException e) {
+            return Futures.immediateFailedFuture(e);
+        }
+    }   // getRowsColumnsAsync
+
+    /**
+     * Asynchronous version of {@link #getRowsColumnSlice(String, Collection, String, String)}.
+     * The default implementation reads the rows synchronously.
+     * 
+     * @param storeName Name of store to query.
+     * @param rowKeys   Collection of row keys to read.
+     * @param startCol  First name in the column names interval.
+     * @param endCol    Last name in the column names interval.
+     * @return          Future of an Iterator for {@link DRow} objects.
+     */
+    public ListenableFuture<Iterator<DRow>> getRowsColumnSliceAsync(String             storeName,
+                                                                    Collection<String> rowKeys,
+                                                                    String             startCol,
+                                                                    String             endCol) {
+        try {
+            return Futures.immediateFuture(getRowsColumnSlice(storeName, rowKeys, startCol, endCol));
+        } catch (RuntimeException e) {
+            return Futures.immediateFailedFuture(e);
+        }
+    }   // getRowsColumnSliceAsync
+
+    /**
+     * Asynchronous version of {@link #commit(DBTransaction)}. The updates are cleared from
+     * the transaction object before returning, so it can be reused while the commit is in
+     * progress. The future fails if the updates cannot be committed. The default
+     * implementation commits synchronously.
+     * 
+     * @param dbTran    {@link DBTransaction} containing updates to commit.
+     * @return          Future that completes when the updates are committed.
+     */
+    public ListenableFuture<Void> commitAsync(DBTransaction dbTran) {
+        try {
+            commit(dbTran);
+            return Futures.immediateFuture(null);
+        } catch (RuntimeException e) {
+            return Futures.immediateFailedFuture(e);
+        }
+    }   // commitAsync
+
 }   // class DBService
 
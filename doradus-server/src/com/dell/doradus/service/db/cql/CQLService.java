@@ -25,8 +25,10 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.Semaphore;
 
 import com.datastax.driver.core.BoundStatement;
 import com.datastax.driver.core.Cluster;
@@ -39,18 +41,26 @@ import com.datastax.driver.core.Metadata;
 import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.ProtocolOptions.Compression;
 import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
 import com.datastax.driver.core.Session;
 import com.datastax.driver.core.SocketOptions;
+import com.datastax.driver.core.Statement;
 import com.datastax.driver.core.TableMetadata;
 import com.datastax.driver.core.policies.RoundRobinPolicy;
 import com.dell.doradus.common.Utils;
 import com.dell.doradus.core.ServerConfig;
+import com.dell.doradus.service.db.DBNotAvailableException;
 import com.dell.doradus.service.db.DBService;
 import com.dell.doradus.service.db.DBTransaction;
 import com.dell.doradus.service.db.DColumn;
 import com.dell.doradus.service.db.DRow;
 import com.dell.doradus.service.db.StoreTemplate;
 import com.dell.doradus.service.db.cql.CQLStatementCache.Query;
+import com.google.common.base.Function;
+import com.google.common.collect.Iterators;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 
 public class CQLService extends DBService {
     // Global CFs are quoted to enforce backwards compatibility/case-sensitivity:
@@ -74,6 +84,8 @@ public class CQLService extends DBService {
     private Session m_session;
     private CQLStatementCache m_queryCache;
     private CQLSchemaManager m_schemaMgr;
+    // Bounds the asynchronous requests in flight to cql_max_requests.
+    private Semaphore m_requestPermits;
     
     //----- Public Service methods
 
@@ -106,6 +118,7 @@ public class CQLService extends DBService {
         m_session = null;
         m_queryCache = null;
         m_schemaMgr = null;
+        m_requestPermits = null;
     }   // stopService
 
     //----- Public DBService methods: Store management
@@ -235,20 +248,14 @@ public class CQLService extends DBService {
     @Override
     public Iterator<DRow> getRowsAllColumns(String storeName, Collection<String> rowKeys) {
         String tableName = storeToCQLName(storeName);
-        return new CQLRowIterator(executeQuery(Query.SELECT_ROW_SET_ALL_COLUMNS,
-                                               tableName,
-                                               new ArrayList<String>(rowKeys)));
+        return getResult(getRowSetAsync(Query.SELECT_ROW_SET_ALL_COLUMNS, tableName, rowKeys));
     }
 
     @Override
     public Iterator<DRow> getRowsColumns(String             storeName,
                                          Collection<String> rowKeys,
                                          Collection<String> colNames) {
-        String tableName = storeToCQLName(storeName);
-        return new CQLRowIterator(executeQuery(Query.SELECT_ROW_SET_COLUMN_SET,
-                                               tableName,
-                                               new ArrayList<String>(rowKeys),
-                                               new ArrayList<String>(colNames)));
+        return getResult(getRowsColumnsAsync(storeName, rowKeys, colNames));
     }
 
     @Override
@@ -256,12 +263,7 @@ public class CQLService extends DBService {
                                              Collection<String> rowKeys,
                                              String             startCol,
                                              String             endCol) {
-        String tableName = storeToCQLName(storeName);
-        return new CQLRowIterator(executeQuery(Query.SELECT_ROW_SET_COLUMN_RANGE,
-                                               tableName,
-                                               new ArrayList<String>(rowKeys),
-                                               startCol,
-                                               endCol));
+        return getResult(getRowsColumnSliceAsync(storeName, rowKeys, startCol, endCol));
     }
 
     @Override
@@ -271,16 +273,52 @@ public class CQLService extends DBService {
                                              String             endCol,
                                              boolean            reversed) {
         String tableName = storeToCQLName(storeName);
-        ResultSet rs = null;
         if (reversed) {
             // Swap start/end columns for CQL reversed queries
-            rs = executeQuery(Query.SELECT_ROW_SET_COLUMN_RANGE_DESC, tableName, new ArrayList<String>(rowKeys), endCol, startCol);
+            return getResult(getRowSetAsync(Query.SELECT_ROW_SET_COLUMN_RANGE_DESC, tableName, rowKeys, endCol, startCol));
         } else {
-            rs = executeQuery(Query.SELECT_ROW_SET_COLUMN_RANGE, tableName, new ArrayList<String>(rowKeys), startCol, endCol);
+            return getResult(getRowSetAsync(Query.SELECT_ROW_SET_COLUMN_RANGE, tableName, rowKeys, startCol, endCol));
         }
-        return new CQLRowIterator(rs);
     }
 
+    //----- Public DBService methods: Asynchronous queries and updates
+
+    @Override
+    public ListenableFuture<DColumn> getColumnAsync(String storeName, String rowKey, String colName) {
+        String tableName = storeToCQLName(storeName);
+        ListenableFuture<ResultSet> future =
+            executeQueryAsync(Query.SELECT_1_ROW_1_COLUMN, tableName, rowKey, colName);
+        return Futures.transform(future, new Function<ResultSet, DColumn>() {
+            @Override
+            public DColumn apply(ResultSet rs) {
+                CQLColumnIterator colIter = new CQLColumnIterator(rs);
+                return colIter.hasNext() ? colIter.next() : null;
+            }
+        });
+    }   // getColumnAsync
+
+    @Override
+    public ListenableFuture<Iterator<DRow>> getRowsColumnsAsync(String             storeName,
+                                                                Collection<String> rowKeys,
+                                                                Collection<String> colNames) {
+        String tableName = storeToCQLName(storeName);
+        return getRowSetAsync(Query.SELECT_ROW_SET_COLUMN_SET, tableName, rowKeys, new ArrayList<String>(colNames));
+    }   // getRowsColumnsAsync
+
+    @Override
+    public ListenableFuture<Iterator<DRow>> getRowsColumnSliceAsync(String             storeName,
+                                                                    Collection<String> rowKeys,
+                                                                    String             startCol,
+                                                                    String             endCol) {
+        String tableName = storeToCQLName(storeName);
+        return getRowSetAsync(Query.SELECT_ROW_SET_COLUMN_RANGE, tableName, rowKeys, startCol, endCol);
+    }   // getRowsColumnSliceAsync
+
+    @Override
+    public ListenableFuture<Void> commitAsync(DBTransaction dbTran) {
+        return ((CQLTransaction)dbTran).commitAsync();
+    }   // commitAsync
+
     //----- CQLService-specific public methods
  
     /**
@@ -312,6 +350,43 @@ public class CQLService extends DBService {
 		return m_session;
 	}	// getSession
 	
+    /**
+     * Execute the given statement asynchronously. If cql_max_requests requests are
+     * already in flight, this method waits until one of them completes.
+     * 
+     * @param statement Statement to execute.
+     * @return          Future of the statement's ResultSet.
+     */
+    public ListenableFuture<ResultSet> executeAsync(Statement statement) {
+        final Semaphore permits = m_requestPermits;
+        Session session = m_session;
+        if (permits == null || session == null) {
+            throw new DBNotAvailableException("CQL session is not connected");
+        }
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting to send a request", e);
+        }
+        ResultSetFuture future = null;
+        try {
+            future = session.executeAsync(statement);
+        } finally {
+            if (future == null) {
+                permits.release();
+            }
+        }
+        future.addListener(new Runnable() {
+            @Override
+            public void run() {
+                permits.release();
+            }
+        }, MoreExecutors.sameThreadExecutor());
+        return future;
+    }   // executeAsync
+    
+	
     /**
      * Convert the given store name into a quoted CQL name if it isn't already quoted.
      * 
@@ -337,6 +412,43 @@ public class CQLService extends DBService {
         return m_session.execute(boundState);
     }   // executeQuery
     
+    // Execute the given query for the given table using the given values asynchronously.
+    private ListenableFuture<ResultSet> executeQueryAsync(Query query, String tableName, Object... values) {
+        m_logger.debug("Executing asynchronous statement {} on table {}; total params={}",
+                       new Object[]{query, tableName, values.length});
+        PreparedStatement prepState = m_queryCache.getPreparedQuery(query, tableName);
+        BoundStatement boundState = prepState.bind(values);
+        return executeAsync(boundState);
+    }   // executeQueryAsync
+    
+    // Execute the given row set query, whose first parameter is the list of row keys, with
+    // IN lists of at most cql_row_set_batch_size keys sent concurrently. The rows of all
+    // queries are returned by one iterator.
+    private ListenableFuture<Iterator<DRow>> getRowSetAsync(Query              query,
+                                                            String             tableName,
+                                                            Collection<String> rowKeys,
+                                                            Object...          otherValues) {
+        int batchSize = Math.max(1, ServerConfig.getInstance().cql_row_set_batch_size);
+        List<String> keyList = new ArrayList<String>(rowKeys);
+        List<ListenableFuture<ResultSet>> futures = new ArrayList<>();
+        for (int start = 0; start < keyList.size() || start == 0; start += batchSize) {
+            Object[] values = new Object[otherValues.length + 1];
+            values[0] = new ArrayList<String>(keyList.subList(start, Math.min(keyList.size(), start + batchSize)));
+            System.arraycopy(otherValues, 0, values, 1, otherValues.length);
+            futures.add(executeQueryAsync(query, tableName, values));
+        }
+        return Futures.transform(Futures.allAsList(futures), new Function<List<ResultSet>, Iterator<DRow>>() {
+            @Override
+            public Iterator<DRow> apply(List<ResultSet> resultSets) {
+                List<Iterator<DRow>> rowIters = new ArrayList<>(resultSets.size());
+                for (ResultSet rs : resultSets) {
+                    rowIters.add(new CQLRowIterator(rs));
+                }
+                return Iterators.concat(rowIters.iterator());
+            }
+        });
+    }   // getRowSetAsync
+    
     private void initializeCQLSession() {
         startCreateSessionThread();
     }   // initializeCQLSession
@@ -447,6 +559,7 @@ public class CQLService extends DBService {
     // manager.
     private void connectToKeyspace(Cluster cluster) {
         m_session = cluster.connect(m_keyspace);
+        m_requestPermits = new Semaphore(Math.max(1, ServerConfig.getInstance().cql_max_requests));
         m_queryCache = new CQLStatementCache(m_session);
         m_schemaMgr = new CQLSchemaManager(m_session, m_keyspace);
     }   // connectToKeyspace
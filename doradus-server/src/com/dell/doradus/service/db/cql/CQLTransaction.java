@@ -36,6 +36,10 @@ import com.datastax.driver.core.TableMetadata;
 import com.datastax.driver.core.BatchStatement.Type;
 import com.dell.doradus.service.db.DBTransaction;
 import com.dell.doradus.service.db.cql.CQLStatementCache.Update;
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 
 /**
  * Concrete DBTransaction for use with the Cassandra CQL API. Updates are stored in
@@ -187,6 +191,42 @@ public class CQLTransaction extends DBTransaction {
         }
     }   // commit
     
+    /**
+     * Apply the updates accumulated in this transaction asynchronously. The updates are
+     * cleared before returning, so this transaction can be reused while the batch is in
+     * flight. The returned future fails if the batch fails.
+     * 
+     * @return  Future that completes when the updates are applied.
+     */
+    public ListenableFuture<Void> commitAsync() {
+        try {
+            if (getUpdateCount() == 0) {
+                m_logger.debug("Skipping commit with no updates");
+                return Futures.immediateFuture(null);
+            }
+            final int updates = getUpdateCount();
+            m_logger.debug("Executing asynchronous batch with {} updates", updates);
+            ListenableFuture<ResultSet> future = CQLService.instance().executeAsync(createBatch());
+            Futures.addCallback(future, new FutureCallback<ResultSet>() {
+                @Override
+                public void onSuccess(ResultSet rs) { }
+
+                @Override
+                public void onFailure(Throwable e) {
+                    m_logger.error("Batch statement with " + updates + " updates failed", e);
+                }
+            });
+            return Futures.transform(future, new Function<ResultSet, Void>() {
+                @Override
+                public Void apply(ResultSet rs) {
+                    return null;
+                }
+            });
+        } finally {
+            clear();
+        }
+    }   // commitAsync
+    
     //----- Private methods
     
     // Get the column list for the given table/row, adding the outer maps if needed.
@@ -221,12 +261,17 @@ public class CQLTransaction extends DBTransaction {
             return;
         }
 
+        executeUpdate(createBatch());
+    }   // applyUpdates
+
+    // Create a batch statement with all updates in this transaction.
+    private BatchStatement createBatch() {
         // Allow CQL to assign the batch timestamp.
         BatchStatement batchState = new BatchStatement(Type.UNLOGGED);
         addUpdates(batchState);
         addDeletes(batchState);
-        executeUpdate(batchState);
-    }   // applyUpdates
+        return batchState;
+    }   // createBatch
 
     // Add row/column updates in the given transaction to the batch.
     private void addUpdates(BatchStatement batchState) {
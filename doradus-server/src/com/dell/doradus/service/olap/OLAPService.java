@@ -16,6 +16,7 @@
 
 package com.dell.doradus.service.olap;
 
+import java.io.Reader;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.Iterator;
@@ -42,6 +43,8 @@ import com.dell.doradus.olap.OlapQuery;
 import com.dell.doradus.olap.Olapp;
 import com.dell.doradus.olap.aggregate.AggregateResultConverter;
 import com.dell.doradus.olap.aggregate.AggregationResult;
+import com.dell.doradus.olap.io.Codec;
+import com.dell.doradus.olap.io.Compressor;
 import com.dell.doradus.olap.store.SegmentStats;
 import com.dell.doradus.search.SearchResultList;
 import com.dell.doradus.service.StorageService;
@@ -96,6 +99,8 @@ public class OLAPService extends StorageService {
                 DBService.instance().waitForFullService();
                 m_olap = new Olap();
                 setRunning();
+                // queries are served meanwhile
+                m_olap.warmUp();
             }
         }).start();
     }   // startService
@@ -183,6 +188,18 @@ public class OLAPService extends StorageService {
         return result;
     }   // addBatch
 
+    // Objects are indexed as they are parsed, without building a DBObjectBatch.
+    @Override
+    public BatchResult addBatchJSON(ApplicationDefinition appDef, String shardName,
+                                    Reader reader, Map<String, String> options) {
+        waitForFullService();
+        String guid = m_olap.addSegment(appDef, shardName, reader, getOverwriteOption(options));
+        BatchResult result = new BatchResult();
+        result.setStatus(Status.OK);
+        result.setComment("GUID=" + guid);
+        return result;
+    }   // addBatchJSON
+
     @Override
     public BatchResult updateBatch(ApplicationDefinition appDef, String shardName, DBObjectBatch batch) {
         return addBatch(appDef, shardName, batch, null);
@@ -316,6 +333,19 @@ public class OLAPService extends StorageService {
         m_olap.merge(application, shard, expireDate);
     }   // mergeShard
     
+    /**
+     * Merge the given shard if it has batches that are not merged into its cube yet. An
+     * exception is thrown if a merge is already underway for the shard.
+     * 
+     * @param application   OLAP application name.
+     * @param shard         Shard name.
+     * @return              True if the shard's cube was rebuilt.
+     */
+    public boolean mergeShardPending(String application, String shard) {
+        waitForFullService();
+        return m_olap.mergePending(application, shard);
+    }   // mergeShardPending
+    
     /**
      * Get the expire-date for the given shard name and OLAP application. Null is returned
      * if the shard does not exist or has no expire-date.
@@ -380,6 +410,14 @@ public class OLAPService extends StorageService {
                 assert optValue.equals(this.getClass().getSimpleName());
                 break;
                 
+            case CommonDefs.OPT_COMPRESSION:
+                Codec codec = Codec.forName(optValue);
+                Utils.require(codec != null,
+                              "Unknown compression codec: " + optValue + "; supported codecs are none, gzip and lz4");
+                Utils.require(Compressor.isSupported(codec),
+                              "Compression codec " + codec + " requires olap_internal_compression");
+                break;
+                
             default:
                 throw new IllegalArgumentException("Unknown option for OLAPService application: " + optName);
             }
@@ -219,10 +219,11 @@ public class BatchObjectUpdater {
         }
     }   // buildErrorStatus
     
-    // Commit all mutations if we've exceeded the threshold.
+    // Send all mutations if we've exceeded the threshold. They are pipelined with the next
+    // ones, which concern other objects, and the final commit of the batch waits for them.
     private void checkCommit() throws IOException {
         if (m_dbTran.getUpdateCount() >= ServerConfig.getInstance().batch_mutation_threshold) {
-            m_dbTran.commit();
+            m_dbTran.commitAsync();
         }
     }   // checkCommit
     
@@ -43,6 +43,7 @@ public class ObjectQuery {
     private int		m_skip = 0;
     private String  m_sortOrder;
     private boolean m_l2rEnabled = ServerConfig.getInstance().l2r_enable;
+    private boolean m_explain;
     
     /**
      * Create an object that uses the given perspective table and extracts query
@@ -86,6 +87,10 @@ public class ObjectQuery {
                 m_continueID = paramValue;
                 m_bContinueAfter = false;
                 
+            // explain
+            } else if (paramName.equals("explain")) {
+                m_explain = "true".equals(paramValue);
+                
             // fields
             } else if (paramName.equals("fields")) {
                 Utils.require(m_fieldSet == null,
@@ -229,6 +234,10 @@ public class ObjectQuery {
             } else if (name.equals("l2r")) {
                 m_l2rEnabled = "true".equals(value);
                 
+            // explain=[true | false]
+            } else if (name.equals("explain")) {
+                m_explain = "true".equals(value);
+                
             // Unknown or not-yet-supported parameter.
             } else {
                 throw new IllegalArgumentException("Unrecognized query parameter: " + name);
@@ -283,6 +292,10 @@ public class ObjectQuery {
         return m_l2rEnabled;
     }   // isL2REnabled
     
+    public boolean isExplain() {
+        return m_explain;
+    }   // isExplain
+    
     public SearchResultList query() {
         QueryExecutor query = new QueryExecutor(getTableDef()); 
         if (getPageSize() >= 0) {
@@ -299,6 +312,7 @@ public class ObjectQuery {
             }
         }
         query.setL2rEnabled(isL2REnabled());
+        query.setExplain(isExplain());
         
         // Execute the query.
         return query.search(getText(), getFieldSet(), getSortOrder());
@@ -40,6 +40,7 @@ import com.dell.doradus.service.db.DBService;
 import com.dell.doradus.service.db.DColumn;
 import com.dell.doradus.service.db.DRow;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListenableFuture;
 
 /**
  * A collection of helper methods for retrieving information from Cassandra database
@@ -358,13 +359,31 @@ public class SpiderHelper {
     	if (shard.intValue() == 0) {
     		return getLinksUnsharded(linkDef, ids, continuationLink, inclusive, count);
     	}
-    	
-    	DBService dbService = DBService.instance();
+    	return readLinks(linkDef, shard, DBService.getResult(
+    			requestLinks(linkDef, shard, ids, continuationLink, inclusive)), count);
+	}
+
+	/**
+	 * Starting an asynchronous read of the link rows of the given objects in a shard.
+	 * 
+	 * @param linkDef			Link field definition
+	 * @param shard				Shard number (not 0)
+	 * @param ids				Collection of object IDs
+	 * @param continuationLink	Link to start from, or null
+	 * @param inclusive			Whether the continuation link is included
+	 * @return					Future of the link rows, to be read by readLinks
+	 */
+	private static ListenableFuture<Iterator<DRow>> requestLinks(FieldDefinition linkDef, Integer shard,
+			Collection<ObjectID> ids, ObjectID continuationLink, boolean inclusive) {
 		String tableName = SpiderService.termsStoreName(linkDef.getTableDef());
-		Map<ObjectID, List<ObjectID>> result = new HashMap<>();
-		
 		String startCol = fromTerms(continuationLink, inclusive);
-		Iterator<DRow> iRows = dbService.getRowsColumnSlice(tableName, linkKeys(shard, linkDef, ids), startCol, "");
+		return DBService.instance().getRowsColumnSliceAsync(tableName, linkKeys(shard, linkDef, ids), startCol, "");
+	}
+
+	// Linked object IDs, at most count per object, of the link rows of a shard.
+	private static Map<ObjectID, List<ObjectID>> readLinks(FieldDefinition linkDef, Integer shard,
+			Iterator<DRow> iRows, int count) {
+		Map<ObjectID, List<ObjectID>> result = new HashMap<>();
 		while (iRows.hasNext()) {
 			DRow row = iRows.next();
 			List<ObjectID> list = new ArrayList<>();
@@ -410,9 +429,18 @@ public class SpiderHelper {
     		return getLinks(linkDef, shards.toArray(new Integer[1])[0], ids, continuationLink, inclusive, count);
     	}
     	
+    	// the link rows of all shards are requested at once, then read in shard order
+    	Map<Integer, ListenableFuture<Iterator<DRow>>> requests = new HashMap<>();
+    	for (Integer shard : shards) {
+    		if (shard.intValue() != 0) {
+    			requests.put(shard, requestLinks(linkDef, shard, ids, continuationLink, inclusive));
+    		}
+    	}
     	Map<ObjectID, List<List<ObjectID>>> values = new HashMap<ObjectID, List<List<ObjectID>>>(ids.size());
     	for (Integer shard : shards) {
-    		Map<ObjectID, List<ObjectID>> res = getLinks(linkDef, shard, ids, continuationLink, inclusive, count);
+    		Map<ObjectID, List<ObjectID>> res = shard.intValue() == 0 ?
+    				getLinksUnsharded(linkDef, ids, continuationLink, inclusive, count) :
+    				readLinks(linkDef, shard, DBService.getResult(requests.get(shard)), count);
     		for (Map.Entry<ObjectID, List<ObjectID>> entry : res.entrySet()) {
     			if (values.containsKey(entry.getKey())) {
     				values.get(entry.getKey()).add(entry.getValue());
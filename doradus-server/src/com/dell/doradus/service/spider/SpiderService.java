@@ -762,6 +762,7 @@ public class SpiderService extends StorageService {
     // Validate the given field against SpiderService-specific constraints.
     private void validateField(FieldDefinition fieldDef) {
         Utils.require(!fieldDef.isXLinkField(), "Xlink fields are not allowed in Spider applications");
+        Utils.require(!fieldDef.isTermIndexed(), "'term_index' is not allowed in Spider applications: " + fieldDef);
         
         // Validate scalar field analyzer.
         if (fieldDef.isScalarField()) {
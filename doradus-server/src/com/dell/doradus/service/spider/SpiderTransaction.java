@@ -16,10 +16,12 @@
 
 package com.dell.doradus.service.spider;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -31,6 +33,7 @@ import com.dell.doradus.common.Utils;
 import com.dell.doradus.core.Defs;
 import com.dell.doradus.service.db.DBService;
 import com.dell.doradus.service.db.DBTransaction;
+import com.google.common.util.concurrent.ListenableFuture;
 
 /**
  * Represents an update transaction for the Spider storage service. SpiderTransaction
@@ -56,6 +59,15 @@ public class SpiderTransaction {
     private final Map<TableDefinition, Map<Integer, Map<String, Set<String>>>> m_tableTermRefMap =
         new HashMap<TableDefinition, Map<Integer, Map<String, Set<String>>>>();
 
+    // Changes of the number of objects of the term rows updated by this transaction, which
+    // are applied to the TermStatistics estimates when it is committed.
+    private final Map<String, Integer> m_termCountDeltas = new HashMap<String, Integer>();
+
+    // Commits sent by commitAsync() that have not been waited for yet, and the changes of
+    // term counts of their updates, which are applied when they all succeed.
+    private final List<ListenableFuture<Void>> m_pendingCommits = new ArrayList<ListenableFuture<Void>>();
+    private final Map<String, Integer> m_pendingCountDeltas = new HashMap<String, Integer>();
+
     /**
      * Create a new SpiderTransaction object, which starts a new transaction with "now"
      * as the timestamp.
@@ -68,6 +80,7 @@ public class SpiderTransaction {
     public void clear() {
         m_dbTran.clear();
         m_tableFieldRefMap.clear();
+        m_termCountDeltas.clear();
     }   // clear
     
     /**
@@ -76,14 +89,52 @@ public class SpiderTransaction {
      * timestamp.
      */
     public void commit() {
+        commitAsync();
+        waitForCommits();
+    }   // commit
+    
+    /**
+     * Send this SpiderTransaction's updates to the database without waiting for them to
+     * be applied, causing them to be cleared as well. Updates sent by successive calls are
+     * pipelined, so they should concern different objects; the next {@link #commit()}
+     * waits for all of them and fails if any of them failed.
+     */
+    public void commitAsync() {
         try {
-            DBService.instance().commit(m_dbTran);
+            m_pendingCommits.add(DBService.instance().commitAsync(m_dbTran));
+            for (Map.Entry<String, Integer> entry : m_termCountDeltas.entrySet()) {
+                Integer delta = m_pendingCountDeltas.get(entry.getKey());
+                m_pendingCountDeltas.put(entry.getKey(),
+                                         delta == null ? entry.getValue() : delta + entry.getValue());
+            }
             // Re-create the transaction to renew its timestamp.
         	m_dbTran = DBService.instance().startTransaction();
         } finally {
             clear();
         }
-    }   // commit
+    }   // commitAsync
+    
+    // Wait for the commits sent by commitAsync(), throwing the first error if any failed.
+    private void waitForCommits() {
+        RuntimeException error = null;
+        for (ListenableFuture<Void> future : m_pendingCommits) {
+            try {
+                DBService.getResult(future);
+            } catch (RuntimeException e) {
+                if (error == null) {
+                    error = e;
+                }
+            }
+        }
+        m_pendingCommits.clear();
+        if (error == null) {
+            TermStatistics.instance().update(m_pendingCountDeltas);
+        }
+        m_pendingCountDeltas.clear();
+        if (error != null) {
+            throw error;
+        }
+    }   // waitForCommits
     
     /**
      * Get the total number of updates (column updates/deletes and row deletes) queued
@@ -248,9 +299,9 @@ public class SpiderTransaction {
      * @param term      Term being indexed.
      */
     public void addTermIndexColumn(TableDefinition tableDef, DBObject dbObj, String fieldName, String term) {
-        m_dbTran.addColumn(SpiderService.termsStoreName(tableDef),
-                           SpiderService.termIndexRowKey(tableDef, dbObj, fieldName, term),
-                           dbObj.getObjectID());
+        String rowKey = SpiderService.termIndexRowKey(tableDef, dbObj, fieldName, term);
+        m_dbTran.addColumn(SpiderService.termsStoreName(tableDef), rowKey, dbObj.getObjectID());
+        addTermCountDelta(tableDef, rowKey, 1);
     }   // addTermIndexColumn
     
     /**
@@ -369,11 +420,18 @@ public class SpiderTransaction {
      * @param term      Term being un-indexed.
      */
     public void deleteTermIndexColumn(TableDefinition tableDef, DBObject dbObj, String fieldName, String term) {
-        m_dbTran.deleteColumn(SpiderService.termsStoreName(tableDef),
-                              SpiderService.termIndexRowKey(tableDef, dbObj, fieldName, term),
-                              dbObj.getObjectID());
+        String rowKey = SpiderService.termIndexRowKey(tableDef, dbObj, fieldName, term);
+        m_dbTran.deleteColumn(SpiderService.termsStoreName(tableDef), rowKey, dbObj.getObjectID());
+        addTermCountDelta(tableDef, rowKey, -1);
     }   // deleteTermIndexColumn
     
+    // Count the change of the number of objects of the given term row.
+    private void addTermCountDelta(TableDefinition tableDef, String rowKey, int delta) {
+        String key = TermStatistics.key(tableDef, rowKey);
+        Integer count = m_termCountDeltas.get(key);
+        m_termCountDeltas.put(key, count == null ? delta : count + delta);
+    }   // addTermCountDelta
+    
     /**
      * Delete a link value column in the object table of the given owning object.
      * 
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2014 Dell, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.dell.doradus.service.spider;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.dell.doradus.common.TableDefinition;
+import com.dell.doradus.core.ServerConfig;
+import com.dell.doradus.search.util.ConcurrentSizeCache;
+
+/**
+ * Estimates of the number of objects of term rows, used by the query planner to order
+ * the clauses of AND queries. Cassandra cannot count the columns of a row without reading
+ * them, so a term is counted once, up to search_term_statistics_limit objects, when a query
+ * first needs it, and the cached count is then kept up to date by the commits of
+ * SpiderTransaction on this server. Counts are estimates: updates from other servers
+ * and terms indexed again for the same object are not reflected.
+ */
+public class TermStatistics {
+	private static final TermStatistics INSTANCE = new TermStatistics();
+
+	private final ConcurrentSizeCache<String, AtomicLong> m_counts;
+
+	private TermStatistics() {
+		m_counts = new ConcurrentSizeCache<String, AtomicLong>(
+				ServerConfig.getInstance().search_term_statistics_cache_size_mb * 1024L * 1024L);
+	}
+
+	public static TermStatistics instance() { return INSTANCE; }
+
+	// key of the term row of the given shard
+	public static String key(TableDefinition table, Integer shard, String term) {
+		String rowKey = shard.intValue() == 0 ? term : shard.toString() + "/" + term;
+		return key(table, rowKey);
+	}
+
+	public static String key(TableDefinition table, String rowKey) {
+		return SpiderService.termsStoreName(table) + "/" + rowKey;
+	}
+
+	public static int limit() { return ServerConfig.getInstance().search_term_statistics_limit; }
+
+	// returns the estimated number of objects of the term row, or -1 if it has not been counted yet.
+	// Lookups count as requests, so that the counts of frequently queried terms are kept
+	public long get(String key) {
+		AtomicLong count = m_counts.get(key);
+		return count == null ? -1 : count.get();
+	}
+
+	// caches the number of objects read from the term row, at most limit()
+	public void put(String key, long count) {
+		m_counts.put(key, new AtomicLong(count), 48 + 2L * key.length());
+	}
+
+	// adds the changes committed to term rows to their counts, if they are cached;
+	// updates are not requests and do not count
+	public void update(Map<String, Integer> deltas) {
+		for(Map.Entry<String, Integer> e : deltas.entrySet()) {
+			AtomicLong count = m_counts.peek(e.getKey());
+			if(count == null) continue;
+			long value = count.addAndGet(e.getValue());
+			if(value < 0) count.compareAndSet(value, 0);
+		}
+	}
+
+}
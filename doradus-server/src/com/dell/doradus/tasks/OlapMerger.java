@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2014 Dell, Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dell.doradus.tasks;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.dell.doradus.olap.MergeInProgressException;
+import com.dell.doradus.service.olap.OLAPService;
+
+/**
+ * Implements the "olap-merge" task: merges every shard of an OLAP application that has
+ * batches not merged into its cube yet. Shards being merged by another request are skipped.
+ */
+public class OlapMerger extends DoradusTask {
+    // Logging interface:
+    private Logger m_logger = LoggerFactory.getLogger(getClass().getSimpleName());
+
+	protected void runTask() {
+		String appName = getAppName();
+		OLAPService olap = OLAPService.instance();
+		
+		m_logger.debug("Merge shards for application: " + appName);
+		List<String> shards = olap.listShards(appName);
+		int rebuilt = 0;
+		for (String shardName : shards) {
+        	if (isInterrupted()) {
+        		return;
+        	}
+			try {
+				if (olap.mergeShardPending(appName, shardName)) {
+					rebuilt++;
+				}
+			} catch (MergeInProgressException e) {
+				m_logger.info("Shard {}/{} skipped: {}", new Object[] {appName, shardName, e.getMessage()});
+			}
+		}
+		m_logger.debug("Cubes of {} of {} shards rebuilt for application {}",
+				new Object[] {rebuilt, shards.size(), appName});
+	}	// runTask
+
+}